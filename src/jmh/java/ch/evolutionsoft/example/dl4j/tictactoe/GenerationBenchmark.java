@@ -0,0 +1,122 @@
+package ch.evolutionsoft.example.dl4j.tictactoe;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.primitives.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MiniMax generation and duplicate removal of the INDArray, bitboard and
+ * parallel generators.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GenerationBenchmark {
+
+  @State(Scope.Thread)
+  public static class GeneratedPlaygrounds {
+
+    TicTacToeMiniMaxGenerator generator;
+
+    @Setup(Level.Invocation)
+    public void generate() {
+
+      generator = new TicTacToeMiniMaxGenerator();
+      generator.searchInitial();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class GeneratedBitboardPlaygrounds {
+
+    TicTacToeBitboardMiniMaxGenerator generator;
+
+    @Setup(Level.Invocation)
+    public void generate() {
+
+      generator = new TicTacToeBitboardMiniMaxGenerator();
+      generator.searchInitial();
+    }
+  }
+
+  @Benchmark
+  public List<Pair<INDArray, INDArray>> searchInitial() {
+
+    TicTacToeMiniMaxGenerator generator = new TicTacToeMiniMaxGenerator();
+    generator.searchInitial();
+
+    return generator.getGeneratedPlaygroundsLabels();
+  }
+
+  @Benchmark
+  public List<Pair<INDArray, INDArray>> searchInitialTranspositionTable() {
+
+    TicTacToeMiniMaxGenerator generator = new TicTacToeMiniMaxGenerator(true);
+    generator.searchInitial();
+
+    return generator.getGeneratedPlaygroundsLabels();
+  }
+
+  @Benchmark
+  public TicTacToeBitboardMiniMaxGenerator bitboardSearchInitial() {
+
+    TicTacToeBitboardMiniMaxGenerator generator = new TicTacToeBitboardMiniMaxGenerator();
+    generator.searchInitial();
+
+    return generator;
+  }
+
+  @Benchmark
+  public TicTacToeBitboardMiniMaxGenerator bitboardSearchInitialTranspositionTable() {
+
+    TicTacToeBitboardMiniMaxGenerator generator = new TicTacToeBitboardMiniMaxGenerator(true);
+    generator.searchInitial();
+
+    return generator;
+  }
+
+  @Benchmark
+  public TicTacToeBitboardMiniMaxGenerator bitboardSearchInitialSymmetries() {
+
+    TicTacToeBitboardMiniMaxGenerator generator = new TicTacToeBitboardMiniMaxGenerator(true, true);
+    generator.searchInitial();
+
+    return generator;
+  }
+
+  @Benchmark
+  public TicTacToeBitboardMiniMaxGenerator parallelSearchInitial() {
+
+    TicTacToeParallelMiniMaxGenerator generator = new TicTacToeParallelMiniMaxGenerator();
+    generator.searchInitial();
+
+    return generator;
+  }
+
+  @Benchmark
+  public List<Pair<INDArray, INDArray>> removeDuplicates(GeneratedPlaygrounds generatedPlaygrounds) {
+
+    return generatedPlaygrounds.generator.removeDuplicates();
+  }
+
+  @Benchmark
+  public int bitboardRemoveDuplicates(GeneratedBitboardPlaygrounds generatedPlaygrounds) {
+
+    return generatedPlaygrounds.generator.removeDuplicates();
+  }
+}
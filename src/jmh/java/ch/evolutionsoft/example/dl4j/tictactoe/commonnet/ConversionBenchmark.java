@@ -0,0 +1,69 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.commonnet;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.primitives.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Label and convolutional input conversion of all playgrounds, list based and
+ * batched.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConversionBenchmark {
+
+  private INDArray stackedPlaygrounds;
+  private INDArray stackedResults;
+
+  private List<Pair<INDArray, INDArray>> allPlaygroundsResults;
+
+  @Setup
+  public void readData() {
+
+    stackedPlaygrounds = NeuralDataHelper.readInputs();
+    stackedResults = NeuralDataHelper.readLabels();
+
+    allPlaygroundsResults = NeuralDataHelper.splitRows(new Pair<>(stackedPlaygrounds, stackedResults));
+  }
+
+  @Benchmark
+  public List<Pair<INDArray, INDArray>> convertMiniMaxLabelsList() {
+
+    return TicTacToeNeuralDataConverter.convertMiniMaxLabels(allPlaygroundsResults);
+  }
+
+  @Benchmark
+  public INDArray convertMiniMaxLabels() {
+
+    return TicTacToeNeuralDataConverter.convertMiniMaxLabels(stackedPlaygrounds, stackedResults);
+  }
+
+  @Benchmark
+  public List<Pair<INDArray, INDArray>> convertMiniMaxPlaygroundLabelsToConvolutionalDataList() {
+
+    return TicTacToeNeuralDataConverter.convertMiniMaxPlaygroundLabelsToConvolutionalData(allPlaygroundsResults);
+  }
+
+  @Benchmark
+  public Pair<INDArray, INDArray> convertMiniMaxPlaygroundLabelsToConvolutionalData() {
+
+    return TicTacToeNeuralDataConverter.convertMiniMaxPlaygroundLabelsToConvolutionalData(
+        stackedPlaygrounds, stackedResults);
+  }
+}
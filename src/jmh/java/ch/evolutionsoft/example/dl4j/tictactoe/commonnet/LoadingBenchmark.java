@@ -0,0 +1,78 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.commonnet;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.primitives.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reading the playgrounds and results from the text resources and the binary
+ * data file, and streaming one epoch of minibatches from the binary file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadingBenchmark {
+
+  private BinaryNeuralDataFile binaryData;
+
+  private StreamingDataSetIterator streamingIterator;
+
+  @Setup
+  public void openBinaryData() throws IOException {
+
+    binaryData = NeuralDataHelper.openBinaryData();
+    streamingIterator = new StreamingDataSetIterator(binaryData, NeuralNetConstants.DEFAULT_BATCH_SIZE, false);
+  }
+
+  @TearDown
+  public void closeStreamingIterator() {
+
+    streamingIterator.close();
+  }
+
+  @Benchmark
+  public List<Pair<INDArray, INDArray>> readAllText() {
+
+    return NeuralDataHelper.readAll(NeuralDataHelper.INPUTS_FILE, NeuralDataHelper.LABELS_FILE);
+  }
+
+  @Benchmark
+  public List<Pair<INDArray, INDArray>> readAll() {
+
+    return NeuralDataHelper.readAll();
+  }
+
+  @Benchmark
+  public Pair<INDArray, INDArray> readStackedBinary() {
+
+    return binaryData.readStacked();
+  }
+
+  @Benchmark
+  public void streamEpoch(Blackhole blackhole) {
+
+    streamingIterator.reset();
+    while (streamingIterator.hasNext()) {
+
+      blackhole.consume(streamingIterator.next());
+    }
+  }
+}
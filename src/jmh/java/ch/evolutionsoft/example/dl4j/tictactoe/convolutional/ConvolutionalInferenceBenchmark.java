@@ -0,0 +1,57 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.convolutional;
+
+import java.util.concurrent.TimeUnit;
+
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralDataHelper;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.TicTacToeNeuralDataConverter;
+
+/**
+ * Single and batched output of the untrained convolutional net, the weights
+ * do not matter for the inference time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConvolutionalInferenceBenchmark {
+
+  @Param({"1", "256"})
+  public int batchSize;
+
+  private ComputationGraph net;
+
+  private INDArray playgroundImages;
+
+  @Setup
+  public void createNet() {
+
+    net = new ConvolutionalNetMain().buildNetwork();
+
+    INDArray playgrounds = NeuralDataHelper.readInputs().get(
+        NDArrayIndex.interval(0, batchSize), NDArrayIndex.all());
+    playgroundImages = TicTacToeNeuralDataConverter.convertToConvolutionalImages(playgrounds);
+  }
+
+  @Benchmark
+  public INDArray output() {
+
+    return net.outputSingle(playgroundImages);
+  }
+}
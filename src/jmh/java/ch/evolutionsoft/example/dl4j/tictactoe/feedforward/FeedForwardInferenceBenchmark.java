@@ -0,0 +1,66 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.feedforward;
+
+import java.util.concurrent.TimeUnit;
+
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralDataHelper;
+
+/**
+ * Single and batched output of the untrained feed forward nets, the weights
+ * do not matter for the inference time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FeedForwardInferenceBenchmark {
+
+  public static final String HIDDEN_LAYER = "hiddenLayer";
+  public static final String TWO_LAYER = "twoLayer";
+
+  @Param({HIDDEN_LAYER, TWO_LAYER})
+  public String netLayout;
+
+  @Param({"1", "256"})
+  public int batchSize;
+
+  private MultiLayerNetwork net;
+
+  private INDArray playgrounds;
+
+  @Setup
+  public void createNet() {
+
+    MultiLayerConfiguration configuration = HIDDEN_LAYER.equals(netLayout) ?
+        new FeedForwardHiddenLayerMain().createHiddenLayerConfiguration() :
+        new FeedForwardTwoLayerMain().createTwoLayerConfiguration();
+
+    net = new FeedForwardCommon().createNetworkModel(configuration);
+
+    playgrounds = NeuralDataHelper.readInputs().get(
+        NDArrayIndex.interval(0, batchSize), NDArrayIndex.all()).dup();
+  }
+
+  @Benchmark
+  public INDArray output() {
+
+    return net.output(playgrounds);
+  }
+}
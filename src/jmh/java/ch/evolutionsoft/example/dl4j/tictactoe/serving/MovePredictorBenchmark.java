@@ -0,0 +1,83 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.serving;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeBitboard;
+import ch.evolutionsoft.example.dl4j.tictactoe.convolutional.ConvolutionalNetMain;
+import ch.evolutionsoft.example.dl4j.tictactoe.feedforward.FeedForwardHiddenLayerMain;
+
+/**
+ * Latency distribution of single move predictions with untrained nets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MovePredictorBenchmark {
+
+  public static final String FEED_FORWARD = "feedForward";
+  public static final String CONVOLUTIONAL = "convolutional";
+
+  /**
+   * Max player on the center field.
+   */
+  private static final int CENTER_FIELD_PLAYGROUND = TicTacToeBitboard.encode(
+      TicTacToeBitboard.fieldMask(FIELD_5), TicTacToeBitboard.NO_FIELDS);
+
+  @Param({FEED_FORWARD, CONVOLUTIONAL})
+  public String netLayout;
+
+  private MovePredictor movePredictor;
+
+  @Setup
+  public void createMovePredictor() {
+
+    movePredictor = FEED_FORWARD.equals(netLayout) ?
+        new FeedForwardMovePredictor(new HiddenLayerSetup().createNetwork()) :
+        new ConvolutionalMovePredictor(new ConvolutionalSetup().buildNetwork());
+  }
+
+  static class HiddenLayerSetup extends FeedForwardHiddenLayerMain {
+
+    MultiLayerNetwork createNetwork() {
+
+      MultiLayerNetwork net = new MultiLayerNetwork(createHiddenLayerConfiguration());
+      net.init();
+
+      return net;
+    }
+  }
+
+  static class ConvolutionalSetup extends ConvolutionalNetMain {
+
+    @Override
+    protected ComputationGraph buildNetwork() {
+
+      return super.buildNetwork();
+    }
+  }
+
+  @Benchmark
+  public int predictMove() {
+
+    return movePredictor.predictMove(CENTER_FIELD_PLAYGROUND);
+  }
+}
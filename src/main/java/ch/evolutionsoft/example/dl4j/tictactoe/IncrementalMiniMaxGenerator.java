@@ -0,0 +1,76 @@
+package ch.evolutionsoft.example.dl4j.tictactoe;
+
+/**
+ * Bitboard MiniMax generator backed by a {@link PositionCache}. Playgrounds
+ * with a current cache entry are not searched again, their value is taken from
+ * the cached results. Every searched playground is put into the cache, so after
+ * {@link #searchInitial()} the cache holds all playgrounds not decided yet.
+ *
+ * The generated rows are the searched playgrounds only, the complete data is
+ * the cache itself.
+ */
+public class IncrementalMiniMaxGenerator extends TicTacToeBitboardMiniMaxGenerator {
+
+  private final PositionCache positionCache;
+
+  private int reusedPlaygrounds = 0;
+
+  public IncrementalMiniMaxGenerator(PositionCache positionCache) {
+
+    super(true);
+    this.positionCache = positionCache;
+  }
+
+  @Override
+  public void searchInitial() {
+
+    reusedPlaygrounds = 0;
+    super.searchInitial();
+  }
+
+  /**
+   * @return the cache hits of the last search, counting playgrounds reached on
+   *         several paths once per path
+   */
+  public int getReusedPlaygrounds() {
+
+    return reusedPlaygrounds;
+  }
+
+  @Override
+  protected double max(int currentMaxFields, int currentMinFields, int depth) {
+
+    int encodedPlayground = TicTacToeBitboard.encode(currentMaxFields, currentMinFields);
+
+    if (positionCache.isCurrent(encodedPlayground)) {
+
+      reusedPlaygrounds++;
+      return positionCache.getValue(encodedPlayground);
+    }
+
+    return super.max(currentMaxFields, currentMinFields, depth);
+  }
+
+  @Override
+  protected double min(int currentMaxFields, int currentMinFields, int depth) {
+
+    int encodedPlayground = TicTacToeBitboard.encode(currentMaxFields, currentMinFields);
+
+    if (positionCache.isCurrent(encodedPlayground)) {
+
+      reusedPlaygrounds++;
+      return positionCache.getValue(encodedPlayground);
+    }
+
+    return super.min(currentMaxFields, currentMinFields, depth);
+  }
+
+  @Override
+  protected void addPlaygroundResults(int currentMaxFields, int currentMinFields, double[] currentResults,
+      double[] currentChildValues) {
+
+    super.addPlaygroundResults(currentMaxFields, currentMinFields, currentResults, currentChildValues);
+    positionCache.put(TicTacToeBitboard.encode(currentMaxFields, currentMinFields), currentResults,
+        currentChildValues);
+  }
+}
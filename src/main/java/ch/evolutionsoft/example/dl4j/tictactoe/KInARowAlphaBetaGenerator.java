@@ -0,0 +1,448 @@
+package ch.evolutionsoft.example.dl4j.tictactoe;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.primitives.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralDataHelper;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
+
+/**
+ * Generates playgrounds with MiniMax result labels for N x N boards with k in a
+ * row wins, see {@link KInARowBoard}, where the exhaustive search of the
+ * {@link TicTacToeMiniMaxGenerator} is infeasible.
+ *
+ * All unique positions up to a maximum number of stones are labeled. The result
+ * of every empty field is the value of the move to that field, searched by alpha
+ * beta with move ordering and iterative deepening until the value is exact or
+ * the node or time budget of the position is exhausted. Unresolved positions at
+ * the search horizon count as DRAW_VALUE.
+ *
+ * Values follow the TicTacToe convention with a win value of the number of
+ * fields plus one instead of MAX_WIN, so wins stay at least SMALLEST_MAX_WIN
+ * for the TicTacToeNeuralDataConverter. For the 3x3 board the values are the
+ * exact MiniMax values of every move.
+ */
+public class KInARowAlphaBetaGenerator {
+
+  private static final Logger logger = LoggerFactory.getLogger(KInARowAlphaBetaGenerator.class);
+
+  public static final long DEFAULT_MAX_NODES_PER_POSITION = 2_000_000;
+  public static final long DEFAULT_MILLIS_PER_POSITION = 200;
+
+  private static final int INITIAL_CAPACITY = 1 << 10;
+  private static final int TIME_CHECK_NODE_INTERVAL = 1 << 10;
+  private static final long NANOS_PER_MILLI = 1_000_000L;
+
+  protected final KInARowBoard board;
+  protected final int numberOfFields;
+  protected final double winValue;
+
+  protected final int maxStones;
+  protected final long maxNodesPerPosition;
+  protected final long millisPerPosition;
+
+  protected int numberOfPlaygrounds = 0;
+  protected long[] maxPlayerFields = new long[INITIAL_CAPACITY];
+  protected long[] minPlayerFields = new long[INITIAL_CAPACITY];
+  protected double[] results;
+
+  protected int numberOfExactPlaygrounds = 0;
+  protected long totalNodes = 0;
+
+  protected long positionNodes;
+  protected long positionDeadline;
+  protected boolean searchAborted;
+  protected boolean depthLimitReached;
+
+  /**
+   * Ordered moves and their scores per search depth.
+   */
+  protected final int[][] movesPerDepth;
+  protected final int[][] moveScoresPerDepth;
+
+  public KInARowAlphaBetaGenerator(KInARowBoard board, int maxStones) {
+
+    this(board, maxStones, DEFAULT_MAX_NODES_PER_POSITION, DEFAULT_MILLIS_PER_POSITION);
+  }
+
+  public KInARowAlphaBetaGenerator(KInARowBoard board, int maxStones, long maxNodesPerPosition,
+      long millisPerPosition) {
+
+    this.board = board;
+    this.numberOfFields = board.getNumberOfFields();
+    this.winValue = numberOfFields + 1.0;
+    this.maxStones = Math.min(maxStones, numberOfFields - 1);
+    this.maxNodesPerPosition = maxNodesPerPosition;
+    this.millisPerPosition = millisPerPosition;
+
+    this.results = new double[INITIAL_CAPACITY * numberOfFields];
+    this.movesPerDepth = new int[numberOfFields + 1][numberOfFields];
+    this.moveScoresPerDepth = new int[numberOfFields + 1][numberOfFields];
+  }
+
+  /**
+   * Arguments: board size, win length, maximum number of stones and optionally
+   * milliseconds per position, e.g. "4 4 3 500". Writes inputs4x4.txt and
+   * labels4x4.txt.
+   */
+  public static void main(String[] arguments) {
+
+    StartupTimer.logStartup(KInARowAlphaBetaGenerator.class);
+
+    int size = Integer.parseInt(arguments[0]);
+    int winLength = Integer.parseInt(arguments[1]);
+    int maxStones = Integer.parseInt(arguments[2]);
+    long millisPerPosition = arguments.length > 3 ? Long.parseLong(arguments[3]) : DEFAULT_MILLIS_PER_POSITION;
+
+    KInARowAlphaBetaGenerator data = new KInARowAlphaBetaGenerator(
+        new KInARowBoard(size, winLength), maxStones, DEFAULT_MAX_NODES_PER_POSITION, millisPerPosition);
+    logger.info("Data Processing Started : {}", new Date());
+
+    data.generate();
+    logger.info("{} game states generated, {} exact, {} nodes searched, Finished At : {}",
+        data.getNumberOfGeneratedPlaygrounds(), data.getNumberOfExactPlaygrounds(), data.getTotalNodes(),
+        new Date());
+
+    StartupTimer.initializeNd4j();
+    Pair<INDArray, INDArray> stackedPlaygroundsResults = data.getStackedPlaygroundsResults();
+    String boardName = size + "x" + size;
+    NeuralDataHelper.writeData(stackedPlaygroundsResults.getFirst(), stackedPlaygroundsResults.getSecond(),
+        "inputs" + boardName + ".txt", "labels" + boardName + ".txt");
+    logger.info("File generation completed : at {}", new Date());
+  }
+
+  /**
+   * Labels all unique non terminal positions with up to maxStones stones, ply by
+   * ply in move order.
+   */
+  public void generate() {
+
+    numberOfPlaygrounds = 0;
+    numberOfExactPlaygrounds = 0;
+    totalNodes = 0;
+
+    Set<PlaygroundKey> currentPlyPlaygrounds = new LinkedHashSet<>();
+    currentPlyPlaygrounds.add(new PlaygroundKey(KInARowBoard.NO_FIELDS, KInARowBoard.NO_FIELDS));
+
+    double[] positionResults = new double[numberOfFields];
+
+    for (int stones = 0; stones <= maxStones; stones++) {
+
+      boolean maxPlayerMove = stones % 2 == 0;
+      Set<PlaygroundKey> nextPlyPlaygrounds = new LinkedHashSet<>();
+
+      for (PlaygroundKey playground : currentPlyPlaygrounds) {
+
+        if (board.hasWon(playground.maxFields) || board.hasWon(playground.minFields)) {
+
+          continue;
+        }
+
+        labelPosition(playground.maxFields, playground.minFields, stones, positionResults);
+        addPlaygroundResults(playground.maxFields, playground.minFields, positionResults);
+
+        long occupiedFields = playground.maxFields | playground.minFields;
+        for (int move = 0; move < numberOfFields && stones < maxStones; move++) {
+
+          if (!board.isOccupied(occupiedFields, move)) {
+
+            nextPlyPlaygrounds.add(maxPlayerMove ?
+                new PlaygroundKey(playground.maxFields | board.fieldMask(move), playground.minFields) :
+                new PlaygroundKey(playground.maxFields, playground.minFields | board.fieldMask(move)));
+          }
+        }
+      }
+
+      logger.info("{} positions with {} stones labeled", currentPlyPlaygrounds.size(), stones);
+      currentPlyPlaygrounds = nextPlyPlaygrounds;
+    }
+  }
+
+  /**
+   * Iterative deepening over all moves of the position, keeping the values of
+   * the last completely searched depth.
+   */
+  protected void labelPosition(long currentMaxFields, long currentMinFields, int depth, double[] positionResults) {
+
+    boolean maxPlayerMove = depth % 2 == 0;
+    long occupiedFields = currentMaxFields | currentMinFields;
+    int emptyFields = numberOfFields - Long.bitCount(occupiedFields);
+
+    Arrays.fill(positionResults, OCCUPIED);
+    double[] iterationResults = new double[numberOfFields];
+
+    positionNodes = 0;
+    positionDeadline = System.nanoTime() + millisPerPosition * NANOS_PER_MILLI;
+    searchAborted = false;
+
+    for (int depthLimit = 1; depthLimit <= emptyFields && !searchAborted; depthLimit++) {
+
+      depthLimitReached = false;
+
+      for (int move = 0; move < numberOfFields && !searchAborted; move++) {
+
+        if (board.isOccupied(occupiedFields, move)) {
+
+          iterationResults[move] = OCCUPIED;
+
+        } else if (maxPlayerMove) {
+
+          iterationResults[move] = alphaBeta(currentMaxFields | board.fieldMask(move), currentMinFields,
+              move, depth + 1, depthLimit - 1, -Double.MAX_VALUE, Double.MAX_VALUE);
+
+        } else {
+
+          iterationResults[move] = alphaBeta(currentMaxFields, currentMinFields | board.fieldMask(move),
+              move, depth + 1, depthLimit - 1, -Double.MAX_VALUE, Double.MAX_VALUE);
+        }
+      }
+
+      if (!searchAborted) {
+
+        System.arraycopy(iterationResults, 0, positionResults, 0, numberOfFields);
+
+        if (!depthLimitReached) {
+
+          numberOfExactPlaygrounds++;
+          break;
+        }
+      }
+    }
+
+    totalNodes += positionNodes;
+  }
+
+  /**
+   * @param lastMove the field occupied by the previous move, only its win lines
+   *          can be completed
+   * @param depth the number of stones on the playground
+   */
+  protected double alphaBeta(long currentMaxFields, long currentMinFields, int lastMove, int depth,
+      int remainingDepth, double alpha, double beta) {
+
+    if (budgetExhausted()) {
+
+      searchAborted = true;
+      return DRAW_VALUE;
+    }
+
+    boolean maxPlayerMove = depth % 2 == 0;
+
+    if (maxPlayerMove && board.hasWonWith(currentMinFields, lastMove)) {
+
+      return -winValue + depth;
+
+    } else if (!maxPlayerMove && board.hasWonWith(currentMaxFields, lastMove)) {
+
+      return winValue - depth;
+    }
+
+    long occupiedFields = currentMaxFields | currentMinFields;
+
+    if (!board.hasEmptyFieldsLeft(occupiedFields)) {
+
+      return DRAW_VALUE;
+
+    } else if (remainingDepth == 0) {
+
+      depthLimitReached = true;
+      return DRAW_VALUE;
+    }
+
+    int numberOfMoves = orderMoves(currentMaxFields, currentMinFields, depth, maxPlayerMove);
+    int[] moves = movesPerDepth[depth];
+
+    double currentValue = maxPlayerMove ? -Double.MAX_VALUE : Double.MAX_VALUE;
+    for (int index = 0; index < numberOfMoves && alpha < beta && !searchAborted; index++) {
+
+      int move = moves[index];
+
+      if (maxPlayerMove) {
+
+        currentValue = Math.max(currentValue, alphaBeta(currentMaxFields | board.fieldMask(move),
+            currentMinFields, move, depth + 1, remainingDepth - 1, alpha, beta));
+        alpha = Math.max(alpha, currentValue);
+
+      } else {
+
+        currentValue = Math.min(currentValue, alphaBeta(currentMaxFields,
+            currentMinFields | board.fieldMask(move), move, depth + 1, remainingDepth - 1, alpha, beta));
+        beta = Math.min(beta, currentValue);
+      }
+    }
+
+    return currentValue;
+  }
+
+  /**
+   * Sorts the empty fields by descending attack plus defense score into
+   * movesPerDepth[depth].
+   *
+   * @return the number of moves
+   */
+  protected int orderMoves(long currentMaxFields, long currentMinFields, int depth, boolean maxPlayerMove) {
+
+    long ownFields = maxPlayerMove ? currentMaxFields : currentMinFields;
+    long opponentFields = maxPlayerMove ? currentMinFields : currentMaxFields;
+    long occupiedFields = currentMaxFields | currentMinFields;
+
+    int[] moves = movesPerDepth[depth];
+    int[] scores = moveScoresPerDepth[depth];
+
+    int numberOfMoves = 0;
+    for (int field = 0; field < numberOfFields; field++) {
+
+      if (!board.isOccupied(occupiedFields, field)) {
+
+        int score = board.moveScore(ownFields, opponentFields, field) +
+                    board.moveScore(opponentFields, ownFields, field);
+
+        int index = numberOfMoves++;
+        while (index > 0 && scores[index - 1] < score) {
+
+          moves[index] = moves[index - 1];
+          scores[index] = scores[index - 1];
+          index--;
+        }
+        moves[index] = field;
+        scores[index] = score;
+      }
+    }
+
+    return numberOfMoves;
+  }
+
+  protected boolean budgetExhausted() {
+
+    positionNodes++;
+
+    return positionNodes > maxNodesPerPosition ||
+           (positionNodes % TIME_CHECK_NODE_INTERVAL == 0 && System.nanoTime() > positionDeadline);
+  }
+
+  public int getNumberOfGeneratedPlaygrounds() {
+
+    return numberOfPlaygrounds;
+  }
+
+  public int getNumberOfExactPlaygrounds() {
+
+    return numberOfExactPlaygrounds;
+  }
+
+  public long getTotalNodes() {
+
+    return totalNodes;
+  }
+
+  public List<Pair<INDArray, INDArray>> getGeneratedPlaygroundsLabels() {
+
+    List<Pair<INDArray, INDArray>> allPlaygroundsResults = new ArrayList<>(numberOfPlaygrounds);
+
+    int[] rowShape = new int[] {ROW_NUMBER, numberOfFields};
+    double[] playground = new double[numberOfFields];
+    double[] result = new double[numberOfFields];
+    for (int index = 0; index < numberOfPlaygrounds; index++) {
+
+      fillPlayground(index, playground, 0);
+      System.arraycopy(results, index * numberOfFields, result, 0, numberOfFields);
+
+      allPlaygroundsResults.add(new Pair<>(Nd4j.create(playground, rowShape), Nd4j.create(result, rowShape)));
+    }
+
+    return allPlaygroundsResults;
+  }
+
+  public Pair<INDArray, INDArray> getStackedPlaygroundsResults() {
+
+    double[] playgrounds = new double[numberOfPlaygrounds * numberOfFields];
+    for (int index = 0; index < numberOfPlaygrounds; index++) {
+
+      fillPlayground(index, playgrounds, index * numberOfFields);
+    }
+
+    int[] shape = new int[] {numberOfPlaygrounds, numberOfFields};
+
+    return new Pair<>(
+        Nd4j.create(playgrounds, shape),
+        Nd4j.create(Arrays.copyOf(results, numberOfPlaygrounds * numberOfFields), shape));
+  }
+
+  protected void addPlaygroundResults(long currentMaxFields, long currentMinFields, double[] currentResults) {
+
+    if (numberOfPlaygrounds == maxPlayerFields.length) {
+
+      int newCapacity = 2 * maxPlayerFields.length;
+      maxPlayerFields = Arrays.copyOf(maxPlayerFields, newCapacity);
+      minPlayerFields = Arrays.copyOf(minPlayerFields, newCapacity);
+      results = Arrays.copyOf(results, newCapacity * numberOfFields);
+    }
+
+    maxPlayerFields[numberOfPlaygrounds] = currentMaxFields;
+    minPlayerFields[numberOfPlaygrounds] = currentMinFields;
+    System.arraycopy(currentResults, 0, results, numberOfPlaygrounds * numberOfFields, numberOfFields);
+
+    numberOfPlaygrounds++;
+  }
+
+  protected void fillPlayground(int index, double[] playgrounds, int offset) {
+
+    for (int field = 0; field < numberOfFields; field++) {
+
+      if (board.isOccupied(maxPlayerFields[index], field)) {
+
+        playgrounds[offset + field] = MAX_PLAYER;
+
+      } else if (board.isOccupied(minPlayerFields[index], field)) {
+
+        playgrounds[offset + field] = MIN_PLAYER;
+
+      } else {
+
+        playgrounds[offset + field] = 0;
+      }
+    }
+  }
+
+  protected static final class PlaygroundKey {
+
+    private final long maxFields;
+    private final long minFields;
+
+    PlaygroundKey(long maxFields, long minFields) {
+
+      this.maxFields = maxFields;
+      this.minFields = minFields;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+
+      if (!(other instanceof PlaygroundKey)) {
+
+        return false;
+      }
+
+      PlaygroundKey otherKey = (PlaygroundKey) other;
+      return maxFields == otherKey.maxFields && minFields == otherKey.minFields;
+    }
+
+    @Override
+    public int hashCode() {
+
+      return Long.hashCode(maxFields * 31 + minFields);
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package ch.evolutionsoft.example.dl4j.tictactoe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Geometry of a square playground with size x size fields, won by the first
+ * player occupying winLength fields in a row, column or diagonal. TicTacToe is
+ * the 3x3 board with win length 3.
+ *
+ * Like {@link TicTacToeBitboard} each player occupies a bit mask, bit n set
+ * for field n counted row by row. Masks are longs, so boards have at most 64
+ * fields.
+ */
+public class KInARowBoard {
+
+  public static final int MAX_SIZE = 8;
+
+  public static final long NO_FIELDS = 0L;
+
+  private final int size;
+  private final int winLength;
+  private final int numberOfFields;
+  private final long allFields;
+
+  private final long[] winLines;
+
+  /**
+   * Win lines containing a field, indexed by field.
+   */
+  private final long[][] fieldWinLines;
+
+  public KInARowBoard(int size, int winLength) {
+
+    if (size < 1 || size > MAX_SIZE) {
+
+      throw new IllegalArgumentException("Board size must be between 1 and " + MAX_SIZE);
+    }
+
+    if (winLength < 1 || winLength > size) {
+
+      throw new IllegalArgumentException("Win length must be between 1 and the board size " + size);
+    }
+
+    this.size = size;
+    this.winLength = winLength;
+    this.numberOfFields = size * size;
+    this.allFields = numberOfFields == Long.SIZE ? -1L : (1L << numberOfFields) - 1;
+
+    List<Long> lines = new ArrayList<>();
+    for (int row = 0; row < size; row++) {
+
+      for (int column = 0; column < size; column++) {
+
+        addLine(lines, row, column, 0, 1);
+        addLine(lines, row, column, 1, 0);
+        addLine(lines, row, column, 1, 1);
+        addLine(lines, row, column, 1, -1);
+      }
+    }
+
+    this.winLines = new long[lines.size()];
+    for (int index = 0; index < winLines.length; index++) {
+
+      winLines[index] = lines.get(index);
+    }
+
+    this.fieldWinLines = new long[numberOfFields][];
+    for (int field = 0; field < numberOfFields; field++) {
+
+      List<Long> linesOfField = new ArrayList<>();
+      for (long winLine : winLines) {
+
+        if ((winLine & fieldMask(field)) != 0) {
+
+          linesOfField.add(winLine);
+        }
+      }
+
+      fieldWinLines[field] = new long[linesOfField.size()];
+      for (int index = 0; index < fieldWinLines[field].length; index++) {
+
+        fieldWinLines[field][index] = linesOfField.get(index);
+      }
+    }
+  }
+
+  public int getSize() {
+
+    return size;
+  }
+
+  public int getWinLength() {
+
+    return winLength;
+  }
+
+  public int getNumberOfFields() {
+
+    return numberOfFields;
+  }
+
+  public long getAllFields() {
+
+    return allFields;
+  }
+
+  public long fieldMask(int field) {
+
+    return 1L << field;
+  }
+
+  public boolean isOccupied(long occupiedFields, int field) {
+
+    return (occupiedFields & fieldMask(field)) != 0;
+  }
+
+  public boolean hasEmptyFieldsLeft(long occupiedFields) {
+
+    return occupiedFields != allFields;
+  }
+
+  public boolean hasWon(long playerFields) {
+
+    for (long winLine : winLines) {
+
+      if ((playerFields & winLine) == winLine) {
+
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Only the win lines through the last move need to be checked after it.
+   */
+  public boolean hasWonWith(long playerFields, int lastMove) {
+
+    for (long winLine : fieldWinLines[lastMove]) {
+
+      if ((playerFields & winLine) == winLine) {
+
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Static move ordering score: win lines through the field not yet blocked by
+   * the opponent, weighted by the own fields already on them.
+   */
+  public int moveScore(long ownFields, long opponentFields, int field) {
+
+    int score = 0;
+    for (long winLine : fieldWinLines[field]) {
+
+      if ((winLine & opponentFields) == 0) {
+
+        score += 1 + Long.bitCount(winLine & ownFields);
+      }
+    }
+
+    return score;
+  }
+
+  private void addLine(List<Long> lines, int startRow, int startColumn, int rowStep, int columnStep) {
+
+    int endRow = startRow + (winLength - 1) * rowStep;
+    int endColumn = startColumn + (winLength - 1) * columnStep;
+
+    if (endRow < 0 || endRow >= size || endColumn < 0 || endColumn >= size) {
+
+      return;
+    }
+
+    long line = NO_FIELDS;
+    for (int step = 0; step < winLength; step++) {
+
+      line |= fieldMask((startRow + step * rowStep) * size + startColumn + step * columnStep);
+    }
+
+    if (winLength == 1 && lines.contains(line)) {
+
+      return;
+    }
+
+    lines.add(line);
+  }
+}
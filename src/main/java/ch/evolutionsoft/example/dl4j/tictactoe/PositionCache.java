@@ -0,0 +1,274 @@
+package ch.evolutionsoft.example.dl4j.tictactoe;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.BinaryNeuralDataFile;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.PlaygroundsResultsSource;
+
+/**
+ * Raw MiniMax results and child values of every playground that is not decided
+ * yet, indexed by the base 3 encoding of
+ * {@link TicTacToeBitboard#encode(int, int)} and kept on disk between
+ * generator runs.
+ *
+ * Every entry is either current or missing. Invalidating a playground
+ * invalidates all playgrounds it is reachable from as well, so a current
+ * playground always has a current subtree and its value can be reused by the
+ * {@link IncrementalMiniMaxGenerator} without searching it. A changed
+ * generator may change the value of any playground, it invalidates all
+ * entries.
+ *
+ * The cache is a {@link PlaygroundsResultsSource} of the current entries in
+ * encoding order. Stored caches are a header of three ints (magic number,
+ * version, number of entries) followed by one status byte, COLUMN_NUMBER
+ * result bytes and COLUMN_NUMBER child value bytes per entry.
+ */
+public class PositionCache implements PlaygroundsResultsSource {
+
+  public static final int MAGIC_NUMBER = 0x54545043;
+  public static final int VERSION = 2;
+  public static final int HEADER_BYTES = 3 * Integer.BYTES;
+
+  public static final int ENTRY_BYTES = 1 + 2 * COLUMN_NUMBER;
+
+  private static final int CHILD_VALUES_START = 1 + COLUMN_NUMBER;
+
+  private static final byte MISSING = 0;
+  private static final byte CURRENT = 1;
+
+  private final byte[] entries = new byte[TicTacToeBitboard.NUMBER_OF_ENCODINGS * ENTRY_BYTES];
+
+  /**
+   * Encodings of the current entries in row order, null after modifications.
+   */
+  private int[] rowEncodings;
+
+  public static PositionCache open(Path cacheFile) throws IOException {
+
+    PositionCache positionCache = new PositionCache();
+
+    if (!Files.exists(cacheFile)) {
+
+      return positionCache;
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(cacheFile));
+
+    if (buffer.remaining() != HEADER_BYTES + positionCache.entries.length || buffer.getInt() != MAGIC_NUMBER ||
+        buffer.getInt() != VERSION || buffer.getInt() != TicTacToeBitboard.NUMBER_OF_ENCODINGS) {
+
+      throw new IllegalArgumentException("No position cache of version " + VERSION);
+    }
+
+    buffer.get(positionCache.entries);
+
+    return positionCache;
+  }
+
+  /**
+   * Writes to a temporary file first, a failed write never leaves a partially
+   * written cache behind.
+   */
+  public void write(Path cacheFile) throws IOException {
+
+    Path directory = cacheFile.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + entries.length);
+    buffer.putInt(MAGIC_NUMBER)
+        .putInt(VERSION)
+        .putInt(TicTacToeBitboard.NUMBER_OF_ENCODINGS)
+        .put(entries);
+
+    buffer.flip();
+    Path temporaryFile = Files.createTempFile(directory, cacheFile.getFileName().toString(), null);
+    try (FileChannel fileChannel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+
+      while (buffer.hasRemaining()) {
+
+        fileChannel.write(buffer);
+      }
+    }
+
+    Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  public boolean isCurrent(int encodedPlayground) {
+
+    return entries[encodedPlayground * ENTRY_BYTES] == CURRENT;
+  }
+
+  /**
+   * @param results MiniMax results of the playground, OCCUPIED for occupied
+   *          fields
+   * @param childValues MiniMax value of every move, OCCUPIED for occupied
+   *          fields
+   */
+  public void put(int encodedPlayground, double[] results, double[] childValues) {
+
+    int entryStart = encodedPlayground * ENTRY_BYTES;
+    entries[entryStart] = CURRENT;
+
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      entries[entryStart + 1 + field] = BinaryNeuralDataFile.encodeResult(results[field]);
+      entries[entryStart + CHILD_VALUES_START + field] = BinaryNeuralDataFile.encodeResult(childValues[field]);
+    }
+
+    rowEncodings = null;
+  }
+
+  public void readResults(int encodedPlayground, double[] target, int offset) {
+
+    int entryStart = encodedPlayground * ENTRY_BYTES;
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      target[offset + field] = entries[entryStart + 1 + field];
+    }
+  }
+
+  /**
+   * Reads the MiniMax value of every move of the row, like
+   * {@link TicTacToeBitboardMiniMaxGenerator#readChildValues(int, double[], int)}.
+   */
+  public void readChildValues(int row, double[] target, int offset) {
+
+    int entryStart = rowEncodings()[row] * ENTRY_BYTES;
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      target[offset + field] = entries[entryStart + CHILD_VALUES_START + field];
+    }
+  }
+
+  /**
+   * @return the MiniMax value of a current playground, the best result over
+   *         the empty fields for the player to move
+   */
+  public double getValue(int encodedPlayground) {
+
+    int maxPlayerFields = TicTacToeBitboard.decodeMaxPlayerFields(encodedPlayground);
+    int minPlayerFields = TicTacToeBitboard.decodeMinPlayerFields(encodedPlayground);
+    boolean maxPlayerMove = Integer.bitCount(maxPlayerFields) == Integer.bitCount(minPlayerFields);
+
+    int entryStart = encodedPlayground * ENTRY_BYTES;
+    double value = maxPlayerMove ? MIN_WIN : MAX_WIN;
+
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      if (!TicTacToeBitboard.isOccupied(maxPlayerFields | minPlayerFields, field)) {
+
+        double result = entries[entryStart + 1 + field];
+        value = maxPlayerMove ? Math.max(value, result) : Math.min(value, result);
+      }
+    }
+
+    return value;
+  }
+
+  /**
+   * Marks the playground and every playground it is reachable from as
+   * missing, e.g. after changing the evaluation of single playgrounds.
+   */
+  public void invalidate(int encodedPlayground) {
+
+    entries[encodedPlayground * ENTRY_BYTES] = MISSING;
+    rowEncodings = null;
+
+    invalidateAncestors(encodedPlayground);
+  }
+
+  public void invalidateAll() {
+
+    Arrays.fill(entries, MISSING);
+    rowEncodings = null;
+  }
+
+  @Override
+  public int getRows() {
+
+    return rowEncodings().length;
+  }
+
+  @Override
+  public int getColumns() {
+
+    return COLUMN_NUMBER;
+  }
+
+  @Override
+  public void readPlayground(int row, double[] target, int offset) {
+
+    int encodedPlayground = rowEncodings()[row];
+    int maxPlayerFields = TicTacToeBitboard.decodeMaxPlayerFields(encodedPlayground);
+    int minPlayerFields = TicTacToeBitboard.decodeMinPlayerFields(encodedPlayground);
+
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      target[offset + field] = TicTacToeBitboard.fieldValue(maxPlayerFields, minPlayerFields, field);
+    }
+  }
+
+  @Override
+  public void readResult(int row, double[] target, int offset) {
+
+    readResults(rowEncodings()[row], target, offset);
+  }
+
+  /**
+   * Removing one field of the player who moved last gives the playgrounds the
+   * playground is reachable from. Missing playgrounds have no current
+   * ancestors left.
+   */
+  protected void invalidateAncestors(int encodedPlayground) {
+
+    int maxPlayerFields = TicTacToeBitboard.decodeMaxPlayerFields(encodedPlayground);
+    int minPlayerFields = TicTacToeBitboard.decodeMinPlayerFields(encodedPlayground);
+    boolean maxPlayerMovedLast = Integer.bitCount(maxPlayerFields) > Integer.bitCount(minPlayerFields);
+
+    int lastMoverFields = maxPlayerMovedLast ? maxPlayerFields : minPlayerFields;
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      if (TicTacToeBitboard.isOccupied(lastMoverFields, field)) {
+
+        int fieldMask = TicTacToeBitboard.fieldMask(field);
+        int ancestor = maxPlayerMovedLast ?
+            TicTacToeBitboard.encode(maxPlayerFields & ~fieldMask, minPlayerFields) :
+            TicTacToeBitboard.encode(maxPlayerFields, minPlayerFields & ~fieldMask);
+
+        if (isCurrent(ancestor)) {
+
+          invalidate(ancestor);
+        }
+      }
+    }
+  }
+
+  protected int[] rowEncodings() {
+
+    if (rowEncodings == null) {
+
+      int[] currentEncodings = new int[TicTacToeBitboard.NUMBER_OF_ENCODINGS];
+      int rows = 0;
+      for (int encoding = 0; encoding < TicTacToeBitboard.NUMBER_OF_ENCODINGS; encoding++) {
+
+        if (isCurrent(encoding)) {
+
+          currentEncodings[rows++] = encoding;
+        }
+      }
+
+      rowEncodings = Arrays.copyOf(currentEncodings, rows);
+    }
+
+    return rowEncodings;
+  }
+}
@@ -0,0 +1,150 @@
+package ch.evolutionsoft.example.dl4j.tictactoe;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+/**
+ * TicTacToe playground represented by one nine bit mask per player. Bit n of a
+ * mask is set if the player occupies field n, i.e. FIELD_1 corresponds to the
+ * lowest bit.
+ */
+public final class TicTacToeBitboard {
+
+  public static final int NO_FIELDS = 0;
+  public static final int ALL_FIELDS = (1 << COLUMN_NUMBER) - 1;
+
+  /**
+   * Playgrounds are encoded in base 3 with one digit per field, see
+   * {@link #encode(int, int)}.
+   */
+  public static final int EMPTY_FIELD_DIGIT = 0;
+  public static final int MAX_PLAYER_DIGIT = 1;
+  public static final int MIN_PLAYER_DIGIT = 2;
+  public static final int NUMBER_OF_ENCODINGS = 19683;
+
+  private static final int[] FIELD_DIGIT_WEIGHTS = {1, 3, 9, 27, 81, 243, 729, 2187, 6561};
+
+  private static final int[] WIN_LINES = {
+      fields(FIELD_1, FIELD_2, FIELD_3),
+      fields(FIELD_4, FIELD_5, FIELD_6),
+      fields(FIELD_7, FIELD_8, FIELD_9),
+      fields(FIELD_1, FIELD_4, FIELD_7),
+      fields(FIELD_2, FIELD_5, FIELD_8),
+      fields(FIELD_3, FIELD_6, FIELD_9),
+      fields(FIELD_1, FIELD_5, FIELD_9),
+      fields(FIELD_3, FIELD_5, FIELD_7)
+  };
+
+  private TicTacToeBitboard() {
+    // Hide constructor
+  }
+
+  public static int fieldMask(int field) {
+
+    return 1 << field;
+  }
+
+  public static boolean isOccupied(int occupiedFields, int field) {
+
+    return (occupiedFields & fieldMask(field)) != 0;
+  }
+
+  public static boolean hasEmptyFieldsLeft(int occupiedFields) {
+
+    return occupiedFields != ALL_FIELDS;
+  }
+
+  public static boolean hasWon(int playerFields) {
+
+    for (int winLine : WIN_LINES) {
+
+      if ((playerFields & winLine) == winLine) {
+
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * @return the playground value of a field, i.e. MAX_PLAYER, MIN_PLAYER or
+   *         zero for an empty field
+   */
+  public static double fieldValue(int maxPlayerFields, int minPlayerFields, int field) {
+
+    if (isOccupied(maxPlayerFields, field)) {
+
+      return MAX_PLAYER;
+
+    } else if (isOccupied(minPlayerFields, field)) {
+
+      return MIN_PLAYER;
+    }
+
+    return 0;
+  }
+
+  public static int fieldDigitWeight(int field) {
+
+    return FIELD_DIGIT_WEIGHTS[field];
+  }
+
+  /**
+   * @return the base 3 playground encoding in the range [0,
+   *         NUMBER_OF_ENCODINGS), where field n contributes its digit times 3^n
+   */
+  public static int encode(int maxPlayerFields, int minPlayerFields) {
+
+    int encoding = 0;
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      if (isOccupied(maxPlayerFields, field)) {
+
+        encoding += MAX_PLAYER_DIGIT * FIELD_DIGIT_WEIGHTS[field];
+
+      } else if (isOccupied(minPlayerFields, field)) {
+
+        encoding += MIN_PLAYER_DIGIT * FIELD_DIGIT_WEIGHTS[field];
+      }
+    }
+
+    return encoding;
+  }
+
+  public static int decodeMaxPlayerFields(int encoding) {
+
+    return decodePlayerFields(encoding, MAX_PLAYER_DIGIT);
+  }
+
+  public static int decodeMinPlayerFields(int encoding) {
+
+    return decodePlayerFields(encoding, MIN_PLAYER_DIGIT);
+  }
+
+  private static int decodePlayerFields(int encoding, int playerDigit) {
+
+    int playerFields = NO_FIELDS;
+    int remainingDigits = encoding;
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      if (remainingDigits % 3 == playerDigit) {
+
+        playerFields |= fieldMask(field);
+      }
+      remainingDigits /= 3;
+    }
+
+    return playerFields;
+  }
+
+  private static int fields(int... fields) {
+
+    int mask = NO_FIELDS;
+    for (int field : fields) {
+
+      mask |= fieldMask(field);
+    }
+
+    return mask;
+  }
+}
@@ -0,0 +1,434 @@
+package ch.evolutionsoft.example.dl4j.tictactoe;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.primitives.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralDataHelper;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.PlaygroundsResultsSource;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StageTimer;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
+
+/**
+ * Bitboard variant of the {@link TicTacToeMiniMaxGenerator}.
+ *
+ * Positions are represented by two nine bit masks, see
+ * {@link TicTacToeBitboard}, and the MiniMax results are collected in primitive
+ * arrays. Playground and result INDArrays are only created when the generated
+ * data is requested, e.g. for writing the input and label files.
+ *
+ * The generated playground and result pairs are the same and in the same order
+ * as the ones of the {@link TicTacToeMiniMaxGenerator}.
+ *
+ * With the transposition table enabled every unique playground is evaluated and
+ * generated exactly once, in the order {@link #removeDuplicates()} would leave
+ * them. Duplicate removal is unnecessary in that mode.
+ *
+ * With symmetries enabled every playground is replaced by its canonical
+ * representative, see {@link TicTacToeSymmetry}, before it is searched. Only
+ * canonical playgrounds are generated then, about an eighth of all unique ones.
+ *
+ * After a search the generator is a {@link PlaygroundsResultsSource}, so the
+ * generated data can be streamed to training without stacking it.
+ */
+public class TicTacToeBitboardMiniMaxGenerator implements PlaygroundsResultsSource {
+
+  private static final Logger logger = LoggerFactory.getLogger(TicTacToeBitboardMiniMaxGenerator.class);
+
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  public static final String CANONICAL_ARGUMENT = "canonical";
+
+  /**
+   * Increase on every change of the generated results, it invalidates the
+   * results cached by the {@link ch.evolutionsoft.example.dl4j.tictactoe.commonnet.DatasetStages}.
+   */
+  public static final int GENERATOR_VERSION = 1;
+
+  protected final boolean useTranspositionTable;
+
+  protected final boolean useSymmetries;
+
+  protected final TicTacToeTranspositionTable transpositionTable;
+
+  protected int numberOfPlaygrounds = 0;
+
+  protected int[] maxPlayerFields = new int[INITIAL_CAPACITY];
+  protected int[] minPlayerFields = new int[INITIAL_CAPACITY];
+  protected double[] results = new double[INITIAL_CAPACITY * COLUMN_NUMBER];
+
+  /**
+   * MiniMax value of every move, OCCUPIED for occupied fields. The results hold
+   * the best value of the moves up to a field, here every optimal move has the
+   * best value.
+   */
+  protected double[] childValues = new double[INITIAL_CAPACITY * COLUMN_NUMBER];
+
+  /**
+   * One results and one child values row per search depth, reused for all
+   * nodes of that depth.
+   */
+  protected final double[][] currentResultsPerDepth = new double[COLUMN_NUMBER + 1][COLUMN_NUMBER];
+  protected final double[][] currentChildValuesPerDepth = new double[COLUMN_NUMBER + 1][COLUMN_NUMBER];
+
+  public TicTacToeBitboardMiniMaxGenerator() {
+
+    this(false);
+  }
+
+  public TicTacToeBitboardMiniMaxGenerator(boolean useTranspositionTable) {
+
+    this(useTranspositionTable, false);
+  }
+
+  /**
+   * @param useSymmetries generate canonical playgrounds only, implies the
+   *          transposition table
+   */
+  public TicTacToeBitboardMiniMaxGenerator(boolean useTranspositionTable, boolean useSymmetries) {
+
+    this.useTranspositionTable = useTranspositionTable || useSymmetries;
+    this.useSymmetries = useSymmetries;
+    this.transpositionTable = this.useTranspositionTable ? new TicTacToeTranspositionTable() : null;
+  }
+
+  /**
+   * Writes all unique playgrounds and results to inputs.txt and labels.txt, or
+   * only the canonical ones to canonicalInputs.txt and canonicalLabels.txt with
+   * the argument {@value #CANONICAL_ARGUMENT}.
+   */
+  public static void main(String[] arguments) {
+
+    StartupTimer.logStartup(TicTacToeBitboardMiniMaxGenerator.class);
+
+    boolean canonicalOnly = arguments.length > 0 && CANONICAL_ARGUMENT.equals(arguments[0]);
+
+    TicTacToeBitboardMiniMaxGenerator data = new TicTacToeBitboardMiniMaxGenerator(true, canonicalOnly);
+    logger.info("Data Processing Started : {}", new Date());
+
+    StageTimer.time(StageTimer.GENERATION_STAGE, data::searchInitial);
+    logger.info("All unique game states generated, Finished At : {}", new Date());
+
+    StartupTimer.initializeNd4j();
+    Pair<INDArray, INDArray> stackedPlaygroundsResults = data.getStackedPlaygroundsResults();
+    if (canonicalOnly) {
+
+      NeuralDataHelper.writeData(stackedPlaygroundsResults.getFirst(), stackedPlaygroundsResults.getSecond(),
+          NeuralDataHelper.CANONICAL_INPUTS_FILE, NeuralDataHelper.CANONICAL_LABELS_FILE);
+
+    } else {
+
+      NeuralDataHelper.writeData(stackedPlaygroundsResults.getFirst(), stackedPlaygroundsResults.getSecond());
+    }
+    logger.info("File generation completed : at {}", new Date());
+  }
+
+  public void searchInitial() {
+
+    this.numberOfPlaygrounds = 0;
+    if (useTranspositionTable) {
+
+      transpositionTable.clear();
+    }
+
+    this.max(TicTacToeBitboard.NO_FIELDS, TicTacToeBitboard.NO_FIELDS, 0);
+  }
+
+  /**
+   * Keeps the first occurrence of every generated playground.
+   *
+   * @return the number of unique playgrounds
+   */
+  public int removeDuplicates() {
+
+    BitSet presentPlaygrounds = new BitSet(TicTacToeBitboard.NUMBER_OF_ENCODINGS);
+
+    int uniquePlaygrounds = 0;
+    for (int index = 0; index < numberOfPlaygrounds; index++) {
+
+      int encodedPlayground = TicTacToeBitboard.encode(maxPlayerFields[index], minPlayerFields[index]);
+      if (!presentPlaygrounds.get(encodedPlayground)) {
+
+        presentPlaygrounds.set(encodedPlayground);
+
+        maxPlayerFields[uniquePlaygrounds] = maxPlayerFields[index];
+        minPlayerFields[uniquePlaygrounds] = minPlayerFields[index];
+        System.arraycopy(results, index * COLUMN_NUMBER, results, uniquePlaygrounds * COLUMN_NUMBER, COLUMN_NUMBER);
+        System.arraycopy(childValues, index * COLUMN_NUMBER, childValues, uniquePlaygrounds * COLUMN_NUMBER,
+            COLUMN_NUMBER);
+        uniquePlaygrounds++;
+      }
+    }
+
+    this.numberOfPlaygrounds = uniquePlaygrounds;
+
+    return uniquePlaygrounds;
+  }
+
+  public int getNumberOfGeneratedPlaygrounds() {
+
+    return numberOfPlaygrounds;
+  }
+
+  @Override
+  public int getRows() {
+
+    return numberOfPlaygrounds;
+  }
+
+  @Override
+  public int getColumns() {
+
+    return COLUMN_NUMBER;
+  }
+
+  @Override
+  public void readPlayground(int row, double[] target, int offset) {
+
+    fillPlayground(row, target, offset);
+  }
+
+  @Override
+  public void readResult(int row, double[] target, int offset) {
+
+    System.arraycopy(results, row * COLUMN_NUMBER, target, offset, COLUMN_NUMBER);
+  }
+
+  /**
+   * Reads the MiniMax value of every move of the row, the input of
+   * {@link ch.evolutionsoft.example.dl4j.tictactoe.commonnet.TicTacToeNeuralDataConverter#convertChildValuesToPolicyValueTarget(double[], double[], int, int, double[])}.
+   */
+  public void readChildValues(int row, double[] target, int offset) {
+
+    System.arraycopy(childValues, row * COLUMN_NUMBER, target, offset, COLUMN_NUMBER);
+  }
+
+  /**
+   * @return the generated playgrounds and results as list of single row pairs,
+   *         like {@link TicTacToeMiniMaxGenerator#getGeneratedPlaygroundsLabels()}
+   */
+  public List<Pair<INDArray, INDArray>> getGeneratedPlaygroundsLabels() {
+
+    List<Pair<INDArray, INDArray>> allPlaygroundsResults = new ArrayList<>(numberOfPlaygrounds);
+
+    int[] rowShape = new int[] {ROW_NUMBER, COLUMN_NUMBER};
+    double[] playground = new double[COLUMN_NUMBER];
+    double[] result = new double[COLUMN_NUMBER];
+    for (int index = 0; index < numberOfPlaygrounds; index++) {
+
+      fillPlayground(index, playground, 0);
+      System.arraycopy(results, index * COLUMN_NUMBER, result, 0, COLUMN_NUMBER);
+
+      allPlaygroundsResults.add(new Pair<>(Nd4j.create(playground, rowShape), Nd4j.create(result, rowShape)));
+    }
+
+    return allPlaygroundsResults;
+  }
+
+  /**
+   * @return all generated playgrounds and results stacked into two
+   *         [numberOfPlaygrounds, COLUMN_NUMBER] matrices
+   */
+  public Pair<INDArray, INDArray> getStackedPlaygroundsResults() {
+
+    double[] playgrounds = new double[numberOfPlaygrounds * COLUMN_NUMBER];
+    for (int index = 0; index < numberOfPlaygrounds; index++) {
+
+      fillPlayground(index, playgrounds, index * COLUMN_NUMBER);
+    }
+
+    int[] shape = new int[] {numberOfPlaygrounds, COLUMN_NUMBER};
+
+    return new Pair<>(
+        Nd4j.create(playgrounds, shape),
+        Nd4j.create(Arrays.copyOf(results, numberOfPlaygrounds * COLUMN_NUMBER), shape));
+  }
+
+  protected double max(int currentMaxFields, int currentMinFields, int depth) {
+
+    if (useSymmetries) {
+
+      int transformation = TicTacToeSymmetry.canonicalTransformation(currentMaxFields, currentMinFields);
+      currentMaxFields = TicTacToeSymmetry.transformFields(currentMaxFields, transformation);
+      currentMinFields = TicTacToeSymmetry.transformFields(currentMinFields, transformation);
+    }
+
+    int occupiedFields = currentMaxFields | currentMinFields;
+
+    int encodedPlayground = 0;
+    if (useTranspositionTable) {
+
+      encodedPlayground = TicTacToeBitboard.encode(currentMaxFields, currentMinFields);
+      if (transpositionTable.contains(encodedPlayground)) {
+
+        return transpositionTable.getValue(encodedPlayground);
+      }
+    }
+
+    if (TicTacToeBitboard.hasWon(currentMinFields)) {
+
+      return MIN_WIN + depth;
+
+    } else if (!TicTacToeBitboard.hasEmptyFieldsLeft(occupiedFields)) {
+
+      return DRAW_VALUE;
+
+    }
+
+    double[] currentResults = currentResultsPerDepth[depth];
+    double[] currentChildValues = currentChildValuesPerDepth[depth];
+    double currentValue = MIN_WIN;
+    for (int currentMove = 0; currentMove < COLUMN_NUMBER; currentMove++) {
+
+      if (!TicTacToeBitboard.isOccupied(occupiedFields, currentMove)) {
+
+        int newMaxFields = currentMaxFields | TicTacToeBitboard.fieldMask(currentMove);
+
+        double childValue = min(newMaxFields, currentMinFields, depth + 1);
+        currentValue = Math.max(currentValue, childValue);
+
+        currentResults[currentMove] = currentValue;
+        currentChildValues[currentMove] = childValue;
+
+      } else {
+
+        currentResults[currentMove] = OCCUPIED;
+        currentChildValues[currentMove] = OCCUPIED;
+      }
+    }
+
+    addPlaygroundResults(currentMaxFields, currentMinFields, currentResults, currentChildValues);
+
+    if (useTranspositionTable) {
+
+      transpositionTable.putValue(encodedPlayground, currentValue);
+    }
+
+    return currentValue;
+  }
+
+  protected double min(int currentMaxFields, int currentMinFields, int depth) {
+
+    if (useSymmetries) {
+
+      int transformation = TicTacToeSymmetry.canonicalTransformation(currentMaxFields, currentMinFields);
+      currentMaxFields = TicTacToeSymmetry.transformFields(currentMaxFields, transformation);
+      currentMinFields = TicTacToeSymmetry.transformFields(currentMinFields, transformation);
+    }
+
+    int occupiedFields = currentMaxFields | currentMinFields;
+
+    int encodedPlayground = 0;
+    if (useTranspositionTable) {
+
+      encodedPlayground = TicTacToeBitboard.encode(currentMaxFields, currentMinFields);
+      if (transpositionTable.contains(encodedPlayground)) {
+
+        return transpositionTable.getValue(encodedPlayground);
+      }
+    }
+
+    if (TicTacToeBitboard.hasWon(currentMaxFields)) {
+
+      return MAX_WIN - depth;
+
+    } else if (!TicTacToeBitboard.hasEmptyFieldsLeft(occupiedFields)) {
+
+      return DRAW_VALUE;
+
+    }
+
+    double[] currentResults = currentResultsPerDepth[depth];
+    double[] currentChildValues = currentChildValuesPerDepth[depth];
+    double currentValue = MAX_WIN;
+    for (int currentMove = 0; currentMove < COLUMN_NUMBER; currentMove++) {
+
+      if (!TicTacToeBitboard.isOccupied(occupiedFields, currentMove)) {
+
+        int newMinFields = currentMinFields | TicTacToeBitboard.fieldMask(currentMove);
+
+        double childValue = max(currentMaxFields, newMinFields, depth + 1);
+        currentValue = Math.min(currentValue, childValue);
+
+        currentResults[currentMove] = currentValue;
+        currentChildValues[currentMove] = childValue;
+
+      } else {
+
+        currentResults[currentMove] = OCCUPIED;
+        currentChildValues[currentMove] = OCCUPIED;
+      }
+    }
+
+    addPlaygroundResults(currentMaxFields, currentMinFields, currentResults, currentChildValues);
+
+    if (useTranspositionTable) {
+
+      transpositionTable.putValue(encodedPlayground, currentValue);
+    }
+
+    return currentValue;
+  }
+
+  protected void addPlaygroundResults(int currentMaxFields, int currentMinFields, double[] currentResults,
+      double[] currentChildValues) {
+
+    ensureCapacity(numberOfPlaygrounds + 1);
+
+    maxPlayerFields[numberOfPlaygrounds] = currentMaxFields;
+    minPlayerFields[numberOfPlaygrounds] = currentMinFields;
+    System.arraycopy(currentResults, 0, results, numberOfPlaygrounds * COLUMN_NUMBER, COLUMN_NUMBER);
+    System.arraycopy(currentChildValues, 0, childValues, numberOfPlaygrounds * COLUMN_NUMBER, COLUMN_NUMBER);
+
+    numberOfPlaygrounds++;
+  }
+
+  /**
+   * Appends all playgrounds and results generated by another generator.
+   */
+  protected void addPlaygroundsResults(TicTacToeBitboardMiniMaxGenerator otherGenerator) {
+
+    int otherNumberOfPlaygrounds = otherGenerator.numberOfPlaygrounds;
+    ensureCapacity(numberOfPlaygrounds + otherNumberOfPlaygrounds);
+
+    System.arraycopy(otherGenerator.maxPlayerFields, 0, maxPlayerFields, numberOfPlaygrounds, otherNumberOfPlaygrounds);
+    System.arraycopy(otherGenerator.minPlayerFields, 0, minPlayerFields, numberOfPlaygrounds, otherNumberOfPlaygrounds);
+    System.arraycopy(otherGenerator.results, 0, results, numberOfPlaygrounds * COLUMN_NUMBER,
+        otherNumberOfPlaygrounds * COLUMN_NUMBER);
+    System.arraycopy(otherGenerator.childValues, 0, childValues, numberOfPlaygrounds * COLUMN_NUMBER,
+        otherNumberOfPlaygrounds * COLUMN_NUMBER);
+
+    numberOfPlaygrounds += otherNumberOfPlaygrounds;
+  }
+
+  protected void ensureCapacity(int requiredCapacity) {
+
+    if (requiredCapacity > maxPlayerFields.length) {
+
+      int newCapacity = Math.max(2 * maxPlayerFields.length, requiredCapacity);
+      maxPlayerFields = Arrays.copyOf(maxPlayerFields, newCapacity);
+      minPlayerFields = Arrays.copyOf(minPlayerFields, newCapacity);
+      results = Arrays.copyOf(results, newCapacity * COLUMN_NUMBER);
+      childValues = Arrays.copyOf(childValues, newCapacity * COLUMN_NUMBER);
+    }
+  }
+
+  protected void fillPlayground(int index, double[] playgrounds, int offset) {
+
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      playgrounds[offset + field] =
+          TicTacToeBitboard.fieldValue(maxPlayerFields[index], minPlayerFields[index], field);
+    }
+  }
+}
@@ -14,7 +14,6 @@ public final class TicTacToeConstants {
    */
   public static final int ROW_NUMBER = 1;
   public static final int COLUMN_NUMBER = 9;
-  public static final INDArray EMPTY_PLAYGROUND = Nd4j.zeros(ROW_NUMBER, COLUMN_NUMBER);
 
   public static final int FIELD_1 = 0;
   public static final int FIELD_2 = 1;
@@ -38,9 +37,6 @@ public final class TicTacToeConstants {
   public static final double MAX_PLAYER = 1.0;
   public static final double MIN_PLAYER = -1.0;
 
-  public static final INDArray CENTER_FIELD_MOVE = Nd4j.zeros(COLUMN_NUMBER).putScalar(FIELD_5, MAX_PLAYER);
-  public static final INDArray LAST_CORNER_FIELD_MOVE = Nd4j.zeros(COLUMN_NUMBER).putScalar(FIELD_9, MAX_PLAYER);
-
   /**
    * Result labels interpretation. MAX_WIN - 9 > DRAW_VALUE > MIN_WIN + 9 for
    * MiniMax comparison. Any occupied playground field leads to a zero result.
@@ -53,4 +49,45 @@ public final class TicTacToeConstants {
 
   public static final double DOUBLE_COMPARISON_EPSILON = 0.01;
 
+  /**
+   * Shared empty [ROW_NUMBER, COLUMN_NUMBER] playground, must not be modified.
+   */
+  public static INDArray emptyPlayground() {
+
+    return PlaygroundArrays.EMPTY_PLAYGROUND;
+  }
+
+  /**
+   * Shared playground after the MAX_PLAYER center field opening, must not be
+   * modified.
+   */
+  public static INDArray centerFieldMove() {
+
+    return PlaygroundArrays.CENTER_FIELD_MOVE;
+  }
+
+  /**
+   * Shared playground after the MAX_PLAYER last corner field opening, must not
+   * be modified.
+   */
+  public static INDArray lastCornerFieldMove() {
+
+    return PlaygroundArrays.LAST_CORNER_FIELD_MOVE;
+  }
+
+  /**
+   * Created on first access only, the other constants and the game logic using
+   * them don't load the ND4J backend.
+   */
+  private static final class PlaygroundArrays {
+
+    static final INDArray EMPTY_PLAYGROUND = Nd4j.zeros(ROW_NUMBER, COLUMN_NUMBER);
+
+    static final INDArray CENTER_FIELD_MOVE = Nd4j.zeros(COLUMN_NUMBER).putScalar(FIELD_5, MAX_PLAYER);
+    static final INDArray LAST_CORNER_FIELD_MOVE = Nd4j.zeros(COLUMN_NUMBER).putScalar(FIELD_9, MAX_PLAYER);
+
+    private PlaygroundArrays() {
+      // Hide constructor
+    }
+  }
 }
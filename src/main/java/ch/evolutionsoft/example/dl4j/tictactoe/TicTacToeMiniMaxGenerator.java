@@ -3,11 +3,10 @@ package ch.evolutionsoft.example.dl4j.tictactoe;
 import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
 
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
@@ -16,6 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralDataHelper;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
 
 /**
  * Generates TicTacToe playgrounds with result labels defined by several
@@ -24,8 +24,12 @@ import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralDataHelper;
  * The idea is to generate all possible positions by a MiniMax tree traversal.
  * The playground arrays and corresponding values are stored as pairs in a list.
  * 
- * The initial generation should be ready in a few seconds. Duplicate removal is
- * rather slow.
+ * The initial generation should be ready in a few seconds. Duplicates are
+ * removed in one pass by the base 3 playground encoding, see
+ * {@link TicTacToeBitboard#encode(int, int)}.
+ * 
+ * With the transposition table enabled every unique playground is evaluated
+ * once and the generated pairs need no duplicate removal.
  */
 public class TicTacToeMiniMaxGenerator {
 
@@ -33,10 +37,28 @@ public class TicTacToeMiniMaxGenerator {
 
   protected boolean keepDuplicates = false;
 
+  protected final boolean useTranspositionTable;
+
+  protected final TicTacToeTranspositionTable transpositionTable;
+
   protected List<Pair<INDArray, INDArray>> allPlaygroundsResults = new LinkedList<>();
 
+  public TicTacToeMiniMaxGenerator() {
+
+    this(false);
+  }
+
+  public TicTacToeMiniMaxGenerator(boolean useTranspositionTable) {
+
+    this.useTranspositionTable = useTranspositionTable;
+    this.transpositionTable = useTranspositionTable ? new TicTacToeTranspositionTable() : null;
+  }
+
   public static void main(String[] arguments) {
 
+    StartupTimer.logStartup(TicTacToeMiniMaxGenerator.class);
+    StartupTimer.initializeNd4j();
+
     TicTacToeMiniMaxGenerator data = new TicTacToeMiniMaxGenerator();
     logger.info("Data Processing Started : {}", new Date());
 
@@ -52,21 +74,26 @@ public class TicTacToeMiniMaxGenerator {
 
   public void searchInitial() {
 
-    this.max(EMPTY_PLAYGROUND, 0);
+    if (useTranspositionTable) {
+
+      transpositionTable.clear();
+    }
+
+    this.max(emptyPlayground(), 0);
   }
 
   public List<Pair<INDArray, INDArray>> removeDuplicates() {
 
-    Set<INDArray> presentPlaygrounds = new HashSet<>();
+    BitSet presentPlaygrounds = new BitSet(TicTacToeBitboard.NUMBER_OF_ENCODINGS);
 
     List<Pair<INDArray, INDArray>> uniquePlaygroundsResults = new ArrayList<>();
 
     for (Pair<INDArray, INDArray> currentPair : allPlaygroundsResults) {
 
-      INDArray currentPlayground = currentPair.getFirst();
-      if (!alreadyPresent(presentPlaygrounds, currentPlayground)) {
+      int encodedPlayground = encodePlayground(currentPair.getFirst());
+      if (!presentPlaygrounds.get(encodedPlayground)) {
 
-        presentPlaygrounds.add(currentPlayground);
+        presentPlaygrounds.set(encodedPlayground);
         uniquePlaygroundsResults.add(currentPair);
       }
     }
@@ -83,6 +110,16 @@ public class TicTacToeMiniMaxGenerator {
 
   protected double max(INDArray currentPlayground, int depth) {
 
+    int encodedPlayground = 0;
+    if (useTranspositionTable) {
+
+      encodedPlayground = encodePlayground(currentPlayground);
+      if (transpositionTable.contains(encodedPlayground)) {
+
+        return transpositionTable.getValue(encodedPlayground);
+      }
+    }
+
     if (hasWon(currentPlayground, MIN_PLAYER)) {
 
       return MIN_WIN + depth;
@@ -117,12 +154,27 @@ public class TicTacToeMiniMaxGenerator {
 
     allPlaygroundsResults.add(new Pair<INDArray, INDArray>(currentPlayground, currentResults));
 
+    if (useTranspositionTable) {
+
+      transpositionTable.putValue(encodedPlayground, currentValue);
+    }
+
     return currentValue;
 
   }
 
   protected double min(INDArray currentPlayground, int depth) {
 
+    int encodedPlayground = 0;
+    if (useTranspositionTable) {
+
+      encodedPlayground = encodePlayground(currentPlayground);
+      if (transpositionTable.contains(encodedPlayground)) {
+
+        return transpositionTable.getValue(encodedPlayground);
+      }
+    }
+
     if (hasWon(currentPlayground, MAX_PLAYER)) {
 
       return MAX_WIN - depth;
@@ -156,19 +208,36 @@ public class TicTacToeMiniMaxGenerator {
 
     allPlaygroundsResults.add(new Pair<INDArray, INDArray>(currentPlayground, currentResults));
 
+    if (useTranspositionTable) {
+
+      transpositionTable.putValue(encodedPlayground, currentValue);
+    }
+
     return currentValue;
   }
 
-  protected boolean alreadyPresent(Set<INDArray> uniquePlaygrounds, INDArray playground) {
+  /**
+   * @return the base 3 encoding of the playground, see
+   *         {@link TicTacToeBitboard#encode(int, int)}
+   */
+  protected int encodePlayground(INDArray playground) {
 
-    for (INDArray currentPlayground : uniquePlaygrounds) {
+    int maxPlayerFields = TicTacToeBitboard.NO_FIELDS;
+    int minPlayerFields = TicTacToeBitboard.NO_FIELDS;
+    for (int index = 0; index < COLUMN_NUMBER; index++) {
 
-      if (currentPlayground.equalsWithEps(playground, DOUBLE_COMPARISON_EPSILON)) {
+      double fieldValue = playground.getDouble(index);
+      if (fieldValue > DOUBLE_COMPARISON_EPSILON) {
 
-        return true;
+        maxPlayerFields |= TicTacToeBitboard.fieldMask(index);
+
+      } else if (fieldValue < -DOUBLE_COMPARISON_EPSILON) {
+
+        minPlayerFields |= TicTacToeBitboard.fieldMask(index);
       }
     }
-    return false;
+
+    return TicTacToeBitboard.encode(maxPlayerFields, minPlayerFields);
   }
 
   protected INDArray createVector(double scalarValue) {
@@ -0,0 +1,188 @@
+package ch.evolutionsoft.example.dl4j.tictactoe;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.primitives.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralDataHelper;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
+
+/**
+ * Parallel variant of the {@link TicTacToeBitboardMiniMaxGenerator}.
+ *
+ * The tree is split at the split depth: every subtree below it is searched by
+ * its own {@link ForkJoinPool} task into the buffers of a separate generator.
+ * The levels above the split depth are then searched sequentially, appending
+ * the subtree buffers in the order the sequential search would have generated
+ * them. The generated playgrounds and results are identical to the sequential
+ * mode.
+ *
+ * Each subtree task uses its own transposition table, so with the table
+ * enabled playgrounds reached in several subtrees are removed afterwards by
+ * {@link #removeDuplicates()}, keeping the sequential order.
+ */
+public class TicTacToeParallelMiniMaxGenerator extends TicTacToeBitboardMiniMaxGenerator {
+
+  private static final Logger logger = LoggerFactory.getLogger(TicTacToeParallelMiniMaxGenerator.class);
+
+  public static final int DEFAULT_SPLIT_DEPTH = 2;
+
+  protected final int splitDepth;
+
+  protected final ForkJoinPool forkJoinPool;
+
+  protected final Map<Integer, SubtreeSearch> subtreeSearches = new LinkedHashMap<>();
+
+  protected boolean collectSubtrees;
+
+  public TicTacToeParallelMiniMaxGenerator() {
+
+    this(false, false, DEFAULT_SPLIT_DEPTH, ForkJoinPool.commonPool());
+  }
+
+  public TicTacToeParallelMiniMaxGenerator(boolean useTranspositionTable, boolean useSymmetries,
+      int splitDepth, ForkJoinPool forkJoinPool) {
+
+    super(useTranspositionTable, useSymmetries);
+
+    if (splitDepth < 1 || splitDepth > COLUMN_NUMBER) {
+
+      throw new IllegalArgumentException("Split depth must be between 1 and " + COLUMN_NUMBER);
+    }
+
+    this.splitDepth = splitDepth;
+    this.forkJoinPool = forkJoinPool;
+  }
+
+  public static void main(String[] arguments) {
+
+    StartupTimer.logStartup(TicTacToeParallelMiniMaxGenerator.class);
+
+    TicTacToeParallelMiniMaxGenerator data = new TicTacToeParallelMiniMaxGenerator(
+        true, false, DEFAULT_SPLIT_DEPTH, ForkJoinPool.commonPool());
+    logger.info("Data Processing Started : {}", new Date());
+
+    data.searchInitial();
+    logger.info("All unique game states generated, Finished At : {}", new Date());
+
+    StartupTimer.initializeNd4j();
+    Pair<INDArray, INDArray> stackedPlaygroundsResults = data.getStackedPlaygroundsResults();
+    NeuralDataHelper.writeData(stackedPlaygroundsResults.getFirst(), stackedPlaygroundsResults.getSecond());
+    logger.info("File generation completed : at {}", new Date());
+  }
+
+  @Override
+  public void searchInitial() {
+
+    subtreeSearches.clear();
+
+    collectSubtrees = true;
+    super.searchInitial();
+    collectSubtrees = false;
+
+    ForkJoinTask<?> searchAllSubtrees = new RecursiveAction() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void compute() {
+
+        invokeAll(subtreeSearches.values());
+      }
+    };
+    forkJoinPool.invoke(searchAllSubtrees);
+
+    super.searchInitial();
+
+    if (useTranspositionTable) {
+
+      removeDuplicates();
+    }
+  }
+
+  @Override
+  protected double max(int currentMaxFields, int currentMinFields, int depth) {
+
+    if (depth == splitDepth) {
+
+      return searchedSubtree(currentMaxFields, currentMinFields, true);
+    }
+
+    return super.max(currentMaxFields, currentMinFields, depth);
+  }
+
+  @Override
+  protected double min(int currentMaxFields, int currentMinFields, int depth) {
+
+    if (depth == splitDepth) {
+
+      return searchedSubtree(currentMaxFields, currentMinFields, false);
+    }
+
+    return super.min(currentMaxFields, currentMinFields, depth);
+  }
+
+  /**
+   * While collecting only registers the subtree for parallel search, the
+   * returned value is meaningless then. Afterwards appends the generated
+   * playgrounds and results of the subtree and returns its value.
+   */
+  protected double searchedSubtree(int currentMaxFields, int currentMinFields, boolean maxPlayerMove) {
+
+    int packedPlayground = currentMaxFields | currentMinFields << COLUMN_NUMBER;
+
+    if (collectSubtrees) {
+
+      if (!subtreeSearches.containsKey(packedPlayground)) {
+
+        subtreeSearches.put(packedPlayground, new SubtreeSearch(currentMaxFields, currentMinFields, maxPlayerMove));
+      }
+
+      return DRAW_VALUE;
+    }
+
+    SubtreeSearch subtreeSearch = subtreeSearches.get(packedPlayground);
+    addPlaygroundsResults(subtreeSearch.subtreeGenerator);
+
+    return subtreeSearch.value;
+  }
+
+  protected class SubtreeSearch extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int maxFields;
+    private final int minFields;
+    private final boolean maxPlayerMove;
+
+    private final TicTacToeBitboardMiniMaxGenerator subtreeGenerator =
+        new TicTacToeBitboardMiniMaxGenerator(useTranspositionTable, useSymmetries);
+
+    private double value;
+
+    SubtreeSearch(int maxFields, int minFields, boolean maxPlayerMove) {
+
+      this.maxFields = maxFields;
+      this.minFields = minFields;
+      this.maxPlayerMove = maxPlayerMove;
+    }
+
+    @Override
+    protected void compute() {
+
+      value = maxPlayerMove ?
+          subtreeGenerator.max(maxFields, minFields, splitDepth) :
+          subtreeGenerator.min(maxFields, minFields, splitDepth);
+    }
+  }
+}
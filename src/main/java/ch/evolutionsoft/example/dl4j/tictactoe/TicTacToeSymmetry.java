@@ -0,0 +1,138 @@
+package ch.evolutionsoft.example.dl4j.tictactoe;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+/**
+ * The eight rotations and reflections of the TicTacToe playground (dihedral
+ * group D4).
+ *
+ * A transformation moves the content of field n to field
+ * {@link #transformField(int, int)}. The canonical representative of a
+ * playground is the transformed playground with the smallest base 3 encoding,
+ * see {@link TicTacToeBitboard#encode(int, int)}.
+ */
+public final class TicTacToeSymmetry {
+
+  public static final int IDENTITY = 0;
+  public static final int NUMBER_OF_TRANSFORMATIONS = 8;
+
+  private static final int LAST_INDEX = IMAGE_SIZE - 1;
+
+  private static final int[][] TARGET_FIELDS = new int[NUMBER_OF_TRANSFORMATIONS][COLUMN_NUMBER];
+  private static final int[] INVERSE_TRANSFORMATIONS = new int[NUMBER_OF_TRANSFORMATIONS];
+
+  static {
+
+    for (int row = 0; row < IMAGE_SIZE; row++) {
+
+      for (int column = 0; column < IMAGE_SIZE; column++) {
+
+        int field = IMAGE_SIZE * row + column;
+
+        TARGET_FIELDS[0][field] = field(row, column);
+        TARGET_FIELDS[1][field] = field(column, LAST_INDEX - row);
+        TARGET_FIELDS[2][field] = field(LAST_INDEX - row, LAST_INDEX - column);
+        TARGET_FIELDS[3][field] = field(LAST_INDEX - column, row);
+        TARGET_FIELDS[4][field] = field(row, LAST_INDEX - column);
+        TARGET_FIELDS[5][field] = field(LAST_INDEX - row, column);
+        TARGET_FIELDS[6][field] = field(column, row);
+        TARGET_FIELDS[7][field] = field(LAST_INDEX - column, LAST_INDEX - row);
+      }
+    }
+
+    for (int transformation = 0; transformation < NUMBER_OF_TRANSFORMATIONS; transformation++) {
+
+      for (int candidate = 0; candidate < NUMBER_OF_TRANSFORMATIONS; candidate++) {
+
+        if (TARGET_FIELDS[candidate][TARGET_FIELDS[transformation][FIELD_2]] == FIELD_2 &&
+            TARGET_FIELDS[candidate][TARGET_FIELDS[transformation][FIELD_4]] == FIELD_4) {
+
+          INVERSE_TRANSFORMATIONS[transformation] = candidate;
+        }
+      }
+    }
+  }
+
+  private TicTacToeSymmetry() {
+    // Hide constructor
+  }
+
+  public static int transformField(int field, int transformation) {
+
+    return TARGET_FIELDS[transformation][field];
+  }
+
+  public static int inverse(int transformation) {
+
+    return INVERSE_TRANSFORMATIONS[transformation];
+  }
+
+  public static int transformFields(int playerFields, int transformation) {
+
+    int[] targetFields = TARGET_FIELDS[transformation];
+
+    int transformedFields = TicTacToeBitboard.NO_FIELDS;
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      if (TicTacToeBitboard.isOccupied(playerFields, field)) {
+
+        transformedFields |= TicTacToeBitboard.fieldMask(targetFields[field]);
+      }
+    }
+
+    return transformedFields;
+  }
+
+  /**
+   * @return the transformation mapping the playground to its canonical
+   *         representative, the lowest one if several do
+   */
+  public static int canonicalTransformation(int maxPlayerFields, int minPlayerFields) {
+
+    int canonicalTransformation = IDENTITY;
+    int canonicalEncoding = TicTacToeBitboard.encode(maxPlayerFields, minPlayerFields);
+
+    for (int transformation = IDENTITY + 1; transformation < NUMBER_OF_TRANSFORMATIONS; transformation++) {
+
+      int encoding = TicTacToeBitboard.encode(
+          transformFields(maxPlayerFields, transformation),
+          transformFields(minPlayerFields, transformation));
+
+      if (encoding < canonicalEncoding) {
+
+        canonicalEncoding = encoding;
+        canonicalTransformation = transformation;
+      }
+    }
+
+    return canonicalTransformation;
+  }
+
+  public static int canonicalEncoding(int maxPlayerFields, int minPlayerFields) {
+
+    int transformation = canonicalTransformation(maxPlayerFields, minPlayerFields);
+
+    return TicTacToeBitboard.encode(
+        transformFields(maxPlayerFields, transformation),
+        transformFields(minPlayerFields, transformation));
+  }
+
+  /**
+   * Applies the transformation to a playground or label row.
+   */
+  public static void transformRow(double[] source, int sourceOffset, double[] target, int targetOffset,
+      int transformation) {
+
+    int[] targetFields = TARGET_FIELDS[transformation];
+
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      target[targetOffset + targetFields[field]] = source[sourceOffset + field];
+    }
+  }
+
+  private static int field(int row, int column) {
+
+    return IMAGE_SIZE * row + column;
+  }
+}
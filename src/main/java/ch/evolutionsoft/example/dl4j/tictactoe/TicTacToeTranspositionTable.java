@@ -0,0 +1,55 @@
+package ch.evolutionsoft.example.dl4j.tictactoe;
+
+import java.util.Arrays;
+
+/**
+ * MiniMax values of already evaluated playgrounds indexed by their base 3
+ * encoding, see {@link TicTacToeBitboard#encode(int, int)}.
+ *
+ * The stored values are the depth adjusted MiniMax scores in the range
+ * [MIN_WIN, MAX_WIN], which fit into one byte per playground.
+ */
+public class TicTacToeTranspositionTable {
+
+  private static final byte UNKNOWN_VALUE = Byte.MIN_VALUE;
+
+  private final byte[] values = new byte[TicTacToeBitboard.NUMBER_OF_ENCODINGS];
+
+  private int numberOfValues;
+
+  public TicTacToeTranspositionTable() {
+
+    clear();
+  }
+
+  public final void clear() {
+
+    Arrays.fill(values, UNKNOWN_VALUE);
+    numberOfValues = 0;
+  }
+
+  public boolean contains(int encodedPlayground) {
+
+    return values[encodedPlayground] != UNKNOWN_VALUE;
+  }
+
+  public double getValue(int encodedPlayground) {
+
+    return values[encodedPlayground];
+  }
+
+  public void putValue(int encodedPlayground, double value) {
+
+    if (!contains(encodedPlayground)) {
+
+      numberOfValues++;
+    }
+
+    values[encodedPlayground] = (byte) value;
+  }
+
+  public int size() {
+
+    return numberOfValues;
+  }
+}
@@ -0,0 +1,412 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.commonnet;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.primitives.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
+
+/**
+ * Compact binary format for stacked playgrounds and MiniMax results, replacing
+ * the text files read by {@link NeuralDataHelper}.
+ *
+ * The file starts with a header of six ints: magic number, format version,
+ * rows, columns, bits per playground field and bytes per result field,
+ * followed by a long hash of the data the file was converted from, see
+ * {@link #getSourceHash()}. Playground rows follow with two bits per field (0 empty, 1 max player, 2 min
+ * player), each row padded to whole bytes, then the result rows with one signed
+ * byte per field.
+ *
+ * Files are read through a memory mapped FileChannel and decoded directly into
+ * off-heap buffers wrapped as INDArrays. Files whose length does not match
+ * their header, e.g. truncated ones, are rejected when opened.
+ */
+public class BinaryNeuralDataFile implements PlaygroundsResultsSource {
+
+  public static final int MAGIC_NUMBER = 0x54545444;
+  public static final int VERSION = 2;
+  public static final int BITS_PER_PLAYGROUND_FIELD = 2;
+  public static final int BYTES_PER_RESULT_FIELD = 1;
+  public static final int HEADER_BYTES = 6 * Integer.BYTES + Long.BYTES;
+
+  public static final long NO_SOURCE_HASH = 0;
+
+  public static final String DEFAULT_FILE_NAME = "playgroundsResults.bin";
+
+  private static final int FIELDS_PER_BYTE = Byte.SIZE / BITS_PER_PLAYGROUND_FIELD;
+  private static final int FIELD_CODE_MASK = (1 << BITS_PER_PLAYGROUND_FIELD) - 1;
+
+  private static final int EMPTY_CODE = 0;
+  private static final int MAX_PLAYER_CODE = 1;
+  private static final int MIN_PLAYER_CODE = 2;
+
+  private static final Logger logger = LoggerFactory.getLogger(BinaryNeuralDataFile.class);
+
+  private final ByteBuffer buffer;
+  private final int rows;
+  private final int columns;
+  private final int bytesPerPlaygroundRow;
+  private final long resultsOffset;
+  private final long sourceHash;
+  private final boolean resultsAreLabels;
+
+  protected BinaryNeuralDataFile(ByteBuffer buffer) {
+
+    this(buffer, false);
+  }
+
+  protected BinaryNeuralDataFile(ByteBuffer buffer, boolean resultsAreLabels) {
+
+    this.buffer = buffer;
+    this.resultsAreLabels = resultsAreLabels;
+
+    if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC_NUMBER) {
+
+      throw new IllegalArgumentException("No binary playgrounds results data");
+    }
+
+    int version = buffer.getInt(Integer.BYTES);
+    int playgroundFieldBits = buffer.getInt(4 * Integer.BYTES);
+    int resultFieldBytes = buffer.getInt(5 * Integer.BYTES);
+
+    if (version != VERSION || playgroundFieldBits != BITS_PER_PLAYGROUND_FIELD ||
+        resultFieldBytes != BYTES_PER_RESULT_FIELD) {
+
+      throw new IllegalArgumentException("Unsupported binary data version " + version);
+    }
+
+    this.rows = buffer.getInt(2 * Integer.BYTES);
+    this.columns = buffer.getInt(3 * Integer.BYTES);
+    this.sourceHash = buffer.getLong(6 * Integer.BYTES);
+    this.bytesPerPlaygroundRow = bytesPerPlaygroundRow(columns);
+    this.resultsOffset = HEADER_BYTES + (long) rows * bytesPerPlaygroundRow;
+
+    if (rows < 0 || columns < 0 || buffer.limit() != fileLength(rows, columns)) {
+
+      throw new IllegalArgumentException("Binary data length " + buffer.limit() + " differs from " +
+          fileLength(rows, columns) + " bytes of " + rows + " rows and " + columns + " columns");
+    }
+  }
+
+  /**
+   * Converts inputs.txt and labels.txt from the classpath to the binary file
+   * given as argument or {@value #DEFAULT_FILE_NAME}.
+   */
+  public static void main(String[] arguments) throws IOException {
+
+    StartupTimer.logStartup(BinaryNeuralDataFile.class);
+    StartupTimer.initializeNd4j();
+
+    Path binaryFile = Paths.get(arguments.length > 0 ? arguments[0] : DEFAULT_FILE_NAME);
+
+    write(NeuralDataHelper.readInputs(), NeuralDataHelper.readLabels(), binaryFile);
+    logger.info("Converted text data to {}", binaryFile.toAbsolutePath());
+  }
+
+  public static BinaryNeuralDataFile open(Path binaryFile) throws IOException {
+
+    try (FileChannel fileChannel = FileChannel.open(binaryFile, StandardOpenOption.READ)) {
+
+      MappedByteBuffer mappedBuffer = fileChannel.map(MapMode.READ_ONLY, 0, fileChannel.size());
+      return new BinaryNeuralDataFile(mappedBuffer);
+    }
+  }
+
+  /**
+   * Opens a file whose results are net labels already, e.g. written from
+   * converted labels by the {@link DatasetStages}.
+   */
+  public static BinaryNeuralDataFile openLabels(Path binaryFile) throws IOException {
+
+    try (FileChannel fileChannel = FileChannel.open(binaryFile, StandardOpenOption.READ)) {
+
+      MappedByteBuffer mappedBuffer = fileChannel.map(MapMode.READ_ONLY, 0, fileChannel.size());
+      return new BinaryNeuralDataFile(mappedBuffer, true);
+    }
+  }
+
+  public static void write(INDArray playgrounds, INDArray results, Path binaryFile) throws IOException {
+
+    write(playgrounds, results, binaryFile, NO_SOURCE_HASH);
+  }
+
+  /**
+   * @param sourceHash hash of the data the playgrounds and results were
+   *          converted from, e.g. {@link NeuralDataHelper#resourcesHash()}
+   */
+  public static void write(INDArray playgrounds, INDArray results, Path binaryFile, long sourceHash)
+      throws IOException {
+
+    int rows = playgrounds.rows();
+    int columns = playgrounds.columns();
+    int bytesPerPlaygroundRow = bytesPerPlaygroundRow(columns);
+
+    ByteBuffer buffer = createBuffer(rows, columns, sourceHash);
+
+    for (int row = 0; row < rows; row++) {
+
+      byte[] packedRow = new byte[bytesPerPlaygroundRow];
+      for (int column = 0; column < columns; column++) {
+
+        int code = encodeField(playgrounds.getDouble(row, column));
+        packedRow[column / FIELDS_PER_BYTE] |= code << (column % FIELDS_PER_BYTE * BITS_PER_PLAYGROUND_FIELD);
+      }
+      buffer.put(packedRow);
+    }
+
+    for (int row = 0; row < rows; row++) {
+
+      for (int column = 0; column < columns; column++) {
+
+        buffer.put(encodeResult(results.getDouble(row, column)));
+      }
+    }
+
+    writeBuffer(buffer, binaryFile);
+  }
+
+  /**
+   * Writes the rows of the source without stacking them into INDArrays.
+   */
+  public static void write(PlaygroundsResultsSource source, Path binaryFile) throws IOException {
+
+    int rows = source.getRows();
+    int columns = source.getColumns();
+    int bytesPerPlaygroundRow = bytesPerPlaygroundRow(columns);
+
+    ByteBuffer buffer = createBuffer(rows, columns, NO_SOURCE_HASH);
+    double[] row = new double[columns];
+
+    for (int index = 0; index < rows; index++) {
+
+      source.readPlayground(index, row, 0);
+
+      byte[] packedRow = new byte[bytesPerPlaygroundRow];
+      for (int column = 0; column < columns; column++) {
+
+        int code = encodeField(row[column]);
+        packedRow[column / FIELDS_PER_BYTE] |= code << (column % FIELDS_PER_BYTE * BITS_PER_PLAYGROUND_FIELD);
+      }
+      buffer.put(packedRow);
+    }
+
+    for (int index = 0; index < rows; index++) {
+
+      source.readResult(index, row, 0);
+      for (int column = 0; column < columns; column++) {
+
+        buffer.put(encodeResult(row[column]));
+      }
+    }
+
+    writeBuffer(buffer, binaryFile);
+  }
+
+  @Override
+  public int getRows() {
+
+    return rows;
+  }
+
+  @Override
+  public int getColumns() {
+
+    return columns;
+  }
+
+  /**
+   * @return hash of the data the file was converted from or
+   *         {@link #NO_SOURCE_HASH}, to detect stale files
+   */
+  public long getSourceHash() {
+
+    return sourceHash;
+  }
+
+  @Override
+  public void readPlayground(int row, double[] target, int offset) {
+
+    int rowStart = playgroundRowStart(row);
+    for (int column = 0; column < columns; column++) {
+
+      target[offset + column] = playgroundValue(rowStart, column);
+    }
+  }
+
+  @Override
+  public void readResult(int row, double[] target, int offset) {
+
+    int rowStart = resultRowStart(row);
+    for (int column = 0; column < columns; column++) {
+
+      target[offset + column] = buffer.get(rowStart + column);
+    }
+  }
+
+  /**
+   * @return all playgrounds and results as two [rows, columns] matrices
+   */
+  public Pair<INDArray, INDArray> readStacked() {
+
+    DataBuffer.Type dataType = Nd4j.dataType();
+    int elementBytes = dataType == DataBuffer.Type.DOUBLE ? Double.BYTES : Float.BYTES;
+    int length = rows * columns;
+    int bufferBytes = Math.toIntExact((long) length * elementBytes);
+
+    ByteBuffer playgroundsBuffer = ByteBuffer.allocateDirect(bufferBytes).order(ByteOrder.nativeOrder());
+    ByteBuffer resultsBuffer = ByteBuffer.allocateDirect(bufferBytes).order(ByteOrder.nativeOrder());
+
+    for (int row = 0; row < rows; row++) {
+
+      int playgroundRowStart = playgroundRowStart(row);
+      int resultRowStart = resultRowStart(row);
+
+      for (int column = 0; column < columns; column++) {
+
+        putElement(playgroundsBuffer, dataType, playgroundValue(playgroundRowStart, column));
+        putElement(resultsBuffer, dataType, buffer.get(resultRowStart + column));
+      }
+    }
+
+    int[] shape = new int[] {rows, columns};
+    playgroundsBuffer.rewind();
+    resultsBuffer.rewind();
+
+    return new Pair<>(
+        Nd4j.create(Nd4j.createBuffer(playgroundsBuffer, dataType, length), shape),
+        Nd4j.create(Nd4j.createBuffer(resultsBuffer, dataType, length), shape));
+  }
+
+  @Override
+  public boolean resultsAreLabels() {
+
+    return resultsAreLabels;
+  }
+
+  protected static ByteBuffer createBuffer(int rows, int columns, long sourceHash) {
+
+    long fileLength = fileLength(rows, columns);
+    if (fileLength > Integer.MAX_VALUE) {
+
+      throw new IllegalArgumentException(rows + " rows of " + columns + " columns exceed one buffer");
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate((int) fileLength);
+
+    return buffer.putInt(MAGIC_NUMBER)
+        .putInt(VERSION)
+        .putInt(rows)
+        .putInt(columns)
+        .putInt(BITS_PER_PLAYGROUND_FIELD)
+        .putInt(BYTES_PER_RESULT_FIELD)
+        .putLong(sourceHash);
+  }
+
+  protected static long fileLength(int rows, int columns) {
+
+    return HEADER_BYTES + (long) rows * (bytesPerPlaygroundRow(columns) + columns);
+  }
+
+  /**
+   * Row offsets are computed as long, the length check of the constructor
+   * keeps them within the int index range of the buffer.
+   */
+  protected int playgroundRowStart(int row) {
+
+    return (int) (HEADER_BYTES + (long) row * bytesPerPlaygroundRow);
+  }
+
+  protected int resultRowStart(int row) {
+
+    return (int) (resultsOffset + (long) row * columns);
+  }
+
+  protected static void writeBuffer(ByteBuffer buffer, Path binaryFile) throws IOException {
+
+    buffer.flip();
+    try (FileChannel fileChannel = FileChannel.open(binaryFile,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+      while (buffer.hasRemaining()) {
+
+        fileChannel.write(buffer);
+      }
+    }
+  }
+
+  protected double playgroundValue(int rowStart, int column) {
+
+    int packedFields = buffer.get(rowStart + column / FIELDS_PER_BYTE);
+    int code = packedFields >> (column % FIELDS_PER_BYTE * BITS_PER_PLAYGROUND_FIELD) & FIELD_CODE_MASK;
+
+    if (code == MAX_PLAYER_CODE) {
+
+      return MAX_PLAYER;
+
+    } else if (code == MIN_PLAYER_CODE) {
+
+      return MIN_PLAYER;
+    }
+
+    return TicTacToeNeuralDataConverter.EMPTY_FIELD_VALUE;
+  }
+
+  protected static int bytesPerPlaygroundRow(int columns) {
+
+    return (columns + FIELDS_PER_BYTE - 1) / FIELDS_PER_BYTE;
+  }
+
+  protected static int encodeField(double fieldValue) {
+
+    if (TicTacToeNeuralDataConverter.equals(fieldValue, MAX_PLAYER, DOUBLE_COMPARISON_EPSILON)) {
+
+      return MAX_PLAYER_CODE;
+
+    } else if (TicTacToeNeuralDataConverter.equals(fieldValue, MIN_PLAYER, DOUBLE_COMPARISON_EPSILON)) {
+
+      return MIN_PLAYER_CODE;
+    }
+
+    return EMPTY_CODE;
+  }
+
+  public static byte encodeResult(double resultValue) {
+
+    long roundedValue = Math.round(resultValue);
+
+    if (!TicTacToeNeuralDataConverter.equals(resultValue, roundedValue, DOUBLE_COMPARISON_EPSILON) ||
+        roundedValue < Byte.MIN_VALUE || roundedValue > Byte.MAX_VALUE) {
+
+      throw new IllegalArgumentException("Result value " + resultValue + " does not fit into one byte");
+    }
+
+    return (byte) roundedValue;
+  }
+
+  private static void putElement(ByteBuffer target, DataBuffer.Type dataType, double value) {
+
+    if (dataType == DataBuffer.Type.DOUBLE) {
+
+      target.putDouble(value);
+
+    } else {
+
+      target.putFloat((float) value);
+    }
+  }
+}
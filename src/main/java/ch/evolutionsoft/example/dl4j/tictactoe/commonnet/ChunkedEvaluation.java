@@ -0,0 +1,68 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.commonnet;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.util.function.UnaryOperator;
+
+import org.deeplearning4j.eval.Evaluation;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
+import org.nd4j.linalg.api.memory.enums.AllocationPolicy;
+import org.nd4j.linalg.api.memory.enums.LearningPolicy;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+
+/**
+ * Evaluates a net on all playgrounds of a source in fixed size batches. The
+ * outputs of every batch are allocated in a workspace that is reused for the
+ * next batch, so memory stays flat independent of the number of playgrounds.
+ */
+public final class ChunkedEvaluation {
+
+  public static final int DEFAULT_EVALUATION_BATCH_SIZE = 512;
+
+  public static final String WORKSPACE_ID = "EvaluationWorkspace";
+
+  private static final WorkspaceConfiguration WORKSPACE_CONFIGURATION = WorkspaceConfiguration.builder()
+      .policyAllocation(AllocationPolicy.OVERALLOCATE)
+      .policyLearning(LearningPolicy.FIRST_LOOP)
+      .build();
+
+  private ChunkedEvaluation() {
+    // Hide constructor
+  }
+
+  public static Evaluation evaluate(PlaygroundsResultsSource playgroundsResults, boolean convolutionalFeatures,
+      UnaryOperator<INDArray> netOutput) {
+
+    return evaluate(playgroundsResults, convolutionalFeatures, netOutput, DEFAULT_EVALUATION_BATCH_SIZE);
+  }
+
+  /**
+   * @param netOutput the net's output of the given features, e.g.
+   *          MultiLayerNetwork::output or ComputationGraph::outputSingle
+   */
+  public static Evaluation evaluate(PlaygroundsResultsSource playgroundsResults, boolean convolutionalFeatures,
+      UnaryOperator<INDArray> netOutput, int batchSize) {
+
+    Evaluation evaluation = new Evaluation(COLUMN_NUMBER);
+
+    try (StreamingDataSetIterator dataSetIterator =
+        new StreamingDataSetIterator(playgroundsResults, batchSize, convolutionalFeatures)) {
+
+      while (dataSetIterator.hasNext()) {
+
+        DataSet dataSet = dataSetIterator.next();
+
+        try (MemoryWorkspace workspace =
+            Nd4j.getWorkspaceManager().getAndActivateWorkspace(WORKSPACE_CONFIGURATION, WORKSPACE_ID)) {
+
+          evaluation.eval(dataSet.getLabels(), netOutput.apply(dataSet.getFeatures()));
+        }
+      }
+    }
+
+    return evaluation;
+  }
+}
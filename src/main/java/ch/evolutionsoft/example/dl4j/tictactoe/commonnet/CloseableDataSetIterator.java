@@ -0,0 +1,13 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.commonnet;
+
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+/**
+ * Dataset iterator that may hold threads or buffers, to be used in
+ * try-with-resources blocks.
+ */
+public interface CloseableDataSetIterator extends DataSetIterator, AutoCloseable {
+
+  @Override
+  void close();
+}
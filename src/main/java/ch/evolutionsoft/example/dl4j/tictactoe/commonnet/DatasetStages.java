@@ -0,0 +1,256 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.commonnet;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.IncrementalMiniMaxGenerator;
+import ch.evolutionsoft.example.dl4j.tictactoe.PositionCache;
+import ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeBitboardMiniMaxGenerator;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StageTimer;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
+
+/**
+ * Rebuilds the training data in two stages, each only when its inputs
+ * changed. All stage outputs are kept in one directory.
+ *
+ * The generation stage keeps the raw MiniMax results and child values in a
+ * {@link PositionCache} and searches only the playgrounds without current
+ * entry. A changed generator fingerprint invalidates the whole cache, the
+ * fingerprint does not tell which playgrounds changed. Changed results are
+ * exported to a {@link BinaryNeuralDataFile} in encoding order.
+ *
+ * The conversion stage writes the net labels of the cached results to the
+ * binary file read by training. It runs again after changed results or a
+ * changed label conversion fingerprint, without searching any playground.
+ *
+ * Stage outputs that are missing or not readable, e.g. written by an older
+ * version, are written again.
+ *
+ * Fingerprints are SHA-256 hashes of the versions and constants the stage
+ * outputs depend on, stored next to the cache. Bump
+ * {@link TicTacToeBitboardMiniMaxGenerator#GENERATOR_VERSION} or
+ * {@link TicTacToeNeuralDataConverter#LABEL_CONVERSION_VERSION} after
+ * changing the generator or the label conversion.
+ */
+public class DatasetStages {
+
+  public static final String DEFAULT_DIRECTORY = "dataset";
+
+  public static final String POSITION_CACHE_FILE = "positionCache.bin";
+  public static final String RESULTS_FILE = "playgroundsResults.bin";
+  public static final String LABELS_FILE = "playgroundsLabels.bin";
+  public static final String FINGERPRINTS_FILE = "fingerprints.properties";
+
+  public static final String GENERATION_FINGERPRINT = "generationFingerprint";
+  public static final String CONVERSION_FINGERPRINT = "conversionFingerprint";
+
+  private static final Logger logger = LoggerFactory.getLogger(DatasetStages.class);
+
+  private final Path directory;
+
+  public DatasetStages() {
+
+    this(Paths.get(DEFAULT_DIRECTORY));
+  }
+
+  public DatasetStages(Path directory) {
+
+    this.directory = directory;
+  }
+
+  public static void main(String[] arguments) throws IOException {
+
+    StartupTimer.logStartup(DatasetStages.class);
+
+    BinaryNeuralDataFile labeledData = new DatasetStages().build();
+    logger.info("{} playgrounds with labels up to date", labeledData.getRows());
+  }
+
+  public static String generationFingerprint() {
+
+    return ModelStore.configurationHash("generator=" + TicTacToeBitboardMiniMaxGenerator.GENERATOR_VERSION +
+        ",maxWin=" + MAX_WIN + ",minWin=" + MIN_WIN + ",depthAdvantage=" + DEPTH_ADVANTAGE +
+        ",draw=" + DRAW_VALUE + ",occupied=" + OCCUPIED);
+  }
+
+  public static String conversionFingerprint() {
+
+    return ModelStore.configurationHash("conversion=" + TicTacToeNeuralDataConverter.LABEL_CONVERSION_VERSION +
+        ",smallestMaxWin=" + TicTacToeNeuralDataConverter.SMALLEST_MAX_WIN +
+        ",biggestMinWin=" + TicTacToeNeuralDataConverter.BIGGEST_MIN_WIN +
+        ",emptyField=" + TicTacToeNeuralDataConverter.EMPTY_FIELD_VALUE +
+        ",epsilon=" + DOUBLE_COMPARISON_EPSILON);
+  }
+
+  public Path getPositionCacheFile() {
+
+    return directory.resolve(POSITION_CACHE_FILE);
+  }
+
+  /**
+   * @return binary file of the exported MiniMax results
+   */
+  public Path getResultsFile() {
+
+    return directory.resolve(RESULTS_FILE);
+  }
+
+  public Path getLabelsFile() {
+
+    return directory.resolve(LABELS_FILE);
+  }
+
+  public Path getFingerprintsFile() {
+
+    return directory.resolve(FINGERPRINTS_FILE);
+  }
+
+  /**
+   * Runs the stages that are not current.
+   *
+   * @return the playgrounds with converted labels
+   */
+  public BinaryNeuralDataFile build() throws IOException {
+
+    Files.createDirectories(directory);
+    Properties fingerprints = readFingerprints();
+
+    PositionCache positionCache = generate(fingerprints);
+    convert(positionCache, fingerprints);
+
+    return BinaryNeuralDataFile.openLabels(getLabelsFile());
+  }
+
+  /**
+   * Runs the generation stage if it is not current.
+   *
+   * @return the cached MiniMax results and child values of all playgrounds not
+   *         decided yet
+   */
+  public PositionCache buildPositionCache() throws IOException {
+
+    Files.createDirectories(directory);
+
+    return generate(readFingerprints());
+  }
+
+  protected PositionCache generate(Properties fingerprints) throws IOException {
+
+    PositionCache positionCache = openPositionCache();
+    String generationFingerprint = generationFingerprint();
+
+    if (!generationFingerprint.equals(fingerprints.getProperty(GENERATION_FINGERPRINT))) {
+
+      logger.info("Generator fingerprint changed, all cached results are invalid");
+      positionCache.invalidateAll();
+    }
+
+    IncrementalMiniMaxGenerator generator = new IncrementalMiniMaxGenerator(positionCache);
+    StageTimer.time(StageTimer.GENERATION_STAGE, generator::searchInitial);
+
+    int searchedPlaygrounds = generator.getNumberOfGeneratedPlaygrounds();
+    logger.info("Generation stage searched {} playgrounds, {} cache hits", searchedPlaygrounds,
+        generator.getReusedPlaygrounds());
+
+    boolean resultsChanged = searchedPlaygrounds > 0 || !isReadable(getResultsFile());
+
+    if (resultsChanged) {
+
+      positionCache.write(getPositionCacheFile());
+      BinaryNeuralDataFile.write(positionCache, getResultsFile());
+
+      fingerprints.setProperty(GENERATION_FINGERPRINT, generationFingerprint);
+      fingerprints.remove(CONVERSION_FINGERPRINT);
+      writeFingerprints(fingerprints);
+    }
+
+    return positionCache;
+  }
+
+  protected void convert(PositionCache positionCache, Properties fingerprints) throws IOException {
+
+    String conversionFingerprint = conversionFingerprint();
+
+    if (!conversionFingerprint.equals(fingerprints.getProperty(CONVERSION_FINGERPRINT)) ||
+        !isReadable(getLabelsFile())) {
+
+      long startNanos = System.nanoTime();
+      BinaryNeuralDataFile.write(new MiniMaxLabelsSource(positionCache), getLabelsFile());
+      StageTimer.record(StageTimer.CONVERSION_STAGE, System.nanoTime() - startNanos);
+
+      logger.info("Conversion stage wrote labels of {} playgrounds", positionCache.getRows());
+
+      fingerprints.setProperty(CONVERSION_FINGERPRINT, conversionFingerprint);
+      writeFingerprints(fingerprints);
+
+    } else {
+
+      logger.info("Conversion stage is current");
+    }
+  }
+
+  protected PositionCache openPositionCache() throws IOException {
+
+    try {
+
+      return PositionCache.open(getPositionCacheFile());
+
+    } catch (IllegalArgumentException e) {
+
+      logger.warn("Position cache {} not readable, all results are searched again", getPositionCacheFile(), e);
+      return new PositionCache();
+    }
+  }
+
+  protected static boolean isReadable(Path binaryFile) {
+
+    if (!Files.exists(binaryFile)) {
+
+      return false;
+    }
+
+    try {
+
+      BinaryNeuralDataFile.open(binaryFile);
+      return true;
+
+    } catch (IOException | IllegalArgumentException e) {
+
+      logger.warn("Stage output {} not readable, it is written again", binaryFile, e);
+      return false;
+    }
+  }
+
+  protected Properties readFingerprints() throws IOException {
+
+    Properties fingerprints = new Properties();
+
+    if (Files.exists(getFingerprintsFile())) {
+
+      try (InputStream fingerprintsInput = Files.newInputStream(getFingerprintsFile())) {
+
+        fingerprints.load(fingerprintsInput);
+      }
+    }
+
+    return fingerprints;
+  }
+
+  protected void writeFingerprints(Properties fingerprints) throws IOException {
+
+    try (OutputStream fingerprintsOutput = Files.newOutputStream(getFingerprintsFile())) {
+
+      fingerprints.store(fingerprintsOutput, "Dataset stage fingerprints");
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.commonnet;
+
+import java.util.Arrays;
+
+/**
+ * Net labels of the MiniMax results of another source, converted row by row
+ * like {@link TicTacToeNeuralDataConverter#convertMiniMaxLabels(org.nd4j.linalg.api.ndarray.INDArray, org.nd4j.linalg.api.ndarray.INDArray)}.
+ */
+public class MiniMaxLabelsSource implements PlaygroundsResultsSource {
+
+  private final PlaygroundsResultsSource miniMaxSource;
+
+  private final double[] playground;
+  private final double[] result;
+  private final double[] label;
+
+  public MiniMaxLabelsSource(PlaygroundsResultsSource miniMaxSource) {
+
+    this.miniMaxSource = miniMaxSource;
+    this.playground = new double[miniMaxSource.getColumns()];
+    this.result = new double[miniMaxSource.getColumns()];
+    this.label = new double[miniMaxSource.getColumns()];
+  }
+
+  @Override
+  public int getRows() {
+
+    return miniMaxSource.getRows();
+  }
+
+  @Override
+  public int getColumns() {
+
+    return miniMaxSource.getColumns();
+  }
+
+  @Override
+  public void readPlayground(int row, double[] target, int offset) {
+
+    miniMaxSource.readPlayground(row, target, offset);
+  }
+
+  /**
+   * Not thread safe, the conversion reuses its row buffers.
+   */
+  @Override
+  public void readResult(int row, double[] target, int offset) {
+
+    int columns = getColumns();
+    miniMaxSource.readPlayground(row, playground, 0);
+    miniMaxSource.readResult(row, result, 0);
+
+    Arrays.fill(label, 0);
+    TicTacToeNeuralDataConverter.convertMiniMaxResultToBinaryNetLabel(playground, result, 0, columns, label);
+    System.arraycopy(label, 0, target, offset, columns);
+  }
+
+  @Override
+  public boolean resultsAreLabels() {
+
+    return true;
+  }
+}
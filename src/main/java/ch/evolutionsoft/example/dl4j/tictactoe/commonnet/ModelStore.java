@@ -0,0 +1,209 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.commonnet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.util.ModelSerializer;
+
+/**
+ * Stores trained models including their updater state in a local directory,
+ * together with SHA-256 hashes of the net configuration and the training data
+ * they were trained with. Comparing the hashes tells whether a stored model is
+ * current, can be warm started with changed data or must be retrained.
+ */
+public class ModelStore {
+
+  public static final String DEFAULT_DIRECTORY = "models";
+
+  public static final String MODEL_FILE_SUFFIX = ".zip";
+  public static final String HASHES_FILE_SUFFIX = ".properties";
+
+  public static final String CONFIGURATION_HASH = "configurationHash";
+  public static final String DATA_HASH = "dataHash";
+
+  private static final String HASH_ALGORITHM = "SHA-256";
+
+  public enum State {
+
+    /**
+     * No model stored.
+     */
+    MISSING,
+
+    /**
+     * Stored model trained with another configuration, it must be retrained.
+     */
+    STALE_CONFIGURATION,
+
+    /**
+     * Stored model trained with the same configuration on other data, it can be
+     * trained further.
+     */
+    STALE_DATA,
+
+    /**
+     * Stored model trained with the same configuration and data.
+     */
+    CURRENT
+  }
+
+  private final Path directory;
+
+  public ModelStore() {
+
+    this(Paths.get(DEFAULT_DIRECTORY));
+  }
+
+  public ModelStore(Path directory) {
+
+    this.directory = directory;
+  }
+
+  public static String configurationHash(String configurationJson) {
+
+    MessageDigest messageDigest = createMessageDigest();
+    messageDigest.update(configurationJson.getBytes(StandardCharsets.UTF_8));
+
+    return toHex(messageDigest.digest());
+  }
+
+  public static String dataHash(PlaygroundsResultsSource playgroundsResults) {
+
+    MessageDigest messageDigest = createMessageDigest();
+
+    int columns = playgroundsResults.getColumns();
+    double[] row = new double[columns];
+    ByteBuffer rowBytes = ByteBuffer.allocate(columns * Double.BYTES);
+
+    messageDigest.update(ByteBuffer.allocate(2 * Integer.BYTES)
+        .putInt(playgroundsResults.getRows())
+        .putInt(columns)
+        .array());
+
+    for (int index = 0; index < playgroundsResults.getRows(); index++) {
+
+      playgroundsResults.readPlayground(index, row, 0);
+      updateRow(messageDigest, row, rowBytes);
+
+      playgroundsResults.readResult(index, row, 0);
+      updateRow(messageDigest, row, rowBytes);
+    }
+
+    return toHex(messageDigest.digest());
+  }
+
+  public Path getModelFile(String modelName) {
+
+    return directory.resolve(modelName + MODEL_FILE_SUFFIX);
+  }
+
+  public Path getHashesFile(String modelName) {
+
+    return directory.resolve(modelName + HASHES_FILE_SUFFIX);
+  }
+
+  public State getState(String modelName, String configurationHash, String dataHash) throws IOException {
+
+    if (!Files.exists(getModelFile(modelName)) || !Files.exists(getHashesFile(modelName))) {
+
+      return State.MISSING;
+    }
+
+    Properties hashes = new Properties();
+    try (InputStream hashesInput = Files.newInputStream(getHashesFile(modelName))) {
+
+      hashes.load(hashesInput);
+    }
+
+    if (!configurationHash.equals(hashes.getProperty(CONFIGURATION_HASH))) {
+
+      return State.STALE_CONFIGURATION;
+
+    } else if (!dataHash.equals(hashes.getProperty(DATA_HASH))) {
+
+      return State.STALE_DATA;
+    }
+
+    return State.CURRENT;
+  }
+
+  /**
+   * Writes the model with its updater state to a temporary file first, a
+   * failed save never leaves a partially written model behind.
+   */
+  public void save(String modelName, Model model, String configurationHash, String dataHash) throws IOException {
+
+    Files.createDirectories(directory);
+    Files.deleteIfExists(getHashesFile(modelName));
+
+    Path temporaryFile = Files.createTempFile(directory, modelName, MODEL_FILE_SUFFIX);
+    ModelSerializer.writeModel(model, temporaryFile.toFile(), true);
+    Files.move(temporaryFile, getModelFile(modelName), StandardCopyOption.REPLACE_EXISTING);
+
+    Properties hashes = new Properties();
+    hashes.setProperty(CONFIGURATION_HASH, configurationHash);
+    hashes.setProperty(DATA_HASH, dataHash);
+
+    try (OutputStream hashesOutput = Files.newOutputStream(getHashesFile(modelName))) {
+
+      hashes.store(hashesOutput, modelName);
+    }
+  }
+
+  public MultiLayerNetwork restoreMultiLayerNetwork(String modelName) throws IOException {
+
+    return ModelSerializer.restoreMultiLayerNetwork(getModelFile(modelName).toFile(), true);
+  }
+
+  public ComputationGraph restoreComputationGraph(String modelName) throws IOException {
+
+    return ModelSerializer.restoreComputationGraph(getModelFile(modelName).toFile(), true);
+  }
+
+  protected static MessageDigest createMessageDigest() {
+
+    try {
+
+      return MessageDigest.getInstance(HASH_ALGORITHM);
+
+    } catch (NoSuchAlgorithmException e) {
+
+      throw new IllegalStateException(HASH_ALGORITHM + " not available", e);
+    }
+  }
+
+  protected static void updateRow(MessageDigest messageDigest, double[] row, ByteBuffer rowBytes) {
+
+    rowBytes.clear();
+    for (double value : row) {
+
+      rowBytes.putDouble(value);
+    }
+
+    messageDigest.update(rowBytes.array());
+  }
+
+  protected static String toHex(byte[] bytes) {
+
+    StringBuilder hex = new StringBuilder(2 * bytes.length);
+    for (byte value : bytes) {
+
+      hex.append(Character.forDigit((value >> 4) & 0xf, 16)).append(Character.forDigit(value & 0xf, 16));
+    }
+
+    return hex.toString();
+  }
+}
@@ -4,6 +4,14 @@ import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
 import static ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralNetConstants.*;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -13,13 +21,22 @@ import org.nd4j.linalg.primitives.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StageTimer;
+
 public class NeuralDataHelper {
 
   public static final String IND_ARRAY_VALUE_SEPARATOR = ":";
   public static final String INPUT = "Example Neural Net Input";
   public static final String LABEL = " Label=";
+
+  public static final String INPUTS_FILE = "inputs.txt";
+  public static final String LABELS_FILE = "labels.txt";
+  public static final String CANONICAL_INPUTS_FILE = "canonicalInputs.txt";
+  public static final String CANONICAL_LABELS_FILE = "canonicalLabels.txt";
   private static final char NEW_LINE = '\n';
 
+  private static final int HASH_CHUNK_BYTES = 8192;
+
   private static final Logger logger = LoggerFactory.getLogger(NeuralDataHelper.class);
 
   private NeuralDataHelper() {
@@ -80,12 +97,181 @@ public class NeuralDataHelper {
     }
   }
 
+  /**
+   * Logs net input and label of random rows of the whole source, converted
+   * like the {@link StreamingDataSetIterator} does.
+   */
+  public static void printRandomNetInputAndLabels(PlaygroundsResultsSource playgroundsResults,
+      boolean convolutionalFeatures, int numberOfExamples) {
+
+    int numberOfFields = playgroundsResults.getColumns();
+    double[] playground = new double[numberOfFields];
+    double[] result = new double[numberOfFields];
+
+    for (int n = 0; n < numberOfExamples && n < playgroundsResults.getRows(); n++) {
+
+      int randomRow = randomGenerator.nextInt(playgroundsResults.getRows());
+      playgroundsResults.readPlayground(randomRow, playground, 0);
+      playgroundsResults.readResult(randomRow, result, 0);
+
+      double[] label = result;
+      if (!playgroundsResults.resultsAreLabels()) {
+
+        label = new double[numberOfFields];
+        TicTacToeNeuralDataConverter.convertMiniMaxResultToBinaryNetLabel(playground, result, 0, numberOfFields,
+            label);
+      }
+
+      INDArray netInput =
+          TicTacToeNeuralDataConverter.createNetInput(playground, 1, numberOfFields, convolutionalFeatures);
+
+      logger.info(INPUT + NEW_LINE + netInput + NEW_LINE + LABEL + Arrays.toString(label));
+    }
+  }
+
+  /**
+   * Reads the binary data file {@link BinaryNeuralDataFile#DEFAULT_FILE_NAME}
+   * from the working directory if it was converted from the current text
+   * resources. Otherwise the text resources are parsed and the binary file is
+   * written for subsequent starts.
+   */
   public static List<Pair<INDArray, INDArray>> readAll() {
 
+    return splitRows(readStacked());
+  }
+
+  public static Pair<INDArray, INDArray> readStacked() {
+
+    Path binaryFile = Paths.get(BinaryNeuralDataFile.DEFAULT_FILE_NAME);
+    long resourcesHash = resourcesHash();
+
+    BinaryNeuralDataFile binaryData = openCurrentBinaryData(binaryFile, resourcesHash);
+    if (binaryData != null) {
+
+      return binaryData.readStacked();
+    }
+
+    Pair<INDArray, INDArray> stackedPlaygroundsResults = new Pair<>(readInputs(), readLabels());
+    writeBinaryData(stackedPlaygroundsResults.getFirst(), stackedPlaygroundsResults.getSecond(), binaryFile,
+        resourcesHash);
+
+    return stackedPlaygroundsResults;
+  }
+
+  /**
+   * Opens the binary data file {@link BinaryNeuralDataFile#DEFAULT_FILE_NAME}
+   * for streaming, converting the text resources first if the file is
+   * missing, unreadable or was converted from other text data.
+   */
+  public static BinaryNeuralDataFile openBinaryData() throws IOException {
+
+    Path binaryFile = Paths.get(BinaryNeuralDataFile.DEFAULT_FILE_NAME);
+    long resourcesHash = resourcesHash();
+
+    BinaryNeuralDataFile binaryData = openCurrentBinaryData(binaryFile, resourcesHash);
+    if (binaryData != null) {
+
+      return binaryData;
+    }
+
+    Pair<INDArray, INDArray> stackedPlaygroundsResults =
+        StageTimer.time(StageTimer.LOADING_STAGE, () -> new Pair<>(readInputs(), readLabels()));
+    BinaryNeuralDataFile.write(stackedPlaygroundsResults.getFirst(), stackedPlaygroundsResults.getSecond(),
+        binaryFile, resourcesHash);
+
+    return BinaryNeuralDataFile.open(binaryFile);
+  }
+
+  /**
+   * @return the binary data file if it exists, is readable and was converted
+   *         from data with the given hash, null otherwise
+   */
+  protected static BinaryNeuralDataFile openCurrentBinaryData(Path binaryFile, long sourceHash) {
+
+    if (!Files.exists(binaryFile)) {
+
+      return null;
+    }
+
+    try {
+
+      BinaryNeuralDataFile binaryData = BinaryNeuralDataFile.open(binaryFile);
+      if (binaryData.getSourceHash() == sourceHash) {
+
+        return binaryData;
+      }
+
+      logger.info("Binary data {} is stale, converting the text data again", binaryFile);
+
+    } catch (IOException | IllegalArgumentException e) {
+
+      logger.warn("Binary data {} not readable, converting the text data again", binaryFile, e);
+    }
+
+    return null;
+  }
+
+  /**
+   * @return the first eight bytes of the SHA-256 hash of inputs.txt and
+   *         labels.txt on the classpath, stored in the converted binary data
+   */
+  public static long resourcesHash() {
+
+    try (InputStream inputs = openResource(INPUTS_FILE); InputStream labels = openResource(LABELS_FILE)) {
+
+      return textDataHash(inputs, labels);
+
+    } catch (IOException e) {
+
+      throw new UncheckedIOException("Text resources not readable", e);
+    }
+  }
+
+  protected static long textDataHash(InputStream inputs, InputStream labels) throws IOException {
+
+    MessageDigest messageDigest = ModelStore.createMessageDigest();
+    byte[] chunk = new byte[HASH_CHUNK_BYTES];
+
+    for (InputStream textData : new InputStream[] {inputs, labels}) {
+
+      for (int readBytes = textData.read(chunk); readBytes >= 0; readBytes = textData.read(chunk)) {
+
+        messageDigest.update(chunk, 0, readBytes);
+      }
+    }
+
+    return ByteBuffer.wrap(messageDigest.digest()).getLong();
+  }
+
+  /**
+   * Opens the playgrounds with converted labels, rebuilding only the stale
+   * {@link DatasetStages}.
+   */
+  public static BinaryNeuralDataFile openLabeledData() throws IOException {
+
+    return new DatasetStages().build();
+  }
+
+  /**
+   * Reads the canonical playgrounds and results, see
+   * {@link ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeSymmetry}.
+   */
+  public static List<Pair<INDArray, INDArray>> readAllCanonical() {
+
+    return readAll(CANONICAL_INPUTS_FILE, CANONICAL_LABELS_FILE);
+  }
+
+  public static List<Pair<INDArray, INDArray>> readAll(String inputsResource, String labelsResource) {
+
+    return splitRows(new Pair<>(readResource(inputsResource), readResource(labelsResource)));
+  }
+
+  protected static List<Pair<INDArray, INDArray>> splitRows(Pair<INDArray, INDArray> stackedPlaygroundsResults) {
+
     List<Pair<INDArray, INDArray>> allPlaygroundsResult = new LinkedList<>();
 
-    INDArray inputs = readInputs();
-    INDArray labels = readLabels();
+    INDArray inputs = stackedPlaygroundsResults.getFirst();
+    INDArray labels = stackedPlaygroundsResults.getSecond();
 
     for (int row = 0; row < inputs.shape()[0]; row++) {
 
@@ -97,12 +283,29 @@ public class NeuralDataHelper {
 
   public static INDArray readInputs() {
 
-    return Nd4j.readTxtString(NeuralDataHelper.class.getResourceAsStream("/inputs.txt"), IND_ARRAY_VALUE_SEPARATOR);
+    return readResource(INPUTS_FILE);
   }
 
   public static INDArray readLabels() {
 
-    return Nd4j.readTxtString(NeuralDataHelper.class.getResourceAsStream("/labels.txt"), IND_ARRAY_VALUE_SEPARATOR);
+    return readResource(LABELS_FILE);
+  }
+
+  protected static INDArray readResource(String resourceName) {
+
+    return Nd4j.readTxtString(openResource(resourceName), IND_ARRAY_VALUE_SEPARATOR);
+  }
+
+  protected static InputStream openResource(String resourceName) {
+
+    InputStream resource = NeuralDataHelper.class.getResourceAsStream("/" + resourceName);
+
+    if (resource == null) {
+
+      throw new IllegalStateException("Resource " + resourceName + " not found on the classpath");
+    }
+
+    return resource;
   }
 
   public static void writeData(List<Pair<INDArray, INDArray>> allPlaygroundsResults) {
@@ -110,9 +313,46 @@ public class NeuralDataHelper {
     Pair<INDArray, INDArray> stackedPlaygroundsLabels =
         TicTacToeNeuralDataConverter.stackFeedForwardPlaygroundLabels(allPlaygroundsResults);
 
-    Nd4j.writeTxt(stackedPlaygroundsLabels.getFirst(), "inputs.txt");
-    Nd4j.writeTxt(stackedPlaygroundsLabels.getSecond(), "labels.txt");
+    writeData(stackedPlaygroundsLabels.getFirst(), stackedPlaygroundsLabels.getSecond());
+  }
+
+  public static void writeData(INDArray stackedPlaygrounds, INDArray stackedResults) {
+
+    writeData(stackedPlaygrounds, stackedResults, INPUTS_FILE, LABELS_FILE);
+
+    try (InputStream inputs = Files.newInputStream(Paths.get(INPUTS_FILE));
+        InputStream labels = Files.newInputStream(Paths.get(LABELS_FILE))) {
+
+      writeBinaryData(stackedPlaygrounds, stackedResults, Paths.get(BinaryNeuralDataFile.DEFAULT_FILE_NAME),
+          textDataHash(inputs, labels));
 
+    } catch (IOException e) {
+
+      logger.warn("Written text data not readable, binary data not written", e);
+    }
+  }
+
+  public static void writeData(INDArray stackedPlaygrounds, INDArray stackedResults,
+      String inputsFileName, String labelsFileName) {
+
+    Nd4j.writeTxt(stackedPlaygrounds, inputsFileName);
+    Nd4j.writeTxt(stackedResults, labelsFileName);
   }
 
+  /**
+   * The binary data is only reused if the written text data is copied into
+   * the resources, otherwise its source hash differs from theirs.
+   */
+  protected static void writeBinaryData(INDArray stackedPlaygrounds, INDArray stackedResults, Path binaryFile,
+      long sourceHash) {
+
+    try {
+
+      BinaryNeuralDataFile.write(stackedPlaygrounds, stackedResults, binaryFile, sourceHash);
+
+    } catch (IOException e) {
+
+      logger.warn("Binary data {} could not be written", binaryFile, e);
+    }
+  }
 }
@@ -20,6 +20,24 @@ public final class NeuralNetConstants {
 
   public static final int DEFAULT_FEATURE_EXAMPLE_NUMBER_LOG = 1;
 
+  /**
+   * System property with the number of parallel training workers, e.g.
+   * -DtrainingWorkers=4.
+   */
+  public static final String TRAINING_WORKERS_PROPERTY = "trainingWorkers";
+
+  public static final int DEFAULT_TRAINING_WORKERS = 1;
+
+  /**
+   * System property to train the feed forward nets on the canonical
+   * playgrounds expanded by their symmetries, e.g. -DcanonicalData=true.
+   */
+  public static final String CANONICAL_DATA_PROPERTY = "canonicalData";
+
+  public static final int PARALLEL_PREFETCH_BATCHES = 8;
+
+  public static final int PARALLEL_AVERAGING_FREQUENCY = 3;
+
   public static final String DEFAULT_INPUT_LAYER_NAME = "InputLayer";
   public static final String DEFAULT_HIDDEN_LAYER_NAME = "HiddenLayer";
   public static final String DEFAULT_OUTPUT_LAYER_NAME = "OutputLayer";
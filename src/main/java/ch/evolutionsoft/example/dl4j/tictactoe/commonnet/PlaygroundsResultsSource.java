@@ -0,0 +1,25 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.commonnet;
+
+/**
+ * Row wise access to playgrounds and MiniMax results without stacking them
+ * into INDArrays, e.g. a {@link BinaryNeuralDataFile} or a generator.
+ */
+public interface PlaygroundsResultsSource {
+
+  int getRows();
+
+  int getColumns();
+
+  void readPlayground(int row, double[] target, int offset);
+
+  void readResult(int row, double[] target, int offset);
+
+  /**
+   * @return true if the results are net labels already, e.g. move
+   *         distributions of self play, instead of MiniMax results
+   */
+  default boolean resultsAreLabels() {
+
+    return false;
+  }
+}
@@ -0,0 +1,351 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.commonnet;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.factory.Nd4j;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StageTimer;
+
+/**
+ * Streams minibatches of converted playgrounds and labels from a
+ * {@link PlaygroundsResultsSource}, e.g. a memory mapped
+ * {@link BinaryNeuralDataFile} or a generator, without materializing the whole
+ * dataset as INDArrays.
+ *
+ * Batches are created on a background thread into reused primitive buffers,
+ * the next batches are prefetched while the current one is fitted. The
+ * features are either the flat playgrounds for feed forward nets or the
+ * [IMAGE_CHANNELS, IMAGE_SIZE, IMAGE_SIZE] images of convolutional nets, the
+ * labels are converted like
+ * {@link TicTacToeNeuralDataConverter#convertMiniMaxLabels(INDArray, INDArray)}
+ * unless the source provides labels already.
+ */
+public class StreamingDataSetIterator implements CloseableDataSetIterator {
+
+  private static final long serialVersionUID = 1L;
+
+  public static final int DEFAULT_PREFETCH_BATCHES = 2;
+
+  private final transient PlaygroundsResultsSource source;
+  private final int batchSize;
+  private final boolean convolutionalFeatures;
+  private final int prefetchBatches;
+
+  private final int numberOfFields;
+  private final int featuresPerExample;
+
+  private final transient ExecutorService prefetchExecutor;
+  private final transient Deque<Future<DataSet>> prefetchedBatches = new ArrayDeque<>();
+
+  /**
+   * Only used by the prefetch thread.
+   */
+  private transient double[] playgroundsBuffer = new double[0];
+  private transient double[] resultsBuffer = new double[0];
+  private transient double[] imagesBuffer = new double[0];
+  private transient double[] labelsBuffer = new double[0];
+
+  private int cursor = 0;
+  private int nextPrefetchRow = 0;
+
+  private DataSetPreProcessor preProcessor;
+
+  public StreamingDataSetIterator(PlaygroundsResultsSource source, int batchSize, boolean convolutionalFeatures) {
+
+    this(source, batchSize, convolutionalFeatures, DEFAULT_PREFETCH_BATCHES);
+  }
+
+  public StreamingDataSetIterator(PlaygroundsResultsSource source, int batchSize, boolean convolutionalFeatures,
+      int prefetchBatches) {
+
+    if (batchSize < 1 || prefetchBatches < 1) {
+
+      throw new IllegalArgumentException("Batch size and prefetch batches must be positive");
+    }
+
+    if (convolutionalFeatures && source.getColumns() != COLUMN_NUMBER) {
+
+      throw new IllegalArgumentException("Convolutional images need " + COLUMN_NUMBER + " fields per playground");
+    }
+
+    this.source = source;
+    this.batchSize = batchSize;
+    this.convolutionalFeatures = convolutionalFeatures;
+    this.prefetchBatches = prefetchBatches;
+    this.numberOfFields = source.getColumns();
+    this.featuresPerExample = convolutionalFeatures ? IMAGE_CHANNELS * COLUMN_NUMBER : numberOfFields;
+
+    this.prefetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+
+      Thread prefetchThread = new Thread(runnable, "playgrounds-prefetch");
+      prefetchThread.setDaemon(true);
+      return prefetchThread;
+    });
+
+    prefetchBatches();
+  }
+
+  @Override
+  public boolean hasNext() {
+
+    return cursor < source.getRows();
+  }
+
+  @Override
+  public DataSet next() {
+
+    return next(batchSize);
+  }
+
+  @Override
+  public DataSet next(int num) {
+
+    if (!hasNext()) {
+
+      throw new NoSuchElementException();
+    }
+
+    if (num != batchSize) {
+
+      cancelPrefetchedBatches();
+      nextPrefetchRow = cursor;
+      prefetchBatch(num);
+    }
+
+    DataSet dataSet = await(prefetchedBatches.poll());
+    cursor += dataSet.numExamples();
+
+    prefetchBatches();
+
+    if (preProcessor != null) {
+
+      preProcessor.preProcess(dataSet);
+    }
+
+    return dataSet;
+  }
+
+  @Override
+  public int totalExamples() {
+
+    return source.getRows();
+  }
+
+  @Override
+  public int inputColumns() {
+
+    return featuresPerExample;
+  }
+
+  @Override
+  public int totalOutcomes() {
+
+    return numberOfFields;
+  }
+
+  @Override
+  public boolean resetSupported() {
+
+    return true;
+  }
+
+  /**
+   * Batches are already prefetched, wrapping into another asynchronous
+   * iterator would only add copies.
+   */
+  @Override
+  public boolean asyncSupported() {
+
+    return false;
+  }
+
+  @Override
+  public void reset() {
+
+    cancelPrefetchedBatches();
+    cursor = 0;
+    nextPrefetchRow = 0;
+
+    prefetchBatches();
+  }
+
+  @Override
+  public int batch() {
+
+    return batchSize;
+  }
+
+  @Override
+  public int cursor() {
+
+    return cursor;
+  }
+
+  @Override
+  public int numExamples() {
+
+    return totalExamples();
+  }
+
+  @Override
+  public void setPreProcessor(DataSetPreProcessor preProcessor) {
+
+    this.preProcessor = preProcessor;
+  }
+
+  @Override
+  public DataSetPreProcessor getPreProcessor() {
+
+    return preProcessor;
+  }
+
+  @Override
+  public List<String> getLabels() {
+
+    return null;
+  }
+
+  @Override
+  public void remove() {
+
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Stops the prefetch thread, the iterator is unusable afterwards.
+   */
+  @Override
+  public void close() {
+
+    cancelPrefetchedBatches();
+    prefetchExecutor.shutdownNow();
+  }
+
+  protected void prefetchBatches() {
+
+    while (prefetchedBatches.size() < prefetchBatches && nextPrefetchRow < source.getRows()) {
+
+      prefetchBatch(batchSize);
+    }
+  }
+
+  protected void prefetchBatch(int numberOfExamples) {
+
+    int firstRow = nextPrefetchRow;
+    int batchExamples = Math.min(numberOfExamples, source.getRows() - firstRow);
+    nextPrefetchRow += batchExamples;
+
+    prefetchedBatches.add(prefetchExecutor.submit(() -> createBatch(firstRow, batchExamples)));
+  }
+
+  protected void cancelPrefetchedBatches() {
+
+    for (Future<DataSet> prefetchedBatch : prefetchedBatches) {
+
+      prefetchedBatch.cancel(false);
+    }
+    prefetchedBatches.clear();
+  }
+
+  /**
+   * Runs on the prefetch thread, which owns the primitive buffers.
+   */
+  protected DataSet createBatch(int firstRow, int numberOfExamples) {
+
+    long startNanos = System.nanoTime();
+    ensureBufferCapacity(numberOfExamples);
+
+    int length = numberOfExamples * numberOfFields;
+    Arrays.fill(labelsBuffer, 0, length, 0);
+
+    if (convolutionalFeatures) {
+
+      Arrays.fill(imagesBuffer, 0, numberOfExamples * featuresPerExample, 0);
+    }
+
+    for (int row = 0; row < numberOfExamples; row++) {
+
+      int offset = row * numberOfFields;
+      source.readPlayground(firstRow + row, playgroundsBuffer, offset);
+      source.readResult(firstRow + row, resultsBuffer, offset);
+
+      if (source.resultsAreLabels()) {
+
+        System.arraycopy(resultsBuffer, offset, labelsBuffer, offset, numberOfFields);
+
+      } else {
+
+        TicTacToeNeuralDataConverter.convertMiniMaxResultToBinaryNetLabel(
+            playgroundsBuffer, resultsBuffer, offset, numberOfFields, labelsBuffer);
+      }
+
+      if (convolutionalFeatures) {
+
+        TicTacToeNeuralDataConverter.convertToConvolutionalImage(
+            playgroundsBuffer, offset, imagesBuffer, row * featuresPerExample);
+      }
+    }
+
+    INDArray features = convolutionalFeatures ?
+        Nd4j.create(batchData(imagesBuffer, numberOfExamples * featuresPerExample),
+            new int[] {numberOfExamples, IMAGE_CHANNELS, IMAGE_SIZE, IMAGE_SIZE}) :
+        Nd4j.create(batchData(playgroundsBuffer, length), new int[] {numberOfExamples, numberOfFields});
+
+    INDArray labels = Nd4j.create(batchData(labelsBuffer, length), new int[] {numberOfExamples, numberOfFields});
+
+    StageTimer.record(StageTimer.CONVERSION_STAGE, System.nanoTime() - startNanos);
+
+    return new DataSet(features, labels);
+  }
+
+  protected void ensureBufferCapacity(int numberOfExamples) {
+
+    int length = numberOfExamples * numberOfFields;
+
+    if (playgroundsBuffer.length < length) {
+
+      playgroundsBuffer = new double[length];
+      resultsBuffer = new double[length];
+      labelsBuffer = new double[length];
+      imagesBuffer = new double[convolutionalFeatures ? numberOfExamples * featuresPerExample : 0];
+    }
+  }
+
+  /**
+   * INDArrays copy the data, only partially filled buffers need to be trimmed.
+   */
+  protected static double[] batchData(double[] buffer, int length) {
+
+    return buffer.length == length ? buffer : Arrays.copyOf(buffer, length);
+  }
+
+  protected static DataSet await(Future<DataSet> prefetchedBatch) {
+
+    try {
+
+      return prefetchedBatch.get();
+
+    } catch (InterruptedException e) {
+
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the next batch", e);
+
+    } catch (ExecutionException e) {
+
+      throw new IllegalStateException("Batch creation failed", e.getCause());
+    }
+  }
+}
@@ -0,0 +1,249 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.commonnet;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.primitives.Pair;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeBitboard;
+import ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeSymmetry;
+
+/**
+ * Expands canonical feed forward playgrounds and labels, e.g. converted from
+ * {@link NeuralDataHelper#readAllCanonical()}, by all their distinct
+ * rotations and reflections. The labels are transformed together with the
+ * playgrounds, the minibatches are created when requested.
+ */
+public class SymmetryAugmentingDataSetIterator implements CloseableDataSetIterator {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int batchSize;
+
+  private final int[] maxPlayerFields;
+  private final int[] minPlayerFields;
+  private final double[] labels;
+
+  /**
+   * One entry per distinct playground variant: canonical playground index
+   * times NUMBER_OF_TRANSFORMATIONS plus transformation.
+   */
+  private final int[] variants;
+
+  private int cursor = 0;
+
+  private DataSetPreProcessor preProcessor;
+
+  public SymmetryAugmentingDataSetIterator(List<Pair<INDArray, INDArray>> canonicalPlaygroundsLabels, int batchSize) {
+
+    this.batchSize = batchSize;
+
+    int numberOfPlaygrounds = canonicalPlaygroundsLabels.size();
+    this.maxPlayerFields = new int[numberOfPlaygrounds];
+    this.minPlayerFields = new int[numberOfPlaygrounds];
+    this.labels = new double[numberOfPlaygrounds * COLUMN_NUMBER];
+
+    int[] allVariants = new int[numberOfPlaygrounds * TicTacToeSymmetry.NUMBER_OF_TRANSFORMATIONS];
+    int numberOfVariants = 0;
+
+    int index = 0;
+    for (Pair<INDArray, INDArray> playgroundLabel : canonicalPlaygroundsLabels) {
+
+      readPlaygroundLabel(index, playgroundLabel);
+      numberOfVariants = addDistinctVariants(index, allVariants, numberOfVariants);
+      index++;
+    }
+
+    this.variants = Arrays.copyOf(allVariants, numberOfVariants);
+  }
+
+  @Override
+  public boolean hasNext() {
+
+    return cursor < variants.length;
+  }
+
+  @Override
+  public DataSet next() {
+
+    return next(batchSize);
+  }
+
+  @Override
+  public DataSet next(int num) {
+
+    int numberOfExamples = Math.min(num, variants.length - cursor);
+
+    double[] playgroundsBatch = new double[numberOfExamples * COLUMN_NUMBER];
+    double[] labelsBatch = new double[numberOfExamples * COLUMN_NUMBER];
+
+    for (int row = 0; row < numberOfExamples; row++) {
+
+      int variant = variants[cursor++];
+      int index = variant / TicTacToeSymmetry.NUMBER_OF_TRANSFORMATIONS;
+      int transformation = variant % TicTacToeSymmetry.NUMBER_OF_TRANSFORMATIONS;
+
+      for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+        playgroundsBatch[row * COLUMN_NUMBER + TicTacToeSymmetry.transformField(field, transformation)] =
+            TicTacToeBitboard.fieldValue(maxPlayerFields[index], minPlayerFields[index], field);
+      }
+      TicTacToeSymmetry.transformRow(labels, index * COLUMN_NUMBER, labelsBatch, row * COLUMN_NUMBER, transformation);
+    }
+
+    int[] shape = new int[] {numberOfExamples, COLUMN_NUMBER};
+    DataSet dataSet = new DataSet(Nd4j.create(playgroundsBatch, shape), Nd4j.create(labelsBatch, shape));
+
+    if (preProcessor != null) {
+
+      preProcessor.preProcess(dataSet);
+    }
+
+    return dataSet;
+  }
+
+  @Override
+  public int totalExamples() {
+
+    return variants.length;
+  }
+
+  @Override
+  public int inputColumns() {
+
+    return COLUMN_NUMBER;
+  }
+
+  @Override
+  public int totalOutcomes() {
+
+    return COLUMN_NUMBER;
+  }
+
+  @Override
+  public boolean resetSupported() {
+
+    return true;
+  }
+
+  @Override
+  public boolean asyncSupported() {
+
+    return true;
+  }
+
+  @Override
+  public void reset() {
+
+    cursor = 0;
+  }
+
+  @Override
+  public int batch() {
+
+    return batchSize;
+  }
+
+  @Override
+  public int cursor() {
+
+    return cursor;
+  }
+
+  @Override
+  public int numExamples() {
+
+    return totalExamples();
+  }
+
+  @Override
+  public void setPreProcessor(DataSetPreProcessor preProcessor) {
+
+    this.preProcessor = preProcessor;
+  }
+
+  @Override
+  public DataSetPreProcessor getPreProcessor() {
+
+    return preProcessor;
+  }
+
+  @Override
+  public List<String> getLabels() {
+
+    return null;
+  }
+
+  @Override
+  public void remove() {
+
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Batches are created on the calling thread, nothing to release.
+   */
+  @Override
+  public void close() {
+
+    // Nothing to release
+  }
+
+  protected void readPlaygroundLabel(int index, Pair<INDArray, INDArray> playgroundLabel) {
+
+    INDArray playground = playgroundLabel.getFirst();
+    INDArray label = playgroundLabel.getSecond();
+
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      double fieldValue = playground.getDouble(field);
+      if (TicTacToeNeuralDataConverter.equals(fieldValue, MAX_PLAYER, DOUBLE_COMPARISON_EPSILON)) {
+
+        maxPlayerFields[index] |= TicTacToeBitboard.fieldMask(field);
+
+      } else if (TicTacToeNeuralDataConverter.equals(fieldValue, MIN_PLAYER, DOUBLE_COMPARISON_EPSILON)) {
+
+        minPlayerFields[index] |= TicTacToeBitboard.fieldMask(field);
+      }
+
+      labels[index * COLUMN_NUMBER + field] = label.getDouble(field);
+    }
+  }
+
+  /**
+   * Symmetric playgrounds are mapped to themselves by several transformations,
+   * only the first transformation of each distinct variant is kept.
+   */
+  protected int addDistinctVariants(int index, int[] allVariants, int numberOfVariants) {
+
+    int[] variantEncodings = new int[TicTacToeSymmetry.NUMBER_OF_TRANSFORMATIONS];
+    int numberOfDistinctVariants = 0;
+
+    for (int transformation = 0; transformation < TicTacToeSymmetry.NUMBER_OF_TRANSFORMATIONS; transformation++) {
+
+      int encoding = TicTacToeBitboard.encode(
+          TicTacToeSymmetry.transformFields(maxPlayerFields[index], transformation),
+          TicTacToeSymmetry.transformFields(minPlayerFields[index], transformation));
+
+      boolean alreadyPresent = false;
+      for (int variant = 0; variant < numberOfDistinctVariants && !alreadyPresent; variant++) {
+
+        alreadyPresent = variantEncodings[variant] == encoding;
+      }
+
+      if (!alreadyPresent) {
+
+        variantEncodings[numberOfDistinctVariants++] = encoding;
+        allVariants[numberOfVariants++] = index * TicTacToeSymmetry.NUMBER_OF_TRANSFORMATIONS + transformation;
+      }
+    }
+
+    return numberOfVariants;
+  }
+}
@@ -2,11 +2,16 @@ package ch.evolutionsoft.example.dl4j.tictactoe.commonnet;
 
 import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.nd4j.linalg.api.buffer.DataBuffer;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.nd4j.linalg.primitives.Pair;
 
 public class TicTacToeNeuralDataConverter {
@@ -15,6 +20,19 @@ public class TicTacToeNeuralDataConverter {
   public static final double SMALLEST_MAX_WIN = 1;
   public static final double BIGGEST_MIN_WIN = -1;
 
+  /**
+   * Increase on every change of the label conversion, it invalidates the
+   * labels cached by the {@link DatasetStages}.
+   */
+  public static final int LABEL_CONVERSION_VERSION = 1;
+
+  public static final double POSITION_WIN_VALUE = 1.0;
+  public static final double POSITION_LOSS_VALUE = -1.0;
+
+  public static final int EMPTY_CHANNEL = 0;
+  public static final int MAX_PLAYER_CHANNEL = 1;
+  public static final int MIN_PLAYER_CHANNEL = 2;
+
   private TicTacToeNeuralDataConverter() {
     // Hide constructor
   }
@@ -22,18 +40,132 @@ public class TicTacToeNeuralDataConverter {
   public static List<Pair<INDArray, INDArray>> convertMiniMaxPlaygroundLabelsToConvolutionalData(
       List<Pair<INDArray, INDArray>> allPlaygroundsResults) {
 
-    List<Pair<INDArray, INDArray>> convertedLabels = convertMiniMaxLabels(allPlaygroundsResults);
-    List<Pair<INDArray, INDArray>> resultList = new LinkedList<>();
+    Pair<INDArray, INDArray> stackedPlaygroundsResults = stackFeedForwardPlaygroundLabels(allPlaygroundsResults);
+
+    return unstackConvolutionalPlaygroundLabels(convertMiniMaxPlaygroundLabelsToConvolutionalData(
+        stackedPlaygroundsResults.getFirst(), stackedPlaygroundsResults.getSecond()));
+  }
+
+  /**
+   * @param stackedPlaygrounds [N, COLUMN_NUMBER] playgrounds
+   * @param stackedResults [N, COLUMN_NUMBER] MiniMax results
+   * @return [N, IMAGE_CHANNELS, IMAGE_SIZE, IMAGE_SIZE] images and [N,
+   *         COLUMN_NUMBER] labels
+   */
+  public static Pair<INDArray, INDArray> convertMiniMaxPlaygroundLabelsToConvolutionalData(
+      INDArray stackedPlaygrounds, INDArray stackedResults) {
+
+    return new Pair<>(
+        convertToConvolutionalImages(stackedPlaygrounds),
+        convertMiniMaxLabels(stackedPlaygrounds, stackedResults));
+  }
+
+  /**
+   * Batch variant of {@link #convertTo3x3Image(INDArray)}, encoding all
+   * playgrounds in one pass straight into a single off-heap buffer.
+   * 
+   * @param stackedPlaygrounds [N, COLUMN_NUMBER] playgrounds
+   * @return [N, IMAGE_CHANNELS, IMAGE_SIZE, IMAGE_SIZE] images
+   */
+  public static INDArray convertToConvolutionalImages(INDArray stackedPlaygrounds) {
+
+    if (stackedPlaygrounds.columns() != COLUMN_NUMBER) {
+
+      throw new IllegalArgumentException("Convolutional images need " + COLUMN_NUMBER + " fields per playground");
+    }
+
+    DataBuffer.Type dataType = Nd4j.dataType();
+    int elementBytes = dataType == DataBuffer.Type.DOUBLE ? Double.BYTES : Float.BYTES;
+    int rows = stackedPlaygrounds.rows();
+    int imageLength = IMAGE_CHANNELS * COLUMN_NUMBER;
+    int length = Math.toIntExact((long) rows * imageLength);
+
+    ByteBuffer imagesBuffer = ByteBuffer.allocateDirect(Math.toIntExact((long) length * elementBytes))
+        .order(ByteOrder.nativeOrder());
+
+    for (int row = 0; row < rows; row++) {
+
+      for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+        int byteIndex = (row * imageLength + imageIndex(stackedPlaygrounds.getDouble(row, field), field)) *
+            elementBytes;
+
+        if (dataType == DataBuffer.Type.DOUBLE) {
+
+          imagesBuffer.putDouble(byteIndex, 1);
+
+        } else {
+
+          imagesBuffer.putFloat(byteIndex, 1);
+        }
+      }
+    }
+
+    return Nd4j.create(Nd4j.createBuffer(imagesBuffer, dataType, length),
+        new int[] {rows, IMAGE_CHANNELS, IMAGE_SIZE, IMAGE_SIZE});
+  }
+
+  /**
+   * Primitive variant of {@link #convertTo3x3Image(INDArray)} for the playground
+   * starting at offset. The image starting at imageOffset is expected to be zero.
+   */
+  public static void convertToConvolutionalImage(double[] playgrounds, int offset, double[] images,
+      int imageOffset) {
+
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      images[imageOffset + imageIndex(playgrounds[offset + field], field)] = 1;
+    }
+  }
+
+  /**
+   * @return the index of the one hot value of the field within its image
+   */
+  public static int imageIndex(double playgroundValue, int field) {
+
+    int channel = EMPTY_CHANNEL;
+    if (playgroundValue == MIN_PLAYER) {
+
+      channel = MIN_PLAYER_CHANNEL;
+
+    } else if (playgroundValue == MAX_PLAYER) {
+
+      channel = MAX_PLAYER_CHANNEL;
+    }
+
+    return channel * COLUMN_NUMBER + field;
+  }
 
-    for (int index = 0; index < allPlaygroundsResults.size(); index++) {
+  /**
+   * @param playgrounds rows of numberOfFields playground values
+   * @return [rows, numberOfFields] net input or, for convolutional nets, [rows,
+   *         IMAGE_CHANNELS, IMAGE_SIZE, IMAGE_SIZE] images
+   */
+  public static INDArray createNetInput(double[] playgrounds, int rows, int numberOfFields,
+      boolean convolutionalFeatures) {
 
-      INDArray playgroundArray = convertedLabels.get(index).getFirst();
+    INDArray stackedPlaygrounds = Nd4j.create(playgrounds, new int[] {rows, numberOfFields});
+
+    return convolutionalFeatures ? convertToConvolutionalImages(stackedPlaygrounds) : stackedPlaygrounds;
+  }
 
-      INDArray playgroundImage = TicTacToeNeuralDataConverter.convertTo3x3Image(playgroundArray);
-      INDArray playgroundImage4dRow = Nd4j.create(1, IMAGE_CHANNELS, IMAGE_SIZE, IMAGE_SIZE);
-      playgroundImage4dRow.putRow(0, playgroundImage);
+  /**
+   * @return one pair of [1, IMAGE_CHANNELS, IMAGE_SIZE, IMAGE_SIZE] image and [1,
+   *         COLUMN_NUMBER] label views per row of the stacked arrays
+   */
+  public static List<Pair<INDArray, INDArray>> unstackConvolutionalPlaygroundLabels(
+      Pair<INDArray, INDArray> stackedImagesLabels) {
 
-      resultList.add(new Pair<INDArray, INDArray>(playgroundImage4dRow, convertedLabels.get(index).getSecond()));
+    INDArray stackedImages = stackedImagesLabels.getFirst();
+    INDArray stackedLabels = stackedImagesLabels.getSecond();
+
+    List<Pair<INDArray, INDArray>> resultList = new ArrayList<>(stackedImages.size(0));
+    for (int row = 0; row < stackedImages.size(0); row++) {
+
+      INDArray playgroundImage4dRow = stackedImages.get(
+          NDArrayIndex.interval(row, row + 1), NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.all());
+
+      resultList.add(new Pair<>(playgroundImage4dRow, stackedLabels.getRow(row)));
     }
 
     return resultList;
@@ -43,16 +175,17 @@ public class TicTacToeNeuralDataConverter {
       List<Pair<INDArray, INDArray>> adaptedPlaygroundsLabels) {
 
     int playgroundsLabelsSize = adaptedPlaygroundsLabels.size();
-    INDArray stackedPlaygrounds = Nd4j.zeros(playgroundsLabelsSize, COLUMN_NUMBER);
-    INDArray stackedLabels = Nd4j.zeros(playgroundsLabelsSize, COLUMN_NUMBER);
+    int numberOfFields = adaptedPlaygroundsLabels.isEmpty() ?
+        COLUMN_NUMBER : adaptedPlaygroundsLabels.get(0).getFirst().length();
+    INDArray stackedPlaygrounds = Nd4j.zeros(playgroundsLabelsSize, numberOfFields);
+    INDArray stackedLabels = Nd4j.zeros(playgroundsLabelsSize, numberOfFields);
 
-    for (int index = 0; index < playgroundsLabelsSize; index++) {
+    int index = 0;
+    for (Pair<INDArray, INDArray> playgroundLabel : adaptedPlaygroundsLabels) {
 
-      INDArray currentPlayground = adaptedPlaygroundsLabels.get(index).getFirst();
-      stackedPlaygrounds.putRow(index, currentPlayground);
-
-      INDArray currentLabel = adaptedPlaygroundsLabels.get(index).getSecond();
-      stackedLabels.putRow(index, currentLabel);
+      stackedPlaygrounds.putRow(index, playgroundLabel.getFirst());
+      stackedLabels.putRow(index, playgroundLabel.getSecond());
+      index++;
     }
 
     return new Pair<>(stackedPlaygrounds, stackedLabels);
@@ -65,13 +198,12 @@ public class TicTacToeNeuralDataConverter {
     INDArray stackedPlaygrounds = Nd4j.zeros(playgroundsLabelsSize, IMAGE_CHANNELS, IMAGE_SIZE, IMAGE_SIZE);
     INDArray stackedLabels = Nd4j.zeros(playgroundsLabelsSize, COLUMN_NUMBER);
 
-    for (int index = 0; index < playgroundsLabelsSize; index++) {
-
-      INDArray currentPlayground = adaptedPlaygroundsLabels.get(index).getFirst();
-      stackedPlaygrounds.putRow(index, currentPlayground);
+    int index = 0;
+    for (Pair<INDArray, INDArray> playgroundLabel : adaptedPlaygroundsLabels) {
 
-      INDArray currentLabel = adaptedPlaygroundsLabels.get(index).getSecond();
-      stackedLabels.putRow(index, currentLabel);
+      stackedPlaygrounds.putRow(index, playgroundLabel.getFirst());
+      stackedLabels.putRow(index, playgroundLabel.getSecond());
+      index++;
     }
 
     return new Pair<>(stackedPlaygrounds, stackedLabels);
@@ -106,9 +238,9 @@ public class TicTacToeNeuralDataConverter {
     }
 
     INDArray playgroundImage = Nd4j.create(IMAGE_CHANNELS, IMAGE_SIZE, IMAGE_SIZE);
-    playgroundImage.putRow(0, emptyArray);
-    playgroundImage.putRow(1, maxArray);
-    playgroundImage.putRow(2, minArray);
+    playgroundImage.putRow(EMPTY_CHANNEL, emptyArray);
+    playgroundImage.putRow(MAX_PLAYER_CHANNEL, maxArray);
+    playgroundImage.putRow(MIN_PLAYER_CHANNEL, minArray);
 
     return playgroundImage;
   }
@@ -118,11 +250,11 @@ public class TicTacToeNeuralDataConverter {
 
     List<Pair<INDArray, INDArray>> adaptedPlaygroundsLabels = new LinkedList<>();
 
-    for (int index = 0; index < allPlaygroundsResults.size(); index++) {
+    for (Pair<INDArray, INDArray> playgroundResult : allPlaygroundsResults) {
 
-      INDArray currentPlayground = allPlaygroundsResults.get(index).getFirst();
+      INDArray currentPlayground = playgroundResult.getFirst();
 
-      INDArray currentResult = allPlaygroundsResults.get(index).getSecond();
+      INDArray currentResult = playgroundResult.getSecond();
       INDArray adaptedResult = convertMiniMaxResultToBinaryNetLabel(currentPlayground, currentResult);
 
       adaptedPlaygroundsLabels.add(new Pair<>(currentPlayground, adaptedResult));
@@ -131,12 +263,231 @@ public class TicTacToeNeuralDataConverter {
     return adaptedPlaygroundsLabels;
   }
 
+  /**
+   * Converts stacked playgrounds and MiniMax results to stacked one hot labels
+   * in a single pass over primitive arrays, with the same labels as
+   * {@link #convertMiniMaxLabels(List)}.
+   * 
+   * @param stackedPlaygrounds [N, numberOfFields] playgrounds
+   * @param stackedResults [N, numberOfFields] MiniMax results
+   * @return [N, numberOfFields] labels
+   */
+  public static INDArray convertMiniMaxLabels(INDArray stackedPlaygrounds, INDArray stackedResults) {
+
+    int rows = stackedPlaygrounds.rows();
+    int numberOfFields = stackedPlaygrounds.columns();
+
+    double[] playgrounds = toRowMajorArray(stackedPlaygrounds);
+    double[] results = toRowMajorArray(stackedResults);
+    double[] labels = new double[rows * numberOfFields];
+
+    for (int offset = 0; offset < labels.length; offset += numberOfFields) {
+
+      convertMiniMaxResultToBinaryNetLabel(playgrounds, results, offset, numberOfFields, labels);
+    }
+
+    return Nd4j.create(labels, new int[] {rows, numberOfFields});
+  }
+
+  /**
+   * @param childValues MiniMax values of every move per playground, see
+   *          {@link ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeBitboardMiniMaxGenerator#readChildValues(int, double[], int)}
+   * @return [rows, numberOfFields] policy targets and [rows, 1] position values,
+   *         see {@link #convertChildValuesToPolicyValueTarget(double[], double[], int, int, double[])}
+   */
+  public static Pair<INDArray, INDArray> convertChildValuesToPolicyValueTargets(double[] playgrounds,
+      double[] childValues, int rows, int numberOfFields) {
+
+    double[] policyTargets = new double[rows * numberOfFields];
+    double[] values = new double[rows];
+
+    for (int row = 0; row < rows; row++) {
+
+      values[row] = convertChildValuesToPolicyValueTarget(
+          playgrounds, childValues, row * numberOfFields, numberOfFields, policyTargets);
+    }
+
+    return new Pair<>(Nd4j.create(policyTargets, new int[] {rows, numberOfFields}),
+        Nd4j.create(values, new int[] {rows, 1}));
+  }
+
+  /**
+   * Spreads the policy target of the row starting at offset evenly over all
+   * optimal moves, the moves with the best MiniMax value for the player to
+   * move. The policy row is expected to be zero. Child values may have any win
+   * value of at least {@link #SMALLEST_MAX_WIN}, e.g. the number of fields plus
+   * one of the KInARowAlphaBetaGenerator.
+   *
+   * @return {@link #POSITION_WIN_VALUE}, {@link #POSITION_LOSS_VALUE} or
+   *         DRAW_VALUE for the player to move
+   */
+  public static double convertChildValuesToPolicyValueTarget(double[] playgrounds, double[] childValues,
+      int offset, int numberOfFields, double[] policyTargets) {
+
+    int numberOfStones = 0;
+    for (int index = offset; index < offset + numberOfFields; index++) {
+
+      if (!equals(playgrounds[index], EMPTY_FIELD_VALUE, DOUBLE_COMPARISON_EPSILON)) {
+
+        numberOfStones++;
+      }
+    }
+
+    boolean maxMove = numberOfStones % 2 == 0;
+    double bestValue = maxMove ? -Double.MAX_VALUE : Double.MAX_VALUE;
+
+    for (int index = offset; index < offset + numberOfFields; index++) {
+
+      if (equals(playgrounds[index], EMPTY_FIELD_VALUE, DOUBLE_COMPARISON_EPSILON)) {
+
+        bestValue = maxMove ? Math.max(bestValue, childValues[index]) : Math.min(bestValue, childValues[index]);
+      }
+    }
+
+    int numberOfOptimalMoves = 0;
+    for (int index = offset; index < offset + numberOfFields; index++) {
+
+      if (equals(playgrounds[index], EMPTY_FIELD_VALUE, DOUBLE_COMPARISON_EPSILON) &&
+          equals(childValues[index], bestValue, DOUBLE_COMPARISON_EPSILON)) {
+
+        numberOfOptimalMoves++;
+      }
+    }
+
+    for (int index = offset; index < offset + numberOfFields; index++) {
+
+      if (equals(playgrounds[index], EMPTY_FIELD_VALUE, DOUBLE_COMPARISON_EPSILON) &&
+          equals(childValues[index], bestValue, DOUBLE_COMPARISON_EPSILON)) {
+
+        policyTargets[index] = 1.0 / numberOfOptimalMoves;
+      }
+    }
+
+    if (bestValue >= SMALLEST_MAX_WIN) {
+
+      return maxMove ? POSITION_WIN_VALUE : POSITION_LOSS_VALUE;
+
+    } else if (bestValue <= BIGGEST_MIN_WIN) {
+
+      return maxMove ? POSITION_LOSS_VALUE : POSITION_WIN_VALUE;
+    }
+
+    return DRAW_VALUE;
+  }
+
+  /**
+   * Primitive variant of {@link #convertMiniMaxResultToBinaryNetLabel(INDArray, INDArray)}
+   * for the row starting at offset. The label row is expected to be zero.
+   */
+  public static void convertMiniMaxResultToBinaryNetLabel(double[] playgrounds, double[] results, int offset,
+      int numberOfFields, double[] labels) {
+
+    int numberOfDrawMoves = 0;
+    int numberOfMaxWins = 0;
+    int numberOfMinWins = 0;
+    int numberOfStones = 0;
+    for (int index = offset; index < offset + numberOfFields; index++) {
+
+      boolean emptyField = equals(playgrounds[index], EMPTY_FIELD_VALUE, DOUBLE_COMPARISON_EPSILON);
+
+      if (!emptyField) {
+
+        numberOfStones++;
+      }
+
+      if (emptyField && equals(results[index], DRAW_VALUE, DOUBLE_COMPARISON_EPSILON)) {
+
+        numberOfDrawMoves++;
+
+      } else if (results[index] >= SMALLEST_MAX_WIN) {
+
+        numberOfMaxWins++;
+
+      } else if (results[index] <= BIGGEST_MIN_WIN) {
+
+        numberOfMinWins++;
+      }
+    }
+
+    boolean maxMove = numberOfStones % 2 == 0;
+    int labelIndex = -1;
+
+    if (maxMove && numberOfMaxWins > 0) {
+
+      double fastestWinFieldValue = SMALLEST_MAX_WIN - DEPTH_ADVANTAGE;
+      int winFieldsFound = 0;
+      for (int index = offset; index < offset + numberOfFields && winFieldsFound < numberOfMaxWins; index++) {
+
+        if (results[index] > fastestWinFieldValue) {
+
+          fastestWinFieldValue = results[index];
+          labelIndex = index;
+          winFieldsFound++;
+        }
+      }
+
+    } else if (!maxMove && numberOfMinWins > 0) {
+
+      double fastestWinFieldValue = BIGGEST_MIN_WIN + DEPTH_ADVANTAGE;
+      int winFieldsFound = 0;
+      for (int index = offset; index < offset + numberOfFields && winFieldsFound < numberOfMinWins; index++) {
+
+        if (results[index] < fastestWinFieldValue) {
+
+          fastestWinFieldValue = results[index];
+          labelIndex = index;
+          winFieldsFound++;
+        }
+      }
+
+    } else if (numberOfDrawMoves > 0) {
+
+      for (int index = offset; index < offset + numberOfFields && labelIndex < 0; index++) {
+
+        if (equals(playgrounds[index], EMPTY_FIELD_VALUE, DOUBLE_COMPARISON_EPSILON) &&
+            equals(results[index], DRAW_VALUE, DOUBLE_COMPARISON_EPSILON)) {
+
+          labelIndex = index;
+        }
+      }
+
+    } else {
+
+      for (int index = offset; index < offset + numberOfFields && labelIndex < 0; index++) {
+
+        if (equals(playgrounds[index], EMPTY_FIELD_VALUE, DOUBLE_COMPARISON_EPSILON)) {
+
+          labelIndex = index;
+        }
+      }
+    }
+
+    if (labelIndex >= 0) {
+
+      labels[labelIndex] = 1.0;
+    }
+  }
+
+  /**
+   * @return the elements of the matrix in row major order
+   */
+  public static double[] toRowMajorArray(INDArray matrix) {
+
+    INDArray contiguousMatrix = matrix.isView() || matrix.ordering() != 'c' ? matrix.dup('c') : matrix;
+
+    return contiguousMatrix.data().asDouble();
+  }
+
+  /**
+   * Playgrounds and results may have any number of fields, e.g. generated by
+   * the KInARowAlphaBetaGenerator.
+   */
   protected static INDArray convertMiniMaxResultToBinaryNetLabel(INDArray currentPlayground, INDArray currentResult) {
 
     int numberOfDrawMoves = 0;
     int numberOfMaxWins = 0;
     int numberOfMinWins = 0;
-    for (int arrayIndex = 0; arrayIndex < COLUMN_NUMBER; arrayIndex++) {
+    for (int arrayIndex = 0; arrayIndex < currentPlayground.length(); arrayIndex++) {
 
       if (equals(currentPlayground.getDouble(0, arrayIndex), EMPTY_FIELD_VALUE, DOUBLE_COMPARISON_EPSILON) &&
           equals(currentResult.getDouble(0, arrayIndex), DRAW_VALUE, DOUBLE_COMPARISON_EPSILON)) {
@@ -177,12 +528,13 @@ public class TicTacToeNeuralDataConverter {
 
   protected static INDArray handleMaxWinPosition(INDArray currentResult, int maxWins) {
 
-    INDArray adaptedResult = Nd4j.zeros(ROW_NUMBER, COLUMN_NUMBER);
+    int numberOfFields = currentResult.length();
+    INDArray adaptedResult = Nd4j.zeros(ROW_NUMBER, numberOfFields);
     double maxValue = 1.0;
 
     int winFieldsFound = 0;
     double fastestWinFieldValue = SMALLEST_MAX_WIN - DEPTH_ADVANTAGE;
-    for (int arrayIndex = 0; arrayIndex < 9 && winFieldsFound < maxWins; arrayIndex++) {
+    for (int arrayIndex = 0; arrayIndex < numberOfFields && winFieldsFound < maxWins; arrayIndex++) {
 
       double currentWinFieldValue = currentResult.getDouble(0, arrayIndex);
 
@@ -190,7 +542,7 @@ public class TicTacToeNeuralDataConverter {
 
         fastestWinFieldValue = currentWinFieldValue;
 
-        adaptedResult = Nd4j.zeros(ROW_NUMBER, COLUMN_NUMBER);
+        adaptedResult = Nd4j.zeros(ROW_NUMBER, numberOfFields);
         adaptedResult.putScalar(0, arrayIndex, maxValue);
 
         winFieldsFound++;
@@ -201,18 +553,19 @@ public class TicTacToeNeuralDataConverter {
 
   protected static INDArray handleMinWinPosition(INDArray currentResult, int minWins) {
 
-    INDArray adaptedResult = Nd4j.zeros(ROW_NUMBER, COLUMN_NUMBER);
+    int numberOfFields = currentResult.length();
+    INDArray adaptedResult = Nd4j.zeros(ROW_NUMBER, numberOfFields);
     double minValue = 1.0;
 
     int winFieldsFound = 0;
     double fastestWinFieldValue = BIGGEST_MIN_WIN + DEPTH_ADVANTAGE;
-    for (int arrayIndex = 0; arrayIndex < 9 && winFieldsFound < minWins; arrayIndex++) {
+    for (int arrayIndex = 0; arrayIndex < numberOfFields && winFieldsFound < minWins; arrayIndex++) {
 
       double currentWinFieldValue = currentResult.getDouble(0, arrayIndex);
 
       if (currentWinFieldValue < fastestWinFieldValue) {
 
-        adaptedResult = Nd4j.zeros(ROW_NUMBER, COLUMN_NUMBER);
+        adaptedResult = Nd4j.zeros(ROW_NUMBER, numberOfFields);
 
         fastestWinFieldValue = currentWinFieldValue;
         adaptedResult.putScalar(0, arrayIndex, minValue);
@@ -225,14 +578,15 @@ public class TicTacToeNeuralDataConverter {
 
   protected static INDArray handleDrawPosition(INDArray currentPlayground, INDArray currentResult, int draws) {
 
-    INDArray adaptedResult = Nd4j.zeros(ROW_NUMBER, COLUMN_NUMBER);
+    int numberOfFields = currentPlayground.length();
+    INDArray adaptedResult = Nd4j.zeros(ROW_NUMBER, numberOfFields);
 
     double drawValue = 1.0;
 
     int drawFieldFound = 0;
     int randomDrawField = 0; // Add randomGenerator.nextInt(draws) for more diversity, but 
                              // generates different labels for subsequent invocations
-    for (int arrayIndex = 0; arrayIndex < 9 && drawFieldFound <= randomDrawField; arrayIndex++) {
+    for (int arrayIndex = 0; arrayIndex < numberOfFields && drawFieldFound <= randomDrawField; arrayIndex++) {
 
       if (equals(currentPlayground.getDouble(0, arrayIndex), EMPTY_FIELD_VALUE, DOUBLE_COMPARISON_EPSILON) &&
           equals(currentResult.getDouble(0, arrayIndex), DRAW_VALUE, DOUBLE_COMPARISON_EPSILON)) {
@@ -254,9 +608,10 @@ public class TicTacToeNeuralDataConverter {
     double lossValue = 1.0;
     // Take the first found empty field leading to loss
     boolean lossFieldFound = false;
-    INDArray adaptedResult = Nd4j.zeros(ROW_NUMBER, COLUMN_NUMBER);
+    int numberOfFields = currentPlayground.length();
+    INDArray adaptedResult = Nd4j.zeros(ROW_NUMBER, numberOfFields);
 
-    for (int arrayIndex = 0; arrayIndex < 9 && !lossFieldFound; arrayIndex++) {
+    for (int arrayIndex = 0; arrayIndex < numberOfFields && !lossFieldFound; arrayIndex++) {
 
       if (equals(currentPlayground.getDouble(0, arrayIndex), EMPTY_FIELD_VALUE, DOUBLE_COMPARISON_EPSILON)) {
 
@@ -271,7 +626,7 @@ public class TicTacToeNeuralDataConverter {
   protected static boolean isMaxMove(INDArray playground) {
 
     int countStones = 0;
-    for (int arrayIndex = 0; arrayIndex < 9; arrayIndex++) {
+    for (int arrayIndex = 0; arrayIndex < playground.length(); arrayIndex++) {
 
       if (!equals(playground.getDouble(0, arrayIndex), EMPTY_FIELD_VALUE, DOUBLE_COMPARISON_EPSILON)) {
 
@@ -4,20 +4,22 @@ import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
 import static ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralNetConstants.*;
 
 import java.io.IOException;
-import java.util.List;
 
-import org.deeplearning4j.datasets.iterator.INDArrayDataSetIterator;
 import org.deeplearning4j.earlystopping.EarlyStoppingConfiguration;
+import org.deeplearning4j.earlystopping.EarlyStoppingResult;
 import org.deeplearning4j.earlystopping.saver.InMemoryModelSaver;
 import org.deeplearning4j.earlystopping.scorecalc.DataSetLossCalculatorCG;
 import org.deeplearning4j.earlystopping.termination.MaxEpochsTerminationCondition;
 import org.deeplearning4j.earlystopping.termination.MaxScoreIterationTerminationCondition;
 import org.deeplearning4j.earlystopping.trainer.EarlyStoppingGraphTrainer;
+import org.deeplearning4j.earlystopping.trainer.IEarlyStoppingTrainer;
 import org.deeplearning4j.eval.Evaluation;
 import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration.GraphBuilder;
 import org.deeplearning4j.nn.conf.ConvolutionMode;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.conf.Updater;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
 import org.deeplearning4j.nn.conf.graph.PreprocessorVertex;
 import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
 import org.deeplearning4j.nn.conf.layers.DenseLayer;
@@ -25,17 +27,25 @@ import org.deeplearning4j.nn.conf.layers.OutputLayer;
 import org.deeplearning4j.nn.conf.preprocessor.CnnToFeedForwardPreProcessor;
 import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.weights.WeightInit;
+import org.deeplearning4j.parallelism.EarlyStoppingParallelTrainer;
 import org.nd4j.linalg.activations.Activation;
 import org.nd4j.linalg.api.ndarray.INDArray;
-import org.nd4j.linalg.dataset.api.DataSet;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.nd4j.linalg.factory.Nd4j;
-import org.nd4j.linalg.primitives.Pair;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.BinaryNeuralDataFile;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.ChunkedEvaluation;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.CloseableDataSetIterator;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.ModelStore;
 import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralDataHelper;
-import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.TicTacToeNeuralDataConverter;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.PlaygroundsResultsSource;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.StreamingDataSetIterator;
+import ch.evolutionsoft.example.dl4j.tictactoe.feedforward.FeedForwardCommon;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.MetricsTrainingListener;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
 
 public class ConvolutionalNetMain {
 
@@ -47,28 +57,41 @@ public class ConvolutionalNetMain {
 
   public static final int CNN_OUTPUT_CHANNELS = 3;
 
+  public static final int DENSE_LAYER_SIZE = 131;
+
+  public static final String MODEL_NAME = "convolutional";
+
+  public static final String POLICY_OUTPUT_LAYER_NAME = "PolicyOutputLayer";
+  public static final String VALUE_OUTPUT_LAYER_NAME = "ValueOutputLayer";
+
   private static final Logger logger = LoggerFactory.getLogger(ConvolutionalNetMain.class);
 
   public static void main(String[] args) throws Exception {
 
+    StartupTimer.logStartup(ConvolutionalNetMain.class);
+    StartupTimer.initializeNd4j();
+
     ConvolutionalNetMain convolutionalNetMain = new ConvolutionalNetMain();
 
-    ComputationGraph convolutionalNet = convolutionalNetMain.buildNetwork();
+    BinaryNeuralDataFile playgroundsResults = NeuralDataHelper.openLabeledData();
+
+    ComputationGraph convolutionalNet;
+    try (CloseableDataSetIterator dataSetIterator = convolutionalNetMain.createDataSetIterator(playgroundsResults)) {
+
+      convolutionalNet = convolutionalNetMain.restoreOrTrainNetwork(
+          playgroundsResults, dataSetIterator, FeedForwardCommon.isResumeTraining(args));
+    }
 
     if (logger.isInfoEnabled()) {
       logger.info(convolutionalNet.summary());
     }
 
-    DataSet dataSet = convolutionalNetMain.trainNetwork(convolutionalNet);
-
-    convolutionalNetMain.evaluateNetwork(convolutionalNet, dataSet);
+    convolutionalNetMain.evaluateNetwork(convolutionalNet, playgroundsResults);
   }
 
-  protected void evaluateNetwork(ComputationGraph graphNetwork, DataSet dataSet) {
+  protected void evaluateNetwork(ComputationGraph graphNetwork, PlaygroundsResultsSource playgroundsResults) {
 
-    INDArray output = graphNetwork.outputSingle(dataSet.getFeatures());
-    Evaluation eval = new Evaluation(COLUMN_NUMBER);
-    eval.eval(dataSet.getLabels(), output);
+    Evaluation eval = ChunkedEvaluation.evaluate(playgroundsResults, true, graphNetwork::outputSingle);
 
     if (logger.isInfoEnabled()) {
       logger.info(eval.stats());
@@ -110,30 +133,87 @@ public class ConvolutionalNetMain {
     return graphSingleBatchInput2;
   }
 
-  protected DataSet trainNetwork(ComputationGraph net)
-      throws IOException {
+  /**
+   * Streams the playground images and converted labels in minibatches.
+   */
+  protected CloseableDataSetIterator createDataSetIterator(PlaygroundsResultsSource playgroundsResults) {
+
+    NeuralDataHelper.printRandomNetInputAndLabels(playgroundsResults, true, DEFAULT_FEATURE_EXAMPLE_NUMBER_LOG);
 
-    List<Pair<INDArray, INDArray>> allPlaygroundsResults = NeuralDataHelper.readAll();
+    return new StreamingDataSetIterator(playgroundsResults, DEFAULT_BATCH_SIZE, true);
+  }
+
+  /**
+   * Restores the stored net if it was trained with the same configuration and
+   * data, unless training should be resumed. A stored net of the same
+   * configuration is trained further, otherwise a new one is trained. The best
+   * net is stored afterwards.
+   */
+  protected ComputationGraph restoreOrTrainNetwork(PlaygroundsResultsSource playgroundsResults,
+      DataSetIterator dataSetIterator, boolean resumeTraining) throws IOException {
 
-    List<Pair<INDArray, INDArray>> trainDataSetPairsList =
-        TicTacToeNeuralDataConverter.convertMiniMaxPlaygroundLabelsToConvolutionalData(allPlaygroundsResults);
+    ModelStore modelStore = new ModelStore();
+    String configurationHash = ModelStore.configurationHash(createConvolutionalGraphConfiguration().toJson());
+    String dataHash = ModelStore.dataHash(playgroundsResults);
 
-    NeuralDataHelper.printRandomConvolutionalNetInputAndLabels(trainDataSetPairsList,
-        DEFAULT_FEATURE_EXAMPLE_NUMBER_LOG);
+    ModelStore.State state = modelStore.getState(MODEL_NAME, configurationHash, dataHash);
+    logger.info("Stored model {} is {}", MODEL_NAME, state);
 
-    DataSetIterator dataSetIterator = new INDArrayDataSetIterator(trainDataSetPairsList, DEFAULT_BATCH_SIZE);
+    if (state == ModelStore.State.CURRENT && !resumeTraining) {
+
+      return modelStore.restoreComputationGraph(MODEL_NAME);
+    }
+
+    ComputationGraph net = state == ModelStore.State.CURRENT || state == ModelStore.State.STALE_DATA ?
+        modelStore.restoreComputationGraph(MODEL_NAME) :
+        buildNetwork();
+
+    ComputationGraph bestNet = trainNetwork(net, dataSetIterator);
+    modelStore.save(MODEL_NAME, bestNet, configurationHash, dataHash);
+
+    return bestNet;
+  }
+
+  protected ComputationGraph trainNetwork(ComputationGraph net, DataSetIterator dataSetIterator)
+      throws IOException {
+
+    return trainNetwork(MODEL_NAME, net, dataSetIterator, CONVOLUTION_NUMBER_OF_EPOCHS);
+  }
+
+  /**
+   * Trains on the current thread or on averaged replicas if multiple training
+   * workers are configured, publishing iteration metrics like
+   * {@link MetricsTrainingListener#fromSystemProperties(String)}.
+   *
+   * @return the best net found by early stopping within the maximum number of
+   *         epochs
+   */
+  public ComputationGraph trainNetwork(String modelName, ComputationGraph net, DataSetIterator dataSetIterator,
+      int maxNumberOfEpochs) throws IOException {
 
     EarlyStoppingConfiguration<ComputationGraph> earlyStoppingConfiguration =
-        createEarlyStoppingConfiguration(dataSetIterator);
+        createEarlyStoppingConfiguration(dataSetIterator, maxNumberOfEpochs);
+
+    int trainingWorkers = FeedForwardCommon.getTrainingWorkers();
+    logger.info("Train with {} worker(s)", trainingWorkers);
+
+    EarlyStoppingResult<ComputationGraph> result;
+    try (MetricsTrainingListener metricsListener = MetricsTrainingListener.fromSystemProperties(modelName)) {
 
-    EarlyStoppingGraphTrainer trainer = new EarlyStoppingGraphTrainer(earlyStoppingConfiguration, net, dataSetIterator);
+      net.addListeners(metricsListener);
 
-    trainer.fit();
+      IEarlyStoppingTrainer<ComputationGraph> trainer = trainingWorkers > 1 ?
+          new EarlyStoppingParallelTrainer<>(earlyStoppingConfiguration, net, dataSetIterator, null,
+              trainingWorkers, PARALLEL_PREFETCH_BATCHES, PARALLEL_AVERAGING_FREQUENCY) :
+          new EarlyStoppingGraphTrainer(earlyStoppingConfiguration, net, dataSetIterator);
 
-    Pair<INDArray, INDArray> stackedPlaygroundLabels =
-        TicTacToeNeuralDataConverter.stackConvolutionalPlaygroundLabels(trainDataSetPairsList);
+      result = trainer.fit();
+    }
+
+    logger.info("Best net of epoch {} with score {}, {}", result.getBestModelEpoch(),
+        result.getBestModelScore(), result.getTerminationDetails());
 
-    return new org.nd4j.linalg.dataset.DataSet(stackedPlaygroundLabels.getFirst(), stackedPlaygroundLabels.getSecond());
+    return result.getBestModel();
   }
 
   protected ComputationGraph buildNetwork() {
@@ -150,12 +230,40 @@ public class ConvolutionalNetMain {
 
   protected ComputationGraphConfiguration createConvolutionalGraphConfiguration() {
 
+    return createConvolutionalGraphConfiguration(CONVOLUTION_LEARNING_RATE, NET_ITERATIONS, CNN_OUTPUT_CHANNELS,
+        DENSE_LAYER_SIZE);
+  }
+
+  public ComputationGraphConfiguration createConvolutionalGraphConfiguration(double learningRate, int iterations,
+      int cnnOutputChannels, int denseLayerSize) {
+
+    return createConvolutionalGraphBuilder(learningRate, iterations, cnnOutputChannels, denseLayerSize)
+        .addLayer(DEFAULT_OUTPUT_LAYER_NAME, new OutputLayer.Builder()
+            .nIn(denseLayerSize)
+            .nOut(9)
+            .activation(Activation.SOFTMAX)
+            .build(), "fc0")
+        .setOutputs(DEFAULT_OUTPUT_LAYER_NAME)
+        .pretrain(false)
+        .backprop(true)
+        .build();
+  }
+
+  /**
+   * Convolution and dense layer "fc0" shared by the single and the two headed
+   * graph.
+   */
+  protected GraphBuilder createConvolutionalGraphBuilder(double learningRate, int iterations,
+      int cnnOutputChannels, int denseLayerSize) {
+
     return new NeuralNetConfiguration.Builder()
         .seed(DEFAULT_SEED)
-        .iterations(NET_ITERATIONS)
+        .iterations(iterations)
         .updater(Updater.ADAM)
         .convolutionMode(ConvolutionMode.Strict)
-        .learningRate(CONVOLUTION_LEARNING_RATE)
+        .trainingWorkspaceMode(WorkspaceMode.SEPARATE)
+        .inferenceWorkspaceMode(WorkspaceMode.SINGLE)
+        .learningRate(learningRate)
         .weightInit(WeightInit.XAVIER)
         .graphBuilder()
         .addInputs(DEFAULT_INPUT_LAYER_NAME)
@@ -164,35 +272,60 @@ public class ConvolutionalNetMain {
             .stride(1, 1)
             .padding(0, 0)
             .nIn(IMAGE_CHANNELS)
-            .nOut(CNN_OUTPUT_CHANNELS)
+            .nOut(cnnOutputChannels)
             .activation(Activation.ELU)
             .build(), DEFAULT_INPUT_LAYER_NAME)
         .addVertex("fc0-pre",
-            new PreprocessorVertex(new CnnToFeedForwardPreProcessor(IMAGE_SIZE, IMAGE_SIZE, CNN_OUTPUT_CHANNELS)),
+            new PreprocessorVertex(new CnnToFeedForwardPreProcessor(IMAGE_SIZE, IMAGE_SIZE, cnnOutputChannels)),
             "cnn0")
         .addLayer("fc0",
             new DenseLayer.Builder()
-                .nIn(27)
-                .nOut(131)
+                .nIn(IMAGE_SIZE * IMAGE_SIZE * cnnOutputChannels)
+                .nOut(denseLayerSize)
                 .activation(Activation.SIGMOID)
                 .build(),
-            "fc0-pre")
-        .addLayer(DEFAULT_OUTPUT_LAYER_NAME, new OutputLayer.Builder()
-            .nIn(131)
-            .nOut(9)
+            "fc0-pre");
+  }
+
+  public ComputationGraphConfiguration createPolicyValueGraphConfiguration() {
+
+    return createPolicyValueGraphConfiguration(CONVOLUTION_LEARNING_RATE, NET_ITERATIONS, CNN_OUTPUT_CHANNELS,
+        DENSE_LAYER_SIZE);
+  }
+
+  /**
+   * Variant of the convolutional graph with two outputs on the same dense
+   * layer: the softmax move policy, trained on all optimal moves, and the tanh
+   * position value for the player to move. Features are the images of
+   * {@link #createConvolutionalGraphConfiguration(double, int, int, int)},
+   * labels the pair of
+   * {@link ch.evolutionsoft.example.dl4j.tictactoe.commonnet.TicTacToeNeuralDataConverter#convertChildValuesToPolicyValueTargets(double[], double[], int, int)}.
+   */
+  public ComputationGraphConfiguration createPolicyValueGraphConfiguration(double learningRate, int iterations,
+      int cnnOutputChannels, int denseLayerSize) {
+
+    return createConvolutionalGraphBuilder(learningRate, iterations, cnnOutputChannels, denseLayerSize)
+        .addLayer(POLICY_OUTPUT_LAYER_NAME, new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+            .nIn(denseLayerSize)
+            .nOut(COLUMN_NUMBER)
             .activation(Activation.SOFTMAX)
             .build(), "fc0")
-        .setOutputs(DEFAULT_OUTPUT_LAYER_NAME)
+        .addLayer(VALUE_OUTPUT_LAYER_NAME, new OutputLayer.Builder(LossFunctions.LossFunction.MSE)
+            .nIn(denseLayerSize)
+            .nOut(1)
+            .activation(Activation.TANH)
+            .build(), "fc0")
+        .setOutputs(POLICY_OUTPUT_LAYER_NAME, VALUE_OUTPUT_LAYER_NAME)
         .pretrain(false)
         .backprop(true)
         .build();
   }
 
   protected EarlyStoppingConfiguration<ComputationGraph> createEarlyStoppingConfiguration(
-      DataSetIterator dataSetIterator) {
+      DataSetIterator dataSetIterator, int maxNumberOfEpochs) {
 
     return new EarlyStoppingConfiguration.Builder<ComputationGraph>()
-        .epochTerminationConditions(new MaxEpochsTerminationCondition(CONVOLUTION_NUMBER_OF_EPOCHS))
+        .epochTerminationConditions(new MaxEpochsTerminationCondition(maxNumberOfEpochs))
         .iterationTerminationConditions(new MaxScoreIterationTerminationCondition(DEFAULT_MAX_SCORE_EARLY_STOP))
         .scoreCalculator(new DataSetLossCalculatorCG(dataSetIterator, true))
         .evaluateEveryNEpochs(1)
@@ -0,0 +1,164 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.convolutional;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.MultiDataSet;
+import org.nd4j.linalg.primitives.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.PositionCache;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.DatasetStages;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.ModelStore;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.TicTacToeNeuralDataConverter;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.MetricsTrainingListener;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
+
+/**
+ * Trains the two headed policy and value graph of
+ * {@link ConvolutionalNetMain#createPolicyValueGraphConfiguration()} on all
+ * optimal moves and the position values, both taken from the move values the
+ * generator records in its single MiniMax pass and the {@link DatasetStages}
+ * cache between runs.
+ *
+ * Training stops once the predicted move of
+ * {@value #TARGET_OPTIMAL_MOVE_ACCURACY} of the playgrounds is one of their
+ * optimal moves, the number of epochs needed is logged. The trained graph is
+ * kept in the {@link ModelStore} as {@value #MODEL_NAME}.
+ */
+public class PolicyValueNetMain {
+
+  public static final String MODEL_NAME = "policyValue";
+
+  public static final double TARGET_OPTIMAL_MOVE_ACCURACY = 0.99;
+
+  private static final Logger logger = LoggerFactory.getLogger(PolicyValueNetMain.class);
+
+  public static void main(String[] args) throws IOException {
+
+    StartupTimer.logStartup(PolicyValueNetMain.class);
+
+    PositionCache positionCache = new DatasetStages().buildPositionCache();
+
+    StartupTimer.initializeNd4j();
+    PolicyValueNetMain policyValueNetMain = new PolicyValueNetMain();
+    MultiDataSet policyValueData = policyValueNetMain.createPolicyValueData(positionCache);
+
+    ComputationGraphConfiguration configuration = new ConvolutionalNetMain().createPolicyValueGraphConfiguration();
+    ComputationGraph net = new ComputationGraph(configuration);
+    net.init();
+
+    policyValueNetMain.train(net, policyValueData);
+
+    new ModelStore().save(MODEL_NAME, net, ModelStore.configurationHash(configuration.toJson()),
+        ModelStore.dataHash(positionCache));
+    logger.info("Stored policy value net {}", MODEL_NAME);
+  }
+
+  /**
+   * @return playground images with policy targets and position values
+   */
+  public MultiDataSet createPolicyValueData(PositionCache positionCache) {
+
+    int rows = positionCache.getRows();
+    double[] playgrounds = new double[rows * COLUMN_NUMBER];
+    double[] childValues = new double[rows * COLUMN_NUMBER];
+
+    for (int row = 0; row < rows; row++) {
+
+      positionCache.readPlayground(row, playgrounds, row * COLUMN_NUMBER);
+      positionCache.readChildValues(row, childValues, row * COLUMN_NUMBER);
+    }
+
+    INDArray features = TicTacToeNeuralDataConverter.createNetInput(playgrounds, rows, COLUMN_NUMBER, true);
+    Pair<INDArray, INDArray> policyValueTargets =
+        TicTacToeNeuralDataConverter.convertChildValuesToPolicyValueTargets(playgrounds, childValues, rows,
+            COLUMN_NUMBER);
+
+    return new MultiDataSet(new INDArray[] {features},
+        new INDArray[] {policyValueTargets.getFirst(), policyValueTargets.getSecond()});
+  }
+
+  /**
+   * @return the number of trained epochs
+   */
+  public int train(ComputationGraph net, MultiDataSet policyValueData) throws IOException {
+
+    int epoch = 0;
+    try (MetricsTrainingListener metricsListener = MetricsTrainingListener.fromSystemProperties(MODEL_NAME)) {
+
+      net.addListeners(metricsListener);
+
+      double optimalMoveAccuracy = 0;
+      while (epoch < ConvolutionalNetMain.CONVOLUTION_NUMBER_OF_EPOCHS &&
+          optimalMoveAccuracy < TARGET_OPTIMAL_MOVE_ACCURACY) {
+
+        metricsListener.onEpochStart(net);
+        net.fit(policyValueData);
+        metricsListener.onEpochEnd(net);
+        epoch++;
+
+        INDArray[] outputs = net.output(policyValueData.getFeatures());
+        optimalMoveAccuracy = optimalMoveAccuracy(outputs[0], policyValueData.getLabels()[0]);
+
+        logger.info("Epoch {}: optimal move accuracy {}, value mean squared error {}", epoch,
+            String.format(Locale.ROOT, "%.4f", optimalMoveAccuracy),
+            String.format(Locale.ROOT, "%.4f", meanSquaredError(outputs[1], policyValueData.getLabels()[1])));
+      }
+
+      logger.info("Optimal move accuracy {} after {} epochs", String.format(Locale.ROOT, "%.4f",
+          optimalMoveAccuracy), epoch);
+    }
+
+    return epoch;
+  }
+
+  /**
+   * @return the fraction of rows whose most probable move has a positive
+   *         policy target, i.e. is one of the optimal moves
+   */
+  protected static double optimalMoveAccuracy(INDArray policyOutput, INDArray policyTargets) {
+
+    int rows = policyOutput.rows();
+    int optimalMoves = 0;
+
+    for (int row = 0; row < rows; row++) {
+
+      int predictedMove = 0;
+      for (int field = 1; field < policyOutput.columns(); field++) {
+
+        if (policyOutput.getDouble(row, field) > policyOutput.getDouble(row, predictedMove)) {
+
+          predictedMove = field;
+        }
+      }
+
+      if (policyTargets.getDouble(row, predictedMove) > 0) {
+
+        optimalMoves++;
+      }
+    }
+
+    return rows == 0 ? 0 : (double) optimalMoves / rows;
+  }
+
+  protected static double meanSquaredError(INDArray valueOutput, INDArray values) {
+
+    int rows = valueOutput.rows();
+    double squaredErrorSum = 0;
+
+    for (int row = 0; row < rows; row++) {
+
+      double error = valueOutput.getDouble(row, 0) - values.getDouble(row, 0);
+      squaredErrorSum += error * error;
+    }
+
+    return rows == 0 ? 0 : squaredErrorSum / rows;
+  }
+}
@@ -4,27 +4,32 @@ import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
 import static ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralNetConstants.*;
 
 import java.io.IOException;
-import java.util.List;
 
-import org.deeplearning4j.datasets.iterator.INDArrayDataSetIterator;
 import org.deeplearning4j.earlystopping.EarlyStoppingConfiguration;
+import org.deeplearning4j.earlystopping.EarlyStoppingResult;
 import org.deeplearning4j.earlystopping.saver.InMemoryModelSaver;
 import org.deeplearning4j.earlystopping.scorecalc.DataSetLossCalculator;
 import org.deeplearning4j.earlystopping.termination.MaxEpochsTerminationCondition;
 import org.deeplearning4j.earlystopping.termination.MaxScoreIterationTerminationCondition;
 import org.deeplearning4j.earlystopping.trainer.EarlyStoppingTrainer;
+import org.deeplearning4j.earlystopping.trainer.IEarlyStoppingTrainer;
 import org.deeplearning4j.eval.Evaluation;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
-import org.nd4j.linalg.api.ndarray.INDArray;
-import org.nd4j.linalg.dataset.api.DataSet;
+import org.deeplearning4j.parallelism.EarlyStoppingParallelTrainer;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
-import org.nd4j.linalg.primitives.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.ChunkedEvaluation;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.CloseableDataSetIterator;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.ModelStore;
 import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralDataHelper;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.PlaygroundsResultsSource;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.StreamingDataSetIterator;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.SymmetryAugmentingDataSetIterator;
 import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.TicTacToeNeuralDataConverter;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.MetricsTrainingListener;
 
 public class FeedForwardCommon {
 
@@ -34,6 +39,8 @@ public class FeedForwardCommon {
 
   public static final double NESTEROVS_MOMENTUM = 0.99;
 
+  public static final String RESUME_TRAINING_ARGUMENT = "resume";
+
   protected MultiLayerNetwork createNetworkModel(MultiLayerConfiguration multiLayerConfiguration) {
 
     String message = "Build model ...";
@@ -45,52 +52,147 @@ public class FeedForwardCommon {
     return net;
   }
 
-  protected DataSet trainNetworkModel(MultiLayerNetwork net) throws IOException {
+  /**
+   * @return an iterator over all playgrounds in one batch, or in minibatches
+   *         to be distributed if multiple training workers are configured
+   */
+  protected CloseableDataSetIterator createDataSetIterator(PlaygroundsResultsSource playgroundsResults) {
+
+    int batchSize = getTrainingWorkers() > 1 ? DEFAULT_BATCH_SIZE : playgroundsResults.getRows();
+
+    return createDataSetIterator(playgroundsResults, batchSize);
+  }
+
+  /**
+   * Streams the playgrounds and converted labels in minibatches of the given
+   * size, or expands the shipped canonical playgrounds by their symmetries if
+   * the canonicalData system property is set.
+   */
+  protected CloseableDataSetIterator createDataSetIterator(PlaygroundsResultsSource playgroundsResults,
+      int batchSize) {
 
     String message = "Generate adapted net input and labels ...";
     logger.info(message);
 
-    List<Pair<INDArray, INDArray>> allPlaygrounds = NeuralDataHelper.readAll();
-    List<Pair<INDArray, INDArray>> convertedMiniMaxLabels = TicTacToeNeuralDataConverter.convertMiniMaxLabels(allPlaygrounds);
-    
-    List<Pair<INDArray, INDArray>> printExamples = NeuralDataHelper.printRandomFeedForwardNetInputAndLabels(
-        convertedMiniMaxLabels, DEFAULT_FEATURE_EXAMPLE_NUMBER_LOG);
-    NeuralDataHelper.printRandomMiniMaxData(printExamples, DEFAULT_FEATURE_EXAMPLE_NUMBER_LOG);
-    
-    DataSetIterator dataSetIterator = new INDArrayDataSetIterator(convertedMiniMaxLabels, allPlaygrounds.size());
+    NeuralDataHelper.printRandomNetInputAndLabels(playgroundsResults, false, DEFAULT_FEATURE_EXAMPLE_NUMBER_LOG);
+
+    return isCanonicalData() ?
+        new SymmetryAugmentingDataSetIterator(
+            TicTacToeNeuralDataConverter.convertMiniMaxLabels(NeuralDataHelper.readAllCanonical()), batchSize) :
+        new StreamingDataSetIterator(playgroundsResults, batchSize, false);
+  }
+
+  /**
+   * Restores the stored model if it was trained with the same configuration
+   * and data, unless training should be resumed. A stored model of the same
+   * configuration is trained further, otherwise a new one is trained. The best
+   * model is stored afterwards.
+   */
+  protected MultiLayerNetwork restoreOrTrainNetworkModel(String modelName,
+      MultiLayerConfiguration multiLayerConfiguration, PlaygroundsResultsSource playgroundsResults,
+      DataSetIterator dataSetIterator, boolean resumeTraining) throws IOException {
+
+    ModelStore modelStore = new ModelStore();
+    String configurationHash = ModelStore.configurationHash(multiLayerConfiguration.toJson());
+    String dataHash = ModelStore.dataHash(playgroundsResults);
+
+    ModelStore.State state = modelStore.getState(modelName, configurationHash, dataHash);
+    logger.info("Stored model {} is {}", modelName, state);
+
+    if (state == ModelStore.State.CURRENT && !resumeTraining) {
+
+      return modelStore.restoreMultiLayerNetwork(modelName);
+    }
+
+    MultiLayerNetwork net = state == ModelStore.State.CURRENT || state == ModelStore.State.STALE_DATA ?
+        modelStore.restoreMultiLayerNetwork(modelName) :
+        createNetworkModel(multiLayerConfiguration);
+
+    MultiLayerNetwork bestNet = trainNetworkModel(modelName, net, dataSetIterator);
+    modelStore.save(modelName, bestNet, configurationHash, dataHash);
+
+    return bestNet;
+  }
+
+  protected MultiLayerNetwork trainNetworkModel(String modelName, MultiLayerNetwork net,
+      DataSetIterator dataSetIterator) throws IOException {
+
+    return trainNetworkModel(modelName, net, dataSetIterator, DEFAULT_NUMBER_OF_EPOCHS);
+  }
+
+  /**
+   * Trains on the current thread or, if multiple training workers are
+   * configured, on replicas of the net whose parameters are averaged.
+   * Iteration metrics are published as described in
+   * {@link MetricsTrainingListener#fromSystemProperties(String)}.
+   *
+   * @return the best model found by early stopping within the maximum number
+   *         of epochs
+   */
+  public MultiLayerNetwork trainNetworkModel(String modelName, MultiLayerNetwork net,
+      DataSetIterator dataSetIterator, int maxNumberOfEpochs) throws IOException {
 
     EarlyStoppingConfiguration<MultiLayerNetwork> earlyStoppingConfiguration =
-        createEarlyStoppingConfiguration(dataSetIterator);
+        createEarlyStoppingConfiguration(dataSetIterator, maxNumberOfEpochs);
+
+    int trainingWorkers = getTrainingWorkers();
+    logger.info("Train with {} worker(s)", trainingWorkers);
 
-    EarlyStoppingTrainer trainer = new EarlyStoppingTrainer(earlyStoppingConfiguration, net, dataSetIterator);
+    EarlyStoppingResult<MultiLayerNetwork> result;
+    try (MetricsTrainingListener metricsListener = MetricsTrainingListener.fromSystemProperties(modelName)) {
+
+      net.addListeners(metricsListener);
+
+      IEarlyStoppingTrainer<MultiLayerNetwork> trainer = trainingWorkers > 1 ?
+          new EarlyStoppingParallelTrainer<>(earlyStoppingConfiguration, net, dataSetIterator, null,
+              trainingWorkers, PARALLEL_PREFETCH_BATCHES, PARALLEL_AVERAGING_FREQUENCY) :
+          new EarlyStoppingTrainer(earlyStoppingConfiguration, net, dataSetIterator);
+
+      result = trainer.fit();
+    }
 
-    trainer.fit();
+    logger.info("Best model of epoch {} with score {}, {}", result.getBestModelEpoch(),
+        result.getBestModelScore(), result.getTerminationDetails());
+
+    return result.getBestModel();
+  }
+
+  public static boolean isResumeTraining(String[] arguments) {
+
+    return arguments.length > 0 && RESUME_TRAINING_ARGUMENT.equals(arguments[0]);
+  }
+
+  public static boolean isCanonicalData() {
+
+    return Boolean.getBoolean(CANONICAL_DATA_PROPERTY);
+  }
 
-    Pair<INDArray, INDArray> stackedPlaygroundLabels =
-        TicTacToeNeuralDataConverter.stackFeedForwardPlaygroundLabels(convertedMiniMaxLabels);
+  /**
+   * @return the number of workers given by the trainingWorkers system
+   *         property, at least one
+   */
+  public static int getTrainingWorkers() {
 
-    return new org.nd4j.linalg.dataset.DataSet(stackedPlaygroundLabels.getFirst(), stackedPlaygroundLabels.getSecond());
+    return Math.max(1, Integer.getInteger(TRAINING_WORKERS_PROPERTY, DEFAULT_TRAINING_WORKERS));
   }
 
-  protected void evaluateNetworkPerformance(MultiLayerNetwork net, DataSet dataSet) {
+  protected void evaluateNetworkPerformance(MultiLayerNetwork net, PlaygroundsResultsSource playgroundsResults) {
 
-    INDArray output = net.output(dataSet.getFeatures());
-    Evaluation eval = new Evaluation(COLUMN_NUMBER);
-    eval.eval(dataSet.getLabels(), output);
+    Evaluation eval = ChunkedEvaluation.evaluate(playgroundsResults, false, net::output);
 
     if (logger.isInfoEnabled()) {
       logger.info(eval.stats());
     }
 
-    logger.info("Answer to center field opening: {}", net.output(CENTER_FIELD_MOVE));
-    logger.info("Answer to last corner field opening: {}", net.output(LAST_CORNER_FIELD_MOVE));
+    logger.info("Answer to center field opening: {}", net.output(centerFieldMove()));
+    logger.info("Answer to last corner field opening: {}", net.output(lastCornerFieldMove()));
   }
 
   protected EarlyStoppingConfiguration<MultiLayerNetwork> createEarlyStoppingConfiguration(
-      DataSetIterator dataSetIterator) {
+      DataSetIterator dataSetIterator, int maxNumberOfEpochs) {
 
     return new EarlyStoppingConfiguration.Builder<MultiLayerNetwork>()
-        .epochTerminationConditions(new MaxEpochsTerminationCondition(DEFAULT_NUMBER_OF_EPOCHS))
+        .epochTerminationConditions(new MaxEpochsTerminationCondition(maxNumberOfEpochs))
         .iterationTerminationConditions(new MaxScoreIterationTerminationCondition(DEFAULT_MAX_SCORE_EARLY_STOP))
         .scoreCalculator(new DataSetLossCalculator(dataSetIterator, true))
         .evaluateEveryNEpochs(1)
@@ -8,69 +8,97 @@ import java.io.IOException;
 import org.deeplearning4j.nn.api.OptimizationAlgorithm;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
 import org.deeplearning4j.nn.conf.layers.DenseLayer;
 import org.deeplearning4j.nn.conf.layers.OutputLayer;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.nn.weights.WeightInit;
 import org.nd4j.linalg.activations.Activation;
-import org.nd4j.linalg.dataset.api.DataSet;
 import org.nd4j.linalg.learning.config.Nesterovs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.BinaryNeuralDataFile;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.CloseableDataSetIterator;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralDataHelper;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
+
 /**
- * 
- * 
- * File storedNetworkFile = new File("storedNetworkFile.zip");
- * ModelSerializer.writeModel(net, storedNetworkFile, false);
+ * Feed forward net with one hidden layer. The best trained model is kept in
+ * the {@link ch.evolutionsoft.example.dl4j.tictactoe.commonnet.ModelStore} and
+ * restored on later starts, pass "resume" to train it further.
  */
 public class FeedForwardHiddenLayerMain {
 
-  private static final double LEARNING_RATE = 0.83;
+  public static final String MODEL_NAME = "feedForwardHiddenLayer";
+
+  public static final double LEARNING_RATE = 0.83;
+
+  public static final int INPUT_LAYER_SIZE = 75;
+
+  public static final int HIDDEN_LAYER_SIZE = 35;
 
   private static final Logger logger = LoggerFactory.getLogger(FeedForwardHiddenLayerMain.class);
 
   public static void main(String[] args) throws IOException {
 
+    StartupTimer.logStartup(FeedForwardHiddenLayerMain.class);
+    StartupTimer.initializeNd4j();
+
     FeedForwardHiddenLayerMain hiddenLayerSetup = new FeedForwardHiddenLayerMain();
 
     FeedForwardCommon feedForwardCommon = new FeedForwardCommon();
-    MultiLayerNetwork net = feedForwardCommon.createNetworkModel(hiddenLayerSetup.createHiddenLayerConfiguration());
+
+    BinaryNeuralDataFile playgroundsResults = NeuralDataHelper.openLabeledData();
+
+    MultiLayerNetwork net;
+    try (CloseableDataSetIterator dataSetIterator = feedForwardCommon.createDataSetIterator(playgroundsResults)) {
+
+      net = feedForwardCommon.restoreOrTrainNetworkModel(MODEL_NAME,
+          hiddenLayerSetup.createHiddenLayerConfiguration(),
+          playgroundsResults, dataSetIterator, isResumeTraining(args));
+    }
 
     if (logger.isInfoEnabled()) {
       logger.info(net.summary());
     }
 
-    DataSet dataSet = feedForwardCommon.trainNetworkModel(net);
-
-    feedForwardCommon.evaluateNetworkPerformance(net, dataSet);
+    feedForwardCommon.evaluateNetworkPerformance(net, playgroundsResults);
   }
 
   protected MultiLayerConfiguration createHiddenLayerConfiguration() {
 
+    return createHiddenLayerConfiguration(LEARNING_RATE, NET_ITERATIONS, INPUT_LAYER_SIZE, HIDDEN_LAYER_SIZE);
+  }
+
+  public MultiLayerConfiguration createHiddenLayerConfiguration(double learningRate, int iterations,
+      int inputLayerSize, int hiddenLayerSize) {
+
     return new NeuralNetConfiguration.Builder()
         .seed(DEFAULT_SEED)
         .optimizationAlgo(OptimizationAlgorithm.STOCHASTIC_GRADIENT_DESCENT)
-        .iterations(NET_ITERATIONS)
-        .learningRate(LEARNING_RATE)
+        .trainingWorkspaceMode(WorkspaceMode.SEPARATE)
+        .inferenceWorkspaceMode(WorkspaceMode.SINGLE)
+        .iterations(iterations)
+        .learningRate(learningRate)
         .weightInit(WeightInit.XAVIER)
         .updater(new Nesterovs(NESTEROVS_MOMENTUM))
         .list()
         .layer(0, new DenseLayer.Builder()
             .activation(Activation.SOFTSIGN)
             .nIn(9)
-            .nOut(75)
+            .nOut(inputLayerSize)
             .name(DEFAULT_INPUT_LAYER_NAME)
             .build())
         .layer(1, new DenseLayer.Builder()
             .activation(Activation.SIGMOID)
-            .nIn(75)
-            .nOut(35)
+            .nIn(inputLayerSize)
+            .nOut(hiddenLayerSize)
             .name(DEFAULT_HIDDEN_LAYER_NAME)
             .build())
         .layer(2, new OutputLayer.Builder()
             .activation(Activation.SOFTMAX)
-            .nIn(35)
+            .nIn(hiddenLayerSize)
             .nOut(9)
             .name(DEFAULT_OUTPUT_LAYER_NAME)
             .build())
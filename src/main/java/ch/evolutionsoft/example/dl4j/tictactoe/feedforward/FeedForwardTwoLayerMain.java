@@ -8,54 +8,82 @@ import java.io.IOException;
 import org.deeplearning4j.nn.api.OptimizationAlgorithm;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
 import org.deeplearning4j.nn.conf.layers.DenseLayer;
 import org.deeplearning4j.nn.conf.layers.OutputLayer;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.nn.weights.WeightInit;
 import org.nd4j.linalg.activations.Activation;
-import org.nd4j.linalg.dataset.api.DataSet;
 import org.nd4j.linalg.learning.config.Nesterovs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.BinaryNeuralDataFile;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.CloseableDataSetIterator;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralDataHelper;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
+
 public class FeedForwardTwoLayerMain {
 
+  public static final String MODEL_NAME = "feedForwardTwoLayer";
+
+  public static final double LEARNING_RATE = 0.99;
+
+  public static final int LAYER_SIZE = 161;
+
   private static final Logger logger = LoggerFactory.getLogger(FeedForwardTwoLayerMain.class);
 
   public static void main(String[] args) throws IOException {
 
+    StartupTimer.logStartup(FeedForwardTwoLayerMain.class);
+    StartupTimer.initializeNd4j();
+
     FeedForwardTwoLayerMain twoLayerSetup = new FeedForwardTwoLayerMain();
 
     FeedForwardCommon feedForwardCommon = new FeedForwardCommon();
-    MultiLayerNetwork net = feedForwardCommon.createNetworkModel(twoLayerSetup.createTwoLayerConfiguration());
+
+    BinaryNeuralDataFile playgroundsResults = NeuralDataHelper.openLabeledData();
+
+    MultiLayerNetwork net;
+    try (CloseableDataSetIterator dataSetIterator = feedForwardCommon.createDataSetIterator(playgroundsResults)) {
+
+      net = feedForwardCommon.restoreOrTrainNetworkModel(MODEL_NAME,
+          twoLayerSetup.createTwoLayerConfiguration(),
+          playgroundsResults, dataSetIterator, isResumeTraining(args));
+    }
 
     if (logger.isInfoEnabled()) {
       logger.info(net.summary());
     }
 
-    DataSet dataSet = feedForwardCommon.trainNetworkModel(net);
-
-    feedForwardCommon.evaluateNetworkPerformance(net, dataSet);
+    feedForwardCommon.evaluateNetworkPerformance(net, playgroundsResults);
   }
 
   protected MultiLayerConfiguration createTwoLayerConfiguration() {
 
+    return createTwoLayerConfiguration(LEARNING_RATE, NET_ITERATIONS, LAYER_SIZE);
+  }
+
+  public MultiLayerConfiguration createTwoLayerConfiguration(double learningRate, int iterations, int layerSize) {
+
     return new NeuralNetConfiguration.Builder()
         .seed(DEFAULT_SEED)
         .optimizationAlgo(OptimizationAlgorithm.STOCHASTIC_GRADIENT_DESCENT)
-        .iterations(NET_ITERATIONS)
-        .learningRate(0.99)
+        .trainingWorkspaceMode(WorkspaceMode.SEPARATE)
+        .inferenceWorkspaceMode(WorkspaceMode.SINGLE)
+        .iterations(iterations)
+        .learningRate(learningRate)
         .weightInit(WeightInit.XAVIER)
         .updater(new Nesterovs(NESTEROVS_MOMENTUM))
         .list()
         .layer(0, new DenseLayer.Builder()
             .activation(Activation.SOFTSIGN)
             .nIn(9)
-            .nOut(161)
+            .nOut(layerSize)
             .build())
         .layer(1, new OutputLayer.Builder()
             .activation(Activation.SOFTMAX)
-            .nIn(161)
+            .nIn(layerSize)
             .nOut(9)
             .build())
         .pretrain(false)
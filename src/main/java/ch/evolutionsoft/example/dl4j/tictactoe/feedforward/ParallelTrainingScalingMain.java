@@ -0,0 +1,116 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.feedforward;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralNetConstants.*;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.ParallelWrapper;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.BinaryNeuralDataFile;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralDataHelper;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.StreamingDataSetIterator;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
+
+/**
+ * Reports the training throughput of the hidden layer net in samples per
+ * second for 1, 2, 4 and 8 workers. Every run trains a new net for the same
+ * number of epochs on the same minibatches, one worker fits on the current
+ * thread, more workers fit replicas with parameter averaging like the
+ * parallel early stopping training.
+ */
+public class ParallelTrainingScalingMain {
+
+  public static final int[] WORKER_COUNTS = {1, 2, 4, 8};
+
+  public static final int WARMUP_EPOCHS = 1;
+
+  public static final int MEASURED_EPOCHS = 5;
+
+  private static final Logger logger = LoggerFactory.getLogger(ParallelTrainingScalingMain.class);
+
+  public static void main(String[] args) throws IOException {
+
+    StartupTimer.logStartup(ParallelTrainingScalingMain.class);
+    StartupTimer.initializeNd4j();
+
+    ParallelTrainingScalingMain scalingMain = new ParallelTrainingScalingMain();
+
+    BinaryNeuralDataFile playgroundsResults = NeuralDataHelper.openLabeledData();
+
+    try (StreamingDataSetIterator dataSetIterator =
+        new StreamingDataSetIterator(playgroundsResults, DEFAULT_BATCH_SIZE, false)) {
+
+      double singleWorkerSamplesPerSecond = 0;
+
+      for (int workers : WORKER_COUNTS) {
+
+        double samplesPerSecond = scalingMain.measureSamplesPerSecond(workers, dataSetIterator);
+
+        if (workers == 1) {
+
+          singleWorkerSamplesPerSecond = samplesPerSecond;
+        }
+
+        logger.info("{} worker(s): {} samples/sec, speedup {}", workers,
+            String.format(Locale.ROOT, "%.0f", samplesPerSecond),
+            String.format(Locale.ROOT, "%.2f", samplesPerSecond / singleWorkerSamplesPerSecond));
+      }
+    }
+  }
+
+  protected double measureSamplesPerSecond(int workers, DataSetIterator dataSetIterator) {
+
+    MultiLayerNetwork net = new FeedForwardCommon().createNetworkModel(
+        new FeedForwardHiddenLayerMain().createHiddenLayerConfiguration());
+
+    ParallelWrapper parallelWrapper = workers > 1 ?
+        new ParallelWrapper.Builder<>(net)
+            .workers(workers)
+            .prefetchBuffer(PARALLEL_PREFETCH_BATCHES)
+            .averagingFrequency(PARALLEL_AVERAGING_FREQUENCY)
+            .reportScoreAfterAveraging(true)
+            .build() :
+        null;
+
+    try {
+
+      fitEpochs(net, parallelWrapper, dataSetIterator, WARMUP_EPOCHS);
+
+      long startNanos = System.nanoTime();
+      fitEpochs(net, parallelWrapper, dataSetIterator, MEASURED_EPOCHS);
+      long elapsedNanos = System.nanoTime() - startNanos;
+
+      return (double) MEASURED_EPOCHS * dataSetIterator.totalExamples() * 1e9 / elapsedNanos;
+
+    } finally {
+
+      if (parallelWrapper != null) {
+
+        parallelWrapper.shutdown();
+      }
+    }
+  }
+
+  protected static void fitEpochs(MultiLayerNetwork net, ParallelWrapper parallelWrapper,
+      DataSetIterator dataSetIterator, int epochs) {
+
+    for (int epoch = 0; epoch < epochs; epoch++) {
+
+      dataSetIterator.reset();
+
+      if (parallelWrapper != null) {
+
+        parallelWrapper.fit(dataSetIterator);
+
+      } else {
+
+        net.fit(dataSetIterator);
+      }
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.mcts;
+
+import java.util.List;
+
+/**
+ * Evaluates the leaves selected by the search threads, asked for a whole
+ * batch of leaves at once so nets need a single forward pass.
+ */
+public interface LeafEvaluator {
+
+  /**
+   * @param priors filled with one move distribution per leaf over the board
+   *          fields, occupied fields are ignored
+   * @param values filled with the value of every leaf for its player to move,
+   *          between {@link MctsNode#LOSS_VALUE} and {@link MctsNode#WIN_VALUE}
+   */
+  void evaluate(List<MctsNode> leaves, double[][] priors, double[] values);
+}
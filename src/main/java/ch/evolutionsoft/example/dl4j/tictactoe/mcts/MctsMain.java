@@ -0,0 +1,89 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.mcts;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.KInARowBoard;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.ModelStore;
+import ch.evolutionsoft.example.dl4j.tictactoe.feedforward.FeedForwardHiddenLayerMain;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
+
+/**
+ * Plays one game of the search against itself and logs every move with the
+ * nodes and playouts per second. The tree is reused from move to move.
+ *
+ * Arguments are the board size, the win length and the playouts per move,
+ * TicTacToe with {@value #DEFAULT_PLAYOUTS_PER_MOVE} playouts by default. On
+ * the TicTacToe board the priors come from the stored hidden layer net if
+ * present, other boards have no net yet and search with uniform priors.
+ */
+public class MctsMain {
+
+  public static final int DEFAULT_PLAYOUTS_PER_MOVE = 800;
+
+  private static final Logger logger = LoggerFactory.getLogger(MctsMain.class);
+
+  public static void main(String[] arguments) throws IOException, InterruptedException {
+
+    StartupTimer.logStartup(MctsMain.class);
+
+    int size = arguments.length > 0 ? Integer.parseInt(arguments[0]) : IMAGE_SIZE;
+    int winLength = arguments.length > 1 ? Integer.parseInt(arguments[1]) : size;
+    int playoutsPerMove = arguments.length > 2 ? Integer.parseInt(arguments[2]) : DEFAULT_PLAYOUTS_PER_MOVE;
+
+    if (playoutsPerMove < 1) {
+
+      throw new IllegalArgumentException("Playouts per move must be positive");
+    }
+
+    KInARowBoard board = new KInARowBoard(size, winLength);
+    try (MctsSearch search = new MctsSearch(board, createLeafEvaluator(board))) {
+
+      while (!search.getRoot().isTerminal()) {
+
+        int field = search.search(playoutsPerMove);
+        MctsNode played = search.getRoot().getChild(field);
+
+        logger.info("{} plays field {} with {} visits and value {}",
+            search.getRoot().isMaxPlayerMove() ? "Max player" : "Min player", field, played.getVisits(),
+            String.format(Locale.ROOT, "%.3f", played.getMeanValue()));
+
+        search.advance(field);
+      }
+
+      MctsNode finalPosition = search.getRoot();
+      String result = finalPosition.getTerminalValue() == MctsNode.DRAW_VALUE ? "Draw" :
+          (finalPosition.isMaxPlayerMove() ? "Min player wins" : "Max player wins");
+
+      logger.info("{} after {} playouts, {} nodes/sec, {} playouts/sec, {} collisions", result,
+          search.getPlayouts(), String.format(Locale.ROOT, "%.0f", search.getNodesPerSecond()),
+          String.format(Locale.ROOT, "%.0f", search.getPlayoutsPerSecond()), search.getCollisions());
+    }
+  }
+
+  protected static LeafEvaluator createLeafEvaluator(KInARowBoard board) throws IOException {
+
+    ModelStore modelStore = new ModelStore();
+
+    if (board.getNumberOfFields() == COLUMN_NUMBER &&
+        Files.exists(modelStore.getModelFile(FeedForwardHiddenLayerMain.MODEL_NAME))) {
+
+      StartupTimer.initializeNd4j();
+      MultiLayerNetwork net = modelStore.restoreMultiLayerNetwork(FeedForwardHiddenLayerMain.MODEL_NAME);
+      logger.info("Priors from the stored {} net", FeedForwardHiddenLayerMain.MODEL_NAME);
+
+      return new NetLeafEvaluator(net::output, false);
+    }
+
+    logger.info("Uniform priors, no stored net for {} fields", board.getNumberOfFields());
+
+    return new UniformLeafEvaluator();
+  }
+}
@@ -0,0 +1,90 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.mcts;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.selfplay.MovePolicy;
+import ch.evolutionsoft.example.dl4j.tictactoe.selfplay.SelfPlayGame;
+
+/**
+ * Root visit distributions of a search from every game position as self play
+ * move distributions. The tree of each game is kept and the subtree of the
+ * move played from the distribution is reused for the next one.
+ *
+ * The searches of one batch run one after the other on the calling self play
+ * worker, one search thread per worker keeps all processors busy.
+ */
+public class MctsMovePolicy implements MovePolicy {
+
+  private final LeafEvaluator leafEvaluator;
+  private final int playoutsPerMove;
+
+  private final Map<SelfPlayGame, MctsNode> gameRoots = new WeakHashMap<>();
+
+  public MctsMovePolicy(LeafEvaluator leafEvaluator, int playoutsPerMove) {
+
+    if (playoutsPerMove < 1) {
+
+      throw new IllegalArgumentException("Playouts per move must be positive");
+    }
+
+    this.leafEvaluator = leafEvaluator;
+    this.playoutsPerMove = playoutsPerMove;
+  }
+
+  @Override
+  public void moveDistributions(List<SelfPlayGame> games, double[][] moveDistributions) {
+
+    for (int game = 0; game < games.size(); game++) {
+
+      SelfPlayGame selfPlayGame = games.get(game);
+      try (MctsSearch search = new MctsSearch(reusableRoot(selfPlayGame), leafEvaluator,
+          MctsSearch.DEFAULT_EXPLORATION_FACTOR, MctsSearch.DEFAULT_LEAF_BATCH_SIZE,
+          MctsSearch.DEFAULT_VIRTUAL_LOSS, 1)) {
+
+        search.search(playoutsPerMove);
+
+        double[] visitDistribution = search.visitDistribution();
+        System.arraycopy(visitDistribution, 0, moveDistributions[game], 0, visitDistribution.length);
+
+        synchronized (gameRoots) {
+
+          gameRoots.put(selfPlayGame, search.getRoot());
+        }
+
+      } catch (InterruptedException e) {
+
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while searching", e);
+      }
+    }
+  }
+
+  /**
+   * @return the child of the previous root matching the game position, a new
+   *         root if there is none
+   */
+  protected MctsNode reusableRoot(SelfPlayGame game) {
+
+    MctsNode previousRoot;
+    synchronized (gameRoots) {
+
+      previousRoot = gameRoots.get(game);
+    }
+
+    MctsNode[] children = previousRoot == null ? null : previousRoot.getChildren();
+
+    for (int field = 0; children != null && field < children.length; field++) {
+
+      if (children[field] != null &&
+          children[field].isSamePosition(game.getMaxPlayerFields(), game.getMinPlayerFields())) {
+
+        return children[field];
+      }
+    }
+
+    return new MctsNode(game.getBoard(), game.getMaxPlayerFields(), game.getMinPlayerFields(),
+        game.isMaxPlayerMove());
+  }
+}
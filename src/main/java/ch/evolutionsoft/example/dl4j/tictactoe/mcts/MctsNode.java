@@ -0,0 +1,343 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.mcts;
+
+import java.util.Random;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.KInARowBoard;
+
+/**
+ * Position of a {@link KInARowBoard} in the search tree, two field masks and
+ * the player to move, with the statistics of the playouts through it.
+ *
+ * Visits and values are counted from the view of the player who moved into
+ * the node, so a parent selects the child with the best value for itself.
+ * Children are created all at once when the node is expanded with the priors
+ * of its leaf evaluation. Statistics and expansion are synchronized on the
+ * node, search threads share the tree.
+ */
+public class MctsNode {
+
+  public static final int NO_MOVE = -1;
+
+  public static final double WIN_VALUE = 1.0;
+  public static final double DRAW_VALUE = 0.0;
+  public static final double LOSS_VALUE = -1.0;
+
+  private final KInARowBoard board;
+  private final long maxPlayerFields;
+  private final long minPlayerFields;
+  private final boolean maxPlayerMove;
+
+  private final int move;
+  private final double prior;
+
+  private final boolean terminal;
+
+  /**
+   * Value of a terminal position for the player to move.
+   */
+  private final double terminalValue;
+
+  private MctsNode[] children;
+  private boolean expanding = false;
+
+  private int visits = 0;
+  private double valueSum = 0;
+
+  public MctsNode(KInARowBoard board, long maxPlayerFields, long minPlayerFields, boolean maxPlayerMove) {
+
+    this(board, maxPlayerFields, minPlayerFields, maxPlayerMove, NO_MOVE, 1.0);
+  }
+
+  protected MctsNode(KInARowBoard board, long maxPlayerFields, long minPlayerFields, boolean maxPlayerMove,
+      int move, double prior) {
+
+    this.board = board;
+    this.maxPlayerFields = maxPlayerFields;
+    this.minPlayerFields = minPlayerFields;
+    this.maxPlayerMove = maxPlayerMove;
+    this.move = move;
+    this.prior = prior;
+
+    long opponentFields = maxPlayerMove ? minPlayerFields : maxPlayerFields;
+    boolean opponentWon = move == NO_MOVE ? board.hasWon(opponentFields) : board.hasWonWith(opponentFields, move);
+
+    this.terminal = opponentWon || !board.hasEmptyFieldsLeft(getOccupiedFields());
+    this.terminalValue = opponentWon ? LOSS_VALUE : DRAW_VALUE;
+  }
+
+  public KInARowBoard getBoard() {
+
+    return board;
+  }
+
+  public long getMaxPlayerFields() {
+
+    return maxPlayerFields;
+  }
+
+  public long getMinPlayerFields() {
+
+    return minPlayerFields;
+  }
+
+  public long getOccupiedFields() {
+
+    return maxPlayerFields | minPlayerFields;
+  }
+
+  public boolean isMaxPlayerMove() {
+
+    return maxPlayerMove;
+  }
+
+  /**
+   * @return the field played to reach this node or {@link #NO_MOVE}
+   */
+  public int getMove() {
+
+    return move;
+  }
+
+  public double getPrior() {
+
+    return prior;
+  }
+
+  public boolean isTerminal() {
+
+    return terminal;
+  }
+
+  public double getTerminalValue() {
+
+    return terminalValue;
+  }
+
+  public synchronized int getVisits() {
+
+    return visits;
+  }
+
+  /**
+   * @return the average value for the player who moved into this node, zero
+   *         if not visited yet
+   */
+  public synchronized double getMeanValue() {
+
+    return visits == 0 ? 0 : valueSum / visits;
+  }
+
+  /**
+   * @return the children indexed by field, null for occupied fields, or null
+   *         if the node is not expanded yet
+   */
+  public synchronized MctsNode[] getChildren() {
+
+    return children;
+  }
+
+  public boolean isSamePosition(long otherMaxPlayerFields, long otherMinPlayerFields) {
+
+    return maxPlayerFields == otherMaxPlayerFields && minPlayerFields == otherMinPlayerFields;
+  }
+
+  /**
+   * @return the child reached by playing the field, null if not expanded
+   */
+  public MctsNode getChild(int field) {
+
+    MctsNode[] currentChildren = getChildren();
+
+    return currentChildren == null ? null : currentChildren[field];
+  }
+
+  /**
+   * @return the node with the field played, the existing child if expanded
+   */
+  public MctsNode play(int field) {
+
+    if (terminal || board.isOccupied(getOccupiedFields(), field)) {
+
+      throw new IllegalStateException("Field " + field + " cannot be played");
+    }
+
+    MctsNode child = getChild(field);
+
+    if (child != null) {
+
+      return child;
+    }
+
+    return createChild(field, 1.0);
+  }
+
+  /**
+   * Claims the expansion of an unexpanded node for the calling thread.
+   *
+   * @return false if already expanded or claimed by another thread
+   */
+  protected synchronized boolean tryStartExpansion() {
+
+    if (children != null || expanding) {
+
+      return false;
+    }
+
+    expanding = true;
+    return true;
+  }
+
+  /**
+   * Releases a claimed expansion that is not going to be evaluated.
+   */
+  protected synchronized void cancelExpansion() {
+
+    expanding = false;
+  }
+
+  /**
+   * Creates a child for every empty field with its prior, renormalized over the
+   * empty fields.
+   *
+   * @return the number of created children
+   */
+  protected int expand(double[] priors) {
+
+    long occupiedFields = getOccupiedFields();
+    double priorSum = 0;
+    int emptyFields = 0;
+
+    for (int field = 0; field < board.getNumberOfFields(); field++) {
+
+      if (!board.isOccupied(occupiedFields, field)) {
+
+        priorSum += Math.max(0, priors[field]);
+        emptyFields++;
+      }
+    }
+
+    MctsNode[] newChildren = new MctsNode[board.getNumberOfFields()];
+    for (int field = 0; field < board.getNumberOfFields(); field++) {
+
+      if (!board.isOccupied(occupiedFields, field)) {
+
+        newChildren[field] = createChild(field,
+            priorSum > 0 ? Math.max(0, priors[field]) / priorSum : 1.0 / emptyFields);
+      }
+    }
+
+    synchronized (this) {
+
+      children = newChildren;
+      expanding = false;
+    }
+
+    return emptyFields;
+  }
+
+  protected MctsNode createChild(int field, double childPrior) {
+
+    long fieldMask = board.fieldMask(field);
+
+    return maxPlayerMove ?
+        new MctsNode(board, maxPlayerFields | fieldMask, minPlayerFields, false, field, childPrior) :
+        new MctsNode(board, maxPlayerFields, minPlayerFields | fieldMask, true, field, childPrior);
+  }
+
+  /**
+   * Counts a pending playout as lost for the player who moved into this node,
+   * so concurrent selections prefer other paths until it is backed up.
+   */
+  protected synchronized void addVirtualLoss(int virtualLoss) {
+
+    visits += virtualLoss;
+    valueSum -= virtualLoss;
+  }
+
+  /**
+   * Replaces the virtual loss of a backed up playout by its value.
+   */
+  protected synchronized void update(double value, int virtualLoss) {
+
+    visits += 1 - virtualLoss;
+    valueSum += value + virtualLoss;
+  }
+
+  protected synchronized void revertVirtualLoss(int virtualLoss) {
+
+    visits -= virtualLoss;
+    valueSum += virtualLoss;
+  }
+
+  /**
+   * @return PUCT score of the child for this node's player to move, mean value
+   *         plus the prior weighted exploration bonus
+   */
+  protected double puctScore(MctsNode child, double explorationFactor, double sqrtParentVisits) {
+
+    int childVisits;
+    double meanValue;
+    synchronized (child) {
+
+      childVisits = child.visits;
+      meanValue = childVisits == 0 ? 0 : child.valueSum / childVisits;
+    }
+
+    return meanValue + explorationFactor * child.prior * sqrtParentVisits / (1 + childVisits);
+  }
+
+  /**
+   * Plays uniformly random moves until the game ends.
+   *
+   * @return the outcome for this node's player to move
+   */
+  public double randomPlayoutValue(Random random) {
+
+    if (terminal) {
+
+      return terminalValue;
+    }
+
+    long ownFields = maxPlayerMove ? maxPlayerFields : minPlayerFields;
+    long opponentFields = maxPlayerMove ? minPlayerFields : maxPlayerFields;
+    boolean ownMove = true;
+
+    while (board.hasEmptyFieldsLeft(ownFields | opponentFields)) {
+
+      long emptyFields = board.getAllFields() & ~(ownFields | opponentFields);
+      int field = randomField(emptyFields, random);
+
+      if (ownMove) {
+
+        ownFields |= board.fieldMask(field);
+        if (board.hasWonWith(ownFields, field)) {
+
+          return WIN_VALUE;
+        }
+
+      } else {
+
+        opponentFields |= board.fieldMask(field);
+        if (board.hasWonWith(opponentFields, field)) {
+
+          return LOSS_VALUE;
+        }
+      }
+
+      ownMove = !ownMove;
+    }
+
+    return DRAW_VALUE;
+  }
+
+  protected static int randomField(long emptyFields, Random random) {
+
+    long remainingFields = emptyFields;
+    for (int skip = random.nextInt(Long.bitCount(emptyFields)); skip > 0; skip--) {
+
+      remainingFields &= remainingFields - 1;
+    }
+
+    return Long.numberOfTrailingZeros(remainingFields);
+  }
+}
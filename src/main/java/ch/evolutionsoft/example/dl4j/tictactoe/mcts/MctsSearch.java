@@ -0,0 +1,459 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.mcts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.KInARowBoard;
+
+/**
+ * Monte Carlo Tree Search with PUCT selection, guided by the priors and values
+ * of a {@link LeafEvaluator}.
+ *
+ * Every search thread selects a batch of leaves before the evaluator is asked
+ * once for all of them. Selected paths carry a virtual loss until their leaf
+ * is backed up, so the leaves of a batch and of concurrent threads spread over
+ * the tree. Terminal leaves are backed up without evaluation. A playout is
+ * only taken from the remaining playouts after its leaf was selected.
+ *
+ * Multiple search threads are kept for all searches until {@link #close()}.
+ *
+ * After a move is played the subtree below it becomes the new root and keeps
+ * its statistics, see {@link #advance(int)}.
+ */
+public class MctsSearch implements AutoCloseable {
+
+  public static final double DEFAULT_EXPLORATION_FACTOR = 1.5;
+
+  public static final int DEFAULT_LEAF_BATCH_SIZE = 8;
+
+  public static final int DEFAULT_VIRTUAL_LOSS = 1;
+
+  private final LeafEvaluator leafEvaluator;
+  private final double explorationFactor;
+  private final int leafBatchSize;
+  private final int virtualLoss;
+  private final int searchThreads;
+
+  /**
+   * Runs the search threads, null for a single search thread.
+   */
+  private final ExecutorService executor;
+
+  private MctsNode root;
+
+  private final LongAdder createdNodes = new LongAdder();
+  private final LongAdder playouts = new LongAdder();
+  private final LongAdder collisions = new LongAdder();
+  private final LongAdder searchNanos = new LongAdder();
+
+  public MctsSearch(KInARowBoard board, LeafEvaluator leafEvaluator) {
+
+    this(new MctsNode(board, KInARowBoard.NO_FIELDS, KInARowBoard.NO_FIELDS, true), leafEvaluator,
+        DEFAULT_EXPLORATION_FACTOR, DEFAULT_LEAF_BATCH_SIZE, DEFAULT_VIRTUAL_LOSS,
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  public MctsSearch(MctsNode root, LeafEvaluator leafEvaluator, double explorationFactor, int leafBatchSize,
+      int virtualLoss, int searchThreads) {
+
+    if (explorationFactor < 0 || leafBatchSize < 1 || virtualLoss < 0 || searchThreads < 1) {
+
+      throw new IllegalArgumentException("Invalid search settings");
+    }
+
+    this.root = root;
+    this.leafEvaluator = leafEvaluator;
+    this.explorationFactor = explorationFactor;
+    this.leafBatchSize = leafBatchSize;
+    this.virtualLoss = virtualLoss;
+    this.searchThreads = searchThreads;
+    this.executor = searchThreads > 1 ? Executors.newFixedThreadPool(searchThreads) : null;
+  }
+
+  public MctsNode getRoot() {
+
+    return root;
+  }
+
+  /**
+   * Starts over from another position, e.g. of the next game.
+   */
+  public void setRoot(MctsNode root) {
+
+    this.root = root;
+  }
+
+  /**
+   * Keeps the subtree of the played field as new root. Must not be called
+   * during a search.
+   */
+  public void advance(int field) {
+
+    root = root.play(field);
+  }
+
+  /**
+   * Runs the playouts distributed over the search threads and returns when all
+   * of them are backed up.
+   *
+   * @return the most visited field of the root or {@link MctsNode#NO_MOVE} if
+   *         the root is terminal
+   */
+  public int search(int numberOfPlayouts) throws InterruptedException {
+
+    if (root.isTerminal()) {
+
+      return MctsNode.NO_MOVE;
+    }
+
+    long startNanos = System.nanoTime();
+    AtomicInteger remainingPlayouts = new AtomicInteger(numberOfPlayouts);
+
+    try {
+
+      if (searchThreads == 1) {
+
+        searchPlayouts(root, remainingPlayouts);
+
+      } else {
+
+        searchConcurrently(root, remainingPlayouts);
+      }
+
+    } finally {
+
+      searchNanos.add(System.nanoTime() - startNanos);
+    }
+
+    return mostVisitedField();
+  }
+
+  /**
+   * @return the root's children visits scaled to sum up to one, zero for
+   *         occupied fields. The children's priors while no child is visited
+   *         yet, e.g. after a single playout expanding the root.
+   */
+  public double[] visitDistribution() {
+
+    double[] distribution = new double[root.getBoard().getNumberOfFields()];
+    MctsNode[] children = root.getChildren();
+
+    if (children == null) {
+
+      return distribution;
+    }
+
+    double visitSum = 0;
+    for (MctsNode child : children) {
+
+      visitSum += child == null ? 0 : child.getVisits();
+    }
+
+    for (int field = 0; field < children.length; field++) {
+
+      if (children[field] != null) {
+
+        distribution[field] = visitSum > 0 ? children[field].getVisits() / visitSum : children[field].getPrior();
+      }
+    }
+
+    return distribution;
+  }
+
+  public int mostVisitedField() {
+
+    MctsNode[] children = root.getChildren();
+
+    if (children == null) {
+
+      return MctsNode.NO_MOVE;
+    }
+
+    int bestField = MctsNode.NO_MOVE;
+    int bestVisits = -1;
+    for (int field = 0; field < children.length; field++) {
+
+      if (children[field] != null && children[field].getVisits() > bestVisits) {
+
+        bestField = field;
+        bestVisits = children[field].getVisits();
+      }
+    }
+
+    return bestField;
+  }
+
+  public long getCreatedNodes() {
+
+    return createdNodes.sum();
+  }
+
+  public long getPlayouts() {
+
+    return playouts.sum();
+  }
+
+  /**
+   * @return selections ending in a leaf another thread was just expanding
+   */
+  public long getCollisions() {
+
+    return collisions.sum();
+  }
+
+  /**
+   * @return created nodes per second of search wall clock time
+   */
+  public double getNodesPerSecond() {
+
+    return createdNodes.sum() * 1e9 / Math.max(1, searchNanos.sum());
+  }
+
+  public double getPlayoutsPerSecond() {
+
+    return playouts.sum() * 1e9 / Math.max(1, searchNanos.sum());
+  }
+
+  /**
+   * Stops the search threads.
+   */
+  @Override
+  public void close() {
+
+    if (executor != null) {
+
+      executor.shutdownNow();
+    }
+  }
+
+  protected void searchConcurrently(MctsNode searchRoot, AtomicInteger remainingPlayouts)
+      throws InterruptedException {
+
+    List<Future<?>> threadSearches = new ArrayList<>(searchThreads);
+
+    try {
+
+      for (int thread = 0; thread < searchThreads; thread++) {
+
+        threadSearches.add(executor.submit(() -> searchPlayouts(searchRoot, remainingPlayouts)));
+      }
+
+      for (Future<?> threadSearch : threadSearches) {
+
+        await(threadSearch);
+      }
+
+    } finally {
+
+      // Stops the other threads after a failed or interrupted search
+      remainingPlayouts.set(0);
+      for (Future<?> threadSearch : threadSearches) {
+
+        threadSearch.cancel(true);
+      }
+    }
+  }
+
+  protected void searchPlayouts(MctsNode searchRoot, AtomicInteger remainingPlayouts) {
+
+    List<List<MctsNode>> batchPaths = new ArrayList<>(leafBatchSize);
+    List<MctsNode> batchLeaves = new ArrayList<>(leafBatchSize);
+    double[][] priors = new double[leafBatchSize][searchRoot.getBoard().getNumberOfFields()];
+    double[] values = new double[leafBatchSize];
+
+    while (remainingPlayouts.get() > 0) {
+
+      while (batchLeaves.size() < leafBatchSize && remainingPlayouts.get() > 0) {
+
+        List<MctsNode> path = selectPath(searchRoot);
+
+        if (path == null) {
+
+          // The leaf waits for another batch, evaluate the collected ones first
+          collisions.increment();
+          break;
+        }
+
+        MctsNode leaf = path.get(path.size() - 1);
+
+        if (!takePlayout(remainingPlayouts)) {
+
+          // Other threads took the last playouts meanwhile
+          revertPath(path);
+          break;
+        }
+
+        if (leaf.isTerminal()) {
+
+          backup(path, leaf.getTerminalValue());
+
+        } else {
+
+          batchPaths.add(path);
+          batchLeaves.add(leaf);
+        }
+      }
+
+      if (batchLeaves.isEmpty()) {
+
+        Thread.yield();
+        continue;
+      }
+
+      leafEvaluator.evaluate(batchLeaves, priors, values);
+
+      for (int leaf = 0; leaf < batchLeaves.size(); leaf++) {
+
+        createdNodes.add(batchLeaves.get(leaf).expand(priors[leaf]));
+        backup(batchPaths.get(leaf), values[leaf]);
+      }
+
+      batchPaths.clear();
+      batchLeaves.clear();
+    }
+  }
+
+  /**
+   * Descends by PUCT score, adding the virtual loss to every node of the path,
+   * to a terminal node or to an unexpanded node claimed for expansion.
+   *
+   * @return the path from the root to the leaf or null if the reached leaf is
+   *         already being expanded, the virtual loss is reverted then
+   */
+  protected List<MctsNode> selectPath(MctsNode searchRoot) {
+
+    List<MctsNode> path = new ArrayList<>();
+    MctsNode node = searchRoot;
+
+    while (true) {
+
+      node.addVirtualLoss(virtualLoss);
+      path.add(node);
+
+      if (node.isTerminal()) {
+
+        return path;
+      }
+
+      MctsNode[] children = node.getChildren();
+
+      if (children == null) {
+
+        if (node.tryStartExpansion()) {
+
+          return path;
+        }
+
+        revertVirtualLoss(path);
+
+        return null;
+      }
+
+      node = selectChild(node, children);
+    }
+  }
+
+  /**
+   * Reverts the virtual loss of a selected path and releases its leaf's
+   * expansion.
+   */
+  protected void revertPath(List<MctsNode> path) {
+
+    revertVirtualLoss(path);
+
+    MctsNode leaf = path.get(path.size() - 1);
+    if (!leaf.isTerminal()) {
+
+      leaf.cancelExpansion();
+    }
+  }
+
+  protected void revertVirtualLoss(List<MctsNode> path) {
+
+    for (MctsNode pathNode : path) {
+
+      pathNode.revertVirtualLoss(virtualLoss);
+    }
+  }
+
+  protected MctsNode selectChild(MctsNode node, MctsNode[] children) {
+
+    double sqrtParentVisits = Math.sqrt(Math.max(1, node.getVisits()));
+
+    MctsNode bestChild = null;
+    double bestScore = Double.NEGATIVE_INFINITY;
+    for (MctsNode child : children) {
+
+      if (child == null) {
+
+        continue;
+      }
+
+      double score = node.puctScore(child, explorationFactor, sqrtParentVisits);
+
+      if (score > bestScore) {
+
+        bestChild = child;
+        bestScore = score;
+      }
+    }
+
+    return bestChild;
+  }
+
+  /**
+   * @param leafValue value of the leaf for its player to move, every node is
+   *          updated from the view of the player who moved into it
+   */
+  protected void backup(List<MctsNode> path, double leafValue) {
+
+    double value = -leafValue;
+    for (int index = path.size() - 1; index >= 0; index--) {
+
+      path.get(index).update(value, virtualLoss);
+      value = -value;
+    }
+
+    playouts.increment();
+  }
+
+  /**
+   * Decrements the remaining playouts unless none are left.
+   *
+   * @return true if a playout was taken
+   */
+  protected static boolean takePlayout(AtomicInteger remainingPlayouts) {
+
+    int remaining = remainingPlayouts.get();
+
+    while (remaining > 0) {
+
+      if (remainingPlayouts.compareAndSet(remaining, remaining - 1)) {
+
+        return true;
+      }
+
+      remaining = remainingPlayouts.get();
+    }
+
+    return false;
+  }
+
+  protected static void await(Future<?> threadSearch) throws InterruptedException {
+
+    try {
+
+      threadSearch.get();
+
+    } catch (ExecutionException e) {
+
+      throw new IllegalStateException("Search failed", e.getCause());
+    }
+  }
+}
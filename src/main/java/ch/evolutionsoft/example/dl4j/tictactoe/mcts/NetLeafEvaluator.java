@@ -0,0 +1,67 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.mcts;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.UnaryOperator;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.TicTacToeNeuralDataConverter;
+import ch.evolutionsoft.example.dl4j.tictactoe.selfplay.SelfPlayGame;
+
+/**
+ * Priors from the softmax output of a policy net, one forward pass per batch
+ * of leaves. The nets have no value output, leaf values come from a random
+ * playout.
+ *
+ * The net is shared by all search threads, forward passes are synchronized.
+ */
+public class NetLeafEvaluator implements LeafEvaluator {
+
+  private final UnaryOperator<INDArray> netOutput;
+  private final boolean convolutionalFeatures;
+
+  /**
+   * @param netOutput the net's output of the given features, e.g.
+   *          MultiLayerNetwork::output
+   * @param convolutionalFeatures whether the net expects 3x3 images instead of
+   *          flat playgrounds
+   */
+  public NetLeafEvaluator(UnaryOperator<INDArray> netOutput, boolean convolutionalFeatures) {
+
+    this.netOutput = netOutput;
+    this.convolutionalFeatures = convolutionalFeatures;
+  }
+
+  @Override
+  public void evaluate(List<MctsNode> leaves, double[][] priors, double[] values) {
+
+    int numberOfLeaves = leaves.size();
+    int numberOfFields = leaves.get(0).getBoard().getNumberOfFields();
+
+    double[] playgrounds = new double[numberOfLeaves * numberOfFields];
+    for (int leaf = 0; leaf < numberOfLeaves; leaf++) {
+
+      MctsNode node = leaves.get(leaf);
+      SelfPlayGame.writePlayground(node.getBoard(), node.getMaxPlayerFields(), node.getMinPlayerFields(),
+          playgrounds, leaf * numberOfFields);
+    }
+
+    INDArray output;
+    synchronized (this) {
+
+      output = netOutput.apply(TicTacToeNeuralDataConverter.createNetInput(
+          playgrounds, numberOfLeaves, numberOfFields, convolutionalFeatures));
+    }
+
+    for (int leaf = 0; leaf < numberOfLeaves; leaf++) {
+
+      for (int field = 0; field < numberOfFields; field++) {
+
+        priors[leaf][field] = output.getDouble(leaf, field);
+      }
+
+      values[leaf] = leaves.get(leaf).randomPlayoutValue(ThreadLocalRandom.current());
+    }
+  }
+}
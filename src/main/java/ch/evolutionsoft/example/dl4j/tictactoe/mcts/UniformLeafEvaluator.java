@@ -0,0 +1,22 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.mcts;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Uniform priors and random playout values, plain MCTS for boards without a
+ * trained net.
+ */
+public class UniformLeafEvaluator implements LeafEvaluator {
+
+  @Override
+  public void evaluate(List<MctsNode> leaves, double[][] priors, double[] values) {
+
+    for (int leaf = 0; leaf < leaves.size(); leaf++) {
+
+      Arrays.fill(priors[leaf], 1.0);
+      values[leaf] = leaves.get(leaf).randomPlayoutValue(ThreadLocalRandom.current());
+    }
+  }
+}
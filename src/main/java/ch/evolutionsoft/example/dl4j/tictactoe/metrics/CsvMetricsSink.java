@@ -0,0 +1,49 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Appends one line per iteration to a CSV file, buffered until the end of the
+ * epoch.
+ */
+public class CsvMetricsSink implements MetricsSink {
+
+  public static final String HEADER = "timestampMillis,model,iteration,epoch,score,iterationMillis," +
+      "samplesPerSecond,offHeapBytes,workspaceBytes,allocatedBytesPerSecond,gcCount,gcMillis";
+
+  private final BufferedWriter writer;
+
+  public CsvMetricsSink(Path csvFile) throws IOException {
+
+    this.writer = Files.newBufferedWriter(csvFile);
+    this.writer.write(HEADER);
+    this.writer.newLine();
+  }
+
+  @Override
+  public void write(TrainingMetrics metrics) throws IOException {
+
+    writer.write(String.format(Locale.ROOT, "%d,%s,%d,%d,%.6f,%.3f,%.1f,%d,%d,%.0f,%d,%d",
+        System.currentTimeMillis(), metrics.getModelName(), metrics.getIterations(), metrics.getEpochs(),
+        metrics.getScore(), metrics.getLastIterationMillis(), metrics.getSamplesPerSecond(),
+        metrics.getOffHeapBytes(), metrics.getWorkspaceBytes(), metrics.getAllocatedBytesPerSecond(),
+        metrics.getGcCount(), metrics.getGcMillis()));
+    writer.newLine();
+  }
+
+  @Override
+  public void flush() throws IOException {
+
+    writer.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    writer.close();
+  }
+}
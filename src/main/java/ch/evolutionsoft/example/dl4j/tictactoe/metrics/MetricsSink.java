@@ -0,0 +1,14 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.metrics;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Receives the training metrics after every iteration and is flushed at the
+ * end of every epoch.
+ */
+public interface MetricsSink extends Closeable, Flushable {
+
+  void write(TrainingMetrics metrics) throws IOException;
+}
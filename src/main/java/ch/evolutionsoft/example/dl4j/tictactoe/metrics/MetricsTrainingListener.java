@@ -0,0 +1,268 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.metrics;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bytedeco.javacpp.Pointer;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.optimize.api.TrainingListener;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records time, throughput, score, off heap and workspace memory, heap
+ * allocation rate and garbage collections of every training iteration into
+ * {@link TrainingMetrics} and passes them on to the {@link MetricsSink}s.
+ *
+ * Iteration times and allocations are measured per training thread from the
+ * end of its previous iteration, the first iteration of a thread only starts
+ * the measurement. Only recording and writing the metrics is serialized
+ * between training threads, the sinks are flushed at the end of every epoch.
+ */
+public class MetricsTrainingListener implements TrainingListener, AutoCloseable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * System property with the path of a CSV file for the iteration metrics.
+   */
+  public static final String CSV_FILE_PROPERTY = "metricsCsv";
+
+  /**
+   * System property with the path of a Prometheus text file for the latest
+   * metrics.
+   */
+  public static final String PROMETHEUS_FILE_PROPERTY = "metricsPrometheus";
+
+  private static final Logger logger = LoggerFactory.getLogger(MetricsTrainingListener.class);
+
+  private static final List<GarbageCollectorMXBean> GARBAGE_COLLECTORS =
+      Collections.unmodifiableList(ManagementFactory.getGarbageCollectorMXBeans());
+
+  private final transient TrainingMetrics metrics;
+  private final transient List<MetricsSink> sinks;
+
+  private final transient ThreadLocal<long[]> lastIterationEnd = new ThreadLocal<>();
+
+  private transient long epochStartNanos;
+
+  private boolean invoked = false;
+
+  public MetricsTrainingListener(TrainingMetrics metrics, List<MetricsSink> sinks) {
+
+    this.metrics = metrics;
+    this.sinks = new ArrayList<>(sinks);
+  }
+
+  /**
+   * Registers JMX metrics for the model and writes to the CSV and Prometheus
+   * files given by the {@value #CSV_FILE_PROPERTY} and
+   * {@value #PROMETHEUS_FILE_PROPERTY} system properties.
+   */
+  public static MetricsTrainingListener fromSystemProperties(String modelName) throws IOException {
+
+    TrainingMetrics metrics = new TrainingMetrics(modelName);
+    metrics.register();
+
+    List<MetricsSink> sinks = new ArrayList<>();
+
+    String csvFile = System.getProperty(CSV_FILE_PROPERTY);
+    if (csvFile != null) {
+
+      sinks.add(new CsvMetricsSink(Paths.get(csvFile)));
+    }
+
+    String prometheusFile = System.getProperty(PROMETHEUS_FILE_PROPERTY);
+    if (prometheusFile != null) {
+
+      sinks.add(new PrometheusTextFileSink(Paths.get(prometheusFile)));
+    }
+
+    return new MetricsTrainingListener(metrics, sinks);
+  }
+
+  public TrainingMetrics getMetrics() {
+
+    return metrics;
+  }
+
+  @Override
+  public boolean invoked() {
+
+    return invoked;
+  }
+
+  @Override
+  public void invoke() {
+
+    invoked = true;
+  }
+
+  @Override
+  public void iterationDone(Model model, int iteration) {
+
+    invoke();
+
+    long nowNanos = System.nanoTime();
+    long allocatedBytes = currentThreadAllocatedBytes();
+    long[] previousEnd = lastIterationEnd.get();
+    lastIterationEnd.set(new long[] {nowNanos, allocatedBytes});
+
+    if (previousEnd == null) {
+
+      return;
+    }
+
+    double iterationNanos = Math.max(1, nowNanos - previousEnd[0]);
+    double allocatedBytesPerSecond = allocatedBytes < 0 ?
+        0 : (allocatedBytes - previousEnd[1]) * 1e9 / iterationNanos;
+
+    long gcCount = 0;
+    long gcMillis = 0;
+    for (GarbageCollectorMXBean garbageCollector : GARBAGE_COLLECTORS) {
+
+      gcCount += Math.max(0, garbageCollector.getCollectionCount());
+      gcMillis += Math.max(0, garbageCollector.getCollectionTime());
+    }
+
+    double score = model.score();
+    double samplesPerSecond = model.batchSize() * 1e9 / iterationNanos;
+    long offHeapBytes = Pointer.totalBytes();
+    long workspaceBytes = currentThreadWorkspaceBytes();
+
+    synchronized (this) {
+
+      metrics.recordIteration(score, iterationNanos / 1e6, samplesPerSecond, offHeapBytes, workspaceBytes,
+          allocatedBytesPerSecond, gcCount, gcMillis);
+
+      writeSinks();
+    }
+  }
+
+  @Override
+  public synchronized void onEpochStart(Model model) {
+
+    epochStartNanos = System.nanoTime();
+  }
+
+  @Override
+  public synchronized void onEpochEnd(Model model) {
+
+    metrics.recordEpoch(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - epochStartNanos));
+    logger.info("Epoch {} of {} took {} ms, {} samples/sec, score {}", metrics.getEpochs(), metrics.getModelName(),
+        metrics.getLastEpochMillis(), String.format(Locale.ROOT, "%.0f", metrics.getSamplesPerSecond()),
+        metrics.getScore());
+
+    flushSinks();
+  }
+
+  @Override
+  public void onForwardPass(Model model, List<INDArray> activations) {
+
+    // Only iterations are measured
+  }
+
+  @Override
+  public void onForwardPass(Model model, Map<String, INDArray> activations) {
+
+    // Only iterations are measured
+  }
+
+  @Override
+  public void onGradientCalculation(Model model) {
+
+    // Only iterations are measured
+  }
+
+  @Override
+  public void onBackwardPass(Model model) {
+
+    // Only iterations are measured
+  }
+
+  @Override
+  public synchronized void close() {
+
+    for (MetricsSink sink : sinks) {
+
+      try {
+
+        sink.close();
+
+      } catch (IOException e) {
+
+        logger.warn("Metrics sink not closed", e);
+      }
+    }
+  }
+
+  protected void writeSinks() {
+
+    for (MetricsSink sink : sinks) {
+
+      try {
+
+        sink.write(metrics);
+
+      } catch (IOException e) {
+
+        logger.warn("Metrics not written", e);
+      }
+    }
+  }
+
+  protected void flushSinks() {
+
+    for (MetricsSink sink : sinks) {
+
+      try {
+
+        sink.flush();
+
+      } catch (IOException e) {
+
+        logger.warn("Metrics not flushed", e);
+      }
+    }
+  }
+
+  protected static long currentThreadWorkspaceBytes() {
+
+    long workspaceBytes = 0;
+    for (MemoryWorkspace workspace : Nd4j.getWorkspaceManager().getAllWorkspacesForCurrentThread()) {
+
+      workspaceBytes += workspace.getCurrentSize();
+    }
+
+    return workspaceBytes;
+  }
+
+  /**
+   * @return the bytes allocated on the heap by the current thread, or -1 if
+   *         the JVM does not measure them
+   */
+  protected static long currentThreadAllocatedBytes() {
+
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+
+      return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(
+          Thread.currentThread().getId());
+    }
+
+    return -1;
+  }
+}
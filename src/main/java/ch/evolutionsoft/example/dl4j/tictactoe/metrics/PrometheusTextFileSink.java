@@ -0,0 +1,106 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rewrites a file in the Prometheus text exposition format, e.g. for the
+ * textfile collector of the node exporter. The file is replaced atomically
+ * and at most once per minimum interval.
+ */
+public class PrometheusTextFileSink implements MetricsSink {
+
+  public static final long DEFAULT_MIN_INTERVAL_MILLIS = 1000;
+
+  public static final String METRIC_PREFIX = "tictactoe_training_";
+
+  private final Path textFile;
+  private final long minIntervalNanos;
+
+  private long lastWriteNanos;
+  private boolean written = false;
+
+  public PrometheusTextFileSink(Path textFile) {
+
+    this(textFile, DEFAULT_MIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  public PrometheusTextFileSink(Path textFile, long minInterval, TimeUnit minIntervalUnit) {
+
+    this.textFile = textFile;
+    this.minIntervalNanos = minIntervalUnit.toNanos(minInterval);
+  }
+
+  @Override
+  public void write(TrainingMetrics metrics) throws IOException {
+
+    long nowNanos = System.nanoTime();
+
+    if (written && nowNanos - lastWriteNanos < minIntervalNanos) {
+
+      return;
+    }
+
+    StringBuilder text = new StringBuilder();
+    String labels = "{model=\"" + metrics.getModelName() + "\"}";
+
+    appendMetric(text, "iterations_total", "counter", labels, metrics.getIterations());
+    appendMetric(text, "epochs_total", "counter", labels, metrics.getEpochs());
+    appendMetric(text, "score", "gauge", labels, metrics.getScore());
+    appendMetric(text, "iteration_seconds", "gauge", labels, metrics.getLastIterationMillis() / 1e3);
+    appendMetric(text, "samples_per_second", "gauge", labels, metrics.getSamplesPerSecond());
+    appendMetric(text, "epoch_seconds", "gauge", labels, metrics.getLastEpochMillis() / 1e3);
+    appendMetric(text, "off_heap_bytes", "gauge", labels, metrics.getOffHeapBytes());
+    appendMetric(text, "workspace_bytes", "gauge", labels, metrics.getWorkspaceBytes());
+    appendMetric(text, "allocated_bytes_per_second", "gauge", labels, metrics.getAllocatedBytesPerSecond());
+    appendMetric(text, "gc_total", "counter", labels, metrics.getGcCount());
+    appendMetric(text, "gc_seconds_total", "counter", labels, metrics.getGcMillis() / 1e3);
+
+    text.append("# TYPE ").append(METRIC_PREFIX).append("stage_seconds_total counter\n");
+    for (Map.Entry<String, Long> stageMillis : metrics.getStageMillis().entrySet()) {
+
+      text.append(METRIC_PREFIX).append("stage_seconds_total{stage=\"").append(stageMillis.getKey()).append("\"} ")
+          .append(format(stageMillis.getValue() / 1e3)).append('\n');
+    }
+
+    Path temporaryFile = textFile.resolveSibling(textFile.getFileName() + ".tmp");
+    Files.write(temporaryFile, text.toString().getBytes(StandardCharsets.UTF_8));
+    Files.move(temporaryFile, textFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    lastWriteNanos = nowNanos;
+    written = true;
+  }
+
+  @Override
+  public void flush() {
+
+    // Every write replaces the file
+  }
+
+  @Override
+  public void close() {
+
+    // Keeps the last written file for the collector
+  }
+
+  protected static void appendMetric(StringBuilder text, String name, String type, String labels, double value) {
+
+    text.append("# TYPE ").append(METRIC_PREFIX).append(name).append(' ').append(type).append('\n')
+        .append(METRIC_PREFIX).append(name).append(labels).append(' ').append(format(value)).append('\n');
+  }
+
+  protected static String format(double value) {
+
+    if (value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE) {
+
+      return Long.toString((long) value);
+    }
+
+    return Double.toString(value);
+  }
+}
@@ -0,0 +1,86 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Accumulates the wall clock time and number of runs of named pipeline
+ * stages, e.g. generation and conversion, over the whole process.
+ */
+public final class StageTimer {
+
+  public static final String GENERATION_STAGE = "generation";
+  public static final String CONVERSION_STAGE = "conversion";
+  public static final String LOADING_STAGE = "loading";
+
+  private static final Logger logger = LoggerFactory.getLogger(StageTimer.class);
+
+  private static final ConcurrentMap<String, LongAdder> stageNanos = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, LongAdder> stageRuns = new ConcurrentHashMap<>();
+
+  private StageTimer() {
+    // Hide constructor
+  }
+
+  public static void time(String stage, Runnable runnable) {
+
+    time(stage, () -> {
+
+      runnable.run();
+      return null;
+    });
+  }
+
+  /**
+   * Runs and records the stage and logs its duration.
+   */
+  public static <T> T time(String stage, Supplier<T> supplier) {
+
+    long startNanos = System.nanoTime();
+
+    try {
+
+      return supplier.get();
+
+    } finally {
+
+      long elapsedNanos = System.nanoTime() - startNanos;
+      record(stage, elapsedNanos);
+
+      logger.info("Stage {} took {} ms", stage, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+  }
+
+  /**
+   * Records one run of a stage without logging, cheap enough for hot paths.
+   */
+  public static void record(String stage, long elapsedNanos) {
+
+    stageNanos.computeIfAbsent(stage, name -> new LongAdder()).add(elapsedNanos);
+    stageRuns.computeIfAbsent(stage, name -> new LongAdder()).increment();
+  }
+
+  public static Map<String, Long> getStageMillis() {
+
+    Map<String, Long> stageMillis = new TreeMap<>();
+    stageNanos.forEach((stage, nanos) -> stageMillis.put(stage, TimeUnit.NANOSECONDS.toMillis(nanos.sum())));
+
+    return stageMillis;
+  }
+
+  public static Map<String, Long> getStageRuns() {
+
+    Map<String, Long> runs = new TreeMap<>();
+    stageRuns.forEach((stage, count) -> runs.put(stage, count.sum()));
+
+    return runs;
+  }
+}
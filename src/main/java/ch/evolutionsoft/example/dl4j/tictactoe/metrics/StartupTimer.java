@@ -0,0 +1,51 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import org.nd4j.linalg.factory.Nd4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the startup of the mains: the time from JVM start until the main
+ * runs and, as its own {@link StageTimer} stage, the loading of the native
+ * ND4J backend.
+ *
+ * Game logic and constants need no ND4J, so the backend is only loaded by
+ * {@link #initializeNd4j()} or the first INDArray of a main. Mains that need
+ * ND4J call {@link #initializeNd4j()} before their first INDArray, generators
+ * just before they convert their results.
+ */
+public final class StartupTimer {
+
+  public static final String STARTUP_STAGE = "startup";
+  public static final String ND4J_INITIALIZATION_STAGE = "nd4jInitialization";
+
+  private static final Logger logger = LoggerFactory.getLogger(StartupTimer.class);
+
+  private StartupTimer() {
+    // Hide constructor
+  }
+
+  /**
+   * Records and logs the milliseconds since JVM start, call it first in main.
+   */
+  public static void logStartup(Class<?> mainClass) {
+
+    long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+    StageTimer.record(STARTUP_STAGE, uptimeMillis * 1_000_000);
+
+    logger.info("{} started {} ms after JVM start", mainClass.getSimpleName(), uptimeMillis);
+  }
+
+  /**
+   * Loads the ND4J backend if not done yet, the stage is only expensive on
+   * the first call.
+   */
+  public static void initializeNd4j() {
+
+    String backend = StageTimer.time(ND4J_INITIALIZATION_STAGE, () -> Nd4j.getBackend().getClass().getSimpleName());
+
+    logger.info("ND4J backend {} ready", backend);
+  }
+}
@@ -0,0 +1,163 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Latest values recorded by a {@link MetricsTrainingListener}. Written by the
+ * training thread, read by JMX clients and {@link MetricsSink}s.
+ */
+public class TrainingMetrics implements TrainingMetricsMXBean {
+
+  public static final String OBJECT_NAME_PREFIX = "ch.evolutionsoft.dl4j.tictactoe:type=TrainingMetrics,name=";
+
+  private static final Logger logger = LoggerFactory.getLogger(TrainingMetrics.class);
+
+  private final String modelName;
+
+  private volatile long iterations;
+  private volatile long epochs;
+  private volatile double score;
+  private volatile double lastIterationMillis;
+  private volatile double samplesPerSecond;
+  private volatile long lastEpochMillis;
+  private volatile long offHeapBytes;
+  private volatile long workspaceBytes;
+  private volatile double allocatedBytesPerSecond;
+  private volatile long gcCount;
+  private volatile long gcMillis;
+
+  public TrainingMetrics(String modelName) {
+
+    this.modelName = modelName;
+  }
+
+  /**
+   * Registers the metrics at the platform MBean server, replacing earlier
+   * metrics of the same model. Failures are only logged, training does not
+   * depend on JMX.
+   */
+  public void register() {
+
+    try {
+
+      MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+      ObjectName objectName = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(modelName));
+
+      if (mBeanServer.isRegistered(objectName)) {
+
+        mBeanServer.unregisterMBean(objectName);
+      }
+
+      mBeanServer.registerMBean(this, objectName);
+
+    } catch (JMException e) {
+
+      logger.warn("Training metrics of {} not registered", modelName, e);
+    }
+  }
+
+  public String getModelName() {
+
+    return modelName;
+  }
+
+  @Override
+  public long getIterations() {
+
+    return iterations;
+  }
+
+  @Override
+  public long getEpochs() {
+
+    return epochs;
+  }
+
+  @Override
+  public double getScore() {
+
+    return score;
+  }
+
+  @Override
+  public double getLastIterationMillis() {
+
+    return lastIterationMillis;
+  }
+
+  @Override
+  public double getSamplesPerSecond() {
+
+    return samplesPerSecond;
+  }
+
+  @Override
+  public long getLastEpochMillis() {
+
+    return lastEpochMillis;
+  }
+
+  @Override
+  public long getOffHeapBytes() {
+
+    return offHeapBytes;
+  }
+
+  @Override
+  public long getWorkspaceBytes() {
+
+    return workspaceBytes;
+  }
+
+  @Override
+  public double getAllocatedBytesPerSecond() {
+
+    return allocatedBytesPerSecond;
+  }
+
+  @Override
+  public long getGcCount() {
+
+    return gcCount;
+  }
+
+  @Override
+  public long getGcMillis() {
+
+    return gcMillis;
+  }
+
+  @Override
+  public Map<String, Long> getStageMillis() {
+
+    return StageTimer.getStageMillis();
+  }
+
+  void recordIteration(double score, double iterationMillis, double samplesPerSecond, long offHeapBytes,
+      long workspaceBytes, double allocatedBytesPerSecond, long gcCount, long gcMillis) {
+
+    this.iterations++;
+    this.score = score;
+    this.lastIterationMillis = iterationMillis;
+    this.samplesPerSecond = samplesPerSecond;
+    this.offHeapBytes = offHeapBytes;
+    this.workspaceBytes = workspaceBytes;
+    this.allocatedBytesPerSecond = allocatedBytesPerSecond;
+    this.gcCount = gcCount;
+    this.gcMillis = gcMillis;
+  }
+
+  void recordEpoch(long epochMillis) {
+
+    this.epochs++;
+    this.lastEpochMillis = epochMillis;
+  }
+}
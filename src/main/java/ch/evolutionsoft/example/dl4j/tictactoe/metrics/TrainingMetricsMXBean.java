@@ -0,0 +1,34 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.metrics;
+
+import java.util.Map;
+
+/**
+ * Training progress and resource usage of the latest iteration, exposed via
+ * JMX.
+ */
+public interface TrainingMetricsMXBean {
+
+  long getIterations();
+
+  long getEpochs();
+
+  double getScore();
+
+  double getLastIterationMillis();
+
+  double getSamplesPerSecond();
+
+  long getLastEpochMillis();
+
+  long getOffHeapBytes();
+
+  long getWorkspaceBytes();
+
+  double getAllocatedBytesPerSecond();
+
+  long getGcCount();
+
+  long getGcMillis();
+
+  Map<String, Long> getStageMillis();
+}
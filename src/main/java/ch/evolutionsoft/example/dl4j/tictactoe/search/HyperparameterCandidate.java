@@ -0,0 +1,128 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.search;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.deeplearning4j.nn.api.Model;
+
+/**
+ * Sampled hyperparameters together with the training progress of their net.
+ * A candidate is trained by one search task at a time.
+ */
+public class HyperparameterCandidate {
+
+  /**
+   * Candidates surviving more rounds first, then by accuracy.
+   */
+  public static final Comparator<HyperparameterCandidate> RANKING =
+      Comparator.comparingInt(HyperparameterCandidate::getRoundsSurvived)
+          .thenComparingDouble(HyperparameterCandidate::getAccuracy)
+          .reversed();
+
+  private final int id;
+  private final double learningRate;
+  private final int iterations;
+  private final int[] layerSizes;
+
+  private Model net;
+  private int epochs = 0;
+  private int roundsSurvived = 0;
+  private double accuracy = 0;
+  private long trainingNanos = 0;
+
+  public HyperparameterCandidate(int id, double learningRate, int iterations, int[] layerSizes) {
+
+    this.id = id;
+    this.learningRate = learningRate;
+    this.iterations = iterations;
+    this.layerSizes = layerSizes.clone();
+  }
+
+  public int getId() {
+
+    return id;
+  }
+
+  public double getLearningRate() {
+
+    return learningRate;
+  }
+
+  public int getIterations() {
+
+    return iterations;
+  }
+
+  public int getLayerSize(int layer) {
+
+    return layerSizes[layer];
+  }
+
+  /**
+   * @return the layer sizes separated by slashes, e.g. 75/35
+   */
+  public String getLayerSizesText() {
+
+    return Arrays.stream(layerSizes).mapToObj(String::valueOf).collect(Collectors.joining("/"));
+  }
+
+  public Model getNet() {
+
+    return net;
+  }
+
+  public void setNet(Model net) {
+
+    this.net = net;
+  }
+
+  public int getEpochs() {
+
+    return epochs;
+  }
+
+  public void incrementEpochs() {
+
+    epochs++;
+  }
+
+  public int getRoundsSurvived() {
+
+    return roundsSurvived;
+  }
+
+  public void survivedRound() {
+
+    roundsSurvived++;
+  }
+
+  public double getAccuracy() {
+
+    return accuracy;
+  }
+
+  public void setAccuracy(double accuracy) {
+
+    this.accuracy = accuracy;
+  }
+
+  public long getWallClockMillis() {
+
+    return TimeUnit.NANOSECONDS.toMillis(trainingNanos);
+  }
+
+  public void addTrainingNanos(long nanos) {
+
+    trainingNanos += nanos;
+  }
+
+  @Override
+  public String toString() {
+
+    return String.format(Locale.ROOT, "candidate %d (learning rate %.5f, iterations %d, layers %s)",
+        id, learningRate, iterations, getLayerSizesText());
+  }
+}
@@ -0,0 +1,241 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.search;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralNetConstants.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.deeplearning4j.nn.api.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.ChunkedEvaluation;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralDataHelper;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.PlaygroundsResultsSource;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.StreamingDataSetIterator;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
+
+/**
+ * Random search with successive halving over the hyperparameters of a
+ * {@link NetArchitecture}.
+ *
+ * All candidates are trained for the minimum number of epochs, only the best
+ * 1 / reduction factor of them continue with reduction factor times more
+ * epochs, until a single candidate is left. Candidates are trained
+ * concurrently on a bounded thread pool, each on its own iterator over the
+ * shared read only playgrounds. The ranked candidates are written to a CSV
+ * file with their accuracy on the playgrounds and training wall clock time.
+ */
+public class HyperparameterSearch {
+
+  public static final int DEFAULT_NUMBER_OF_CANDIDATES = 27;
+
+  public static final int DEFAULT_REDUCTION_FACTOR = 3;
+
+  public static final int DEFAULT_MIN_EPOCHS = 2;
+
+  public static final String RESULTS_FILE_PREFIX = "hyperparameterSearch-";
+  public static final String RESULTS_FILE_SUFFIX = ".csv";
+
+  private static final Logger logger = LoggerFactory.getLogger(HyperparameterSearch.class);
+
+  private final NetArchitecture architecture;
+  private final SearchSpace searchSpace;
+  private final int numberOfCandidates;
+  private final int reductionFactor;
+  private final int minEpochs;
+  private final int threads;
+
+  public HyperparameterSearch(NetArchitecture architecture, int numberOfCandidates) {
+
+    this(architecture, architecture.getDefaultSearchSpace(), numberOfCandidates, DEFAULT_REDUCTION_FACTOR,
+        DEFAULT_MIN_EPOCHS, Runtime.getRuntime().availableProcessors());
+  }
+
+  public HyperparameterSearch(NetArchitecture architecture, SearchSpace searchSpace, int numberOfCandidates,
+      int reductionFactor, int minEpochs, int threads) {
+
+    if (numberOfCandidates < 1 || reductionFactor < 2 || minEpochs < 1 || threads < 1) {
+
+      throw new IllegalArgumentException("Invalid search settings");
+    }
+
+    this.architecture = architecture;
+    this.searchSpace = searchSpace;
+    this.numberOfCandidates = numberOfCandidates;
+    this.reductionFactor = reductionFactor;
+    this.minEpochs = minEpochs;
+    this.threads = threads;
+  }
+
+  /**
+   * Arguments are the {@link NetArchitecture} name, HIDDEN_LAYER by default,
+   * and the number of candidates.
+   */
+  public static void main(String[] arguments) throws IOException, InterruptedException {
+
+    StartupTimer.logStartup(HyperparameterSearch.class);
+    StartupTimer.initializeNd4j();
+
+    NetArchitecture architecture = arguments.length > 0 ?
+        NetArchitecture.valueOf(arguments[0]) : NetArchitecture.HIDDEN_LAYER;
+    int numberOfCandidates = arguments.length > 1 ?
+        Integer.parseInt(arguments[1]) : DEFAULT_NUMBER_OF_CANDIDATES;
+
+    HyperparameterSearch hyperparameterSearch = new HyperparameterSearch(architecture, numberOfCandidates);
+    List<HyperparameterCandidate> rankedCandidates = hyperparameterSearch.search(NeuralDataHelper.openLabeledData());
+
+    Path resultsFile = Paths.get(RESULTS_FILE_PREFIX + architecture.name().toLowerCase(Locale.ROOT) +
+        RESULTS_FILE_SUFFIX);
+    hyperparameterSearch.writeResults(rankedCandidates, resultsFile);
+
+    logger.info("Best {} with accuracy {}", rankedCandidates.get(0), rankedCandidates.get(0).getAccuracy());
+    logger.info("Wrote ranked candidates to {}", resultsFile.toAbsolutePath());
+  }
+
+  /**
+   * @return all candidates, ranked by {@link HyperparameterCandidate#RANKING}
+   */
+  public List<HyperparameterCandidate> search(PlaygroundsResultsSource playgroundsResults)
+      throws InterruptedException {
+
+    Random random = new Random(DEFAULT_SEED);
+
+    List<HyperparameterCandidate> candidates = new ArrayList<>(numberOfCandidates);
+    for (int id = 0; id < numberOfCandidates; id++) {
+
+      candidates.add(searchSpace.sample(id, random));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+    try {
+
+      List<HyperparameterCandidate> survivors = new ArrayList<>(candidates);
+      int epochs = minEpochs;
+
+      do {
+
+        logger.info("Train {} candidates to {} epochs", survivors.size(), epochs);
+        trainCandidates(executor, survivors, epochs, playgroundsResults);
+
+        survivors.sort(HyperparameterCandidate.RANKING);
+        int remaining = Math.max(1, survivors.size() / reductionFactor);
+
+        for (HyperparameterCandidate loser : survivors.subList(remaining, survivors.size())) {
+
+          loser.setNet(null);
+        }
+
+        survivors = new ArrayList<>(survivors.subList(0, remaining));
+        for (HyperparameterCandidate survivor : survivors) {
+
+          survivor.survivedRound();
+        }
+
+        logger.info("Best {} with accuracy {}", survivors.get(0), survivors.get(0).getAccuracy());
+        epochs *= reductionFactor;
+
+      } while (survivors.size() > 1);
+
+    } finally {
+
+      executor.shutdownNow();
+    }
+
+    candidates.sort(HyperparameterCandidate.RANKING);
+
+    return candidates;
+  }
+
+  public void writeResults(List<HyperparameterCandidate> rankedCandidates, Path resultsFile) throws IOException {
+
+    try (BufferedWriter writer = Files.newBufferedWriter(resultsFile)) {
+
+      writer.write("rank,architecture,candidate,learningRate,iterations,layerSizes,roundsSurvived,epochs," +
+          "accuracy,wallClockMillis");
+      writer.newLine();
+
+      for (int rank = 0; rank < rankedCandidates.size(); rank++) {
+
+        HyperparameterCandidate candidate = rankedCandidates.get(rank);
+
+        writer.write(String.format(Locale.ROOT, "%d,%s,%d,%.6f,%d,%s,%d,%d,%.4f,%d",
+            rank + 1, architecture, candidate.getId(), candidate.getLearningRate(), candidate.getIterations(),
+            candidate.getLayerSizesText(), candidate.getRoundsSurvived(), candidate.getEpochs(),
+            candidate.getAccuracy(), candidate.getWallClockMillis()));
+        writer.newLine();
+      }
+    }
+  }
+
+  protected void trainCandidates(ExecutorService executor, List<HyperparameterCandidate> candidates, int epochs,
+      PlaygroundsResultsSource playgroundsResults) throws InterruptedException {
+
+    List<Future<?>> trainings = new ArrayList<>(candidates.size());
+    for (HyperparameterCandidate candidate : candidates) {
+
+      trainings.add(executor.submit(() -> trainCandidate(candidate, epochs, playgroundsResults)));
+    }
+
+    for (Future<?> training : trainings) {
+
+      try {
+
+        training.get();
+
+      } catch (ExecutionException e) {
+
+        throw new IllegalStateException("Training of a candidate failed", e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Continues training the candidate's net up to the given epochs and
+   * evaluates it afterwards.
+   */
+  protected void trainCandidate(HyperparameterCandidate candidate, int epochs,
+      PlaygroundsResultsSource playgroundsResults) {
+
+    long startNanos = System.nanoTime();
+
+    if (candidate.getNet() == null) {
+
+      candidate.setNet(architecture.createNet(candidate));
+    }
+
+    Model net = candidate.getNet();
+
+    try (StreamingDataSetIterator dataSetIterator = new StreamingDataSetIterator(playgroundsResults,
+        architecture.batchSize(playgroundsResults.getRows()), architecture.isConvolutionalFeatures())) {
+
+      while (candidate.getEpochs() < epochs) {
+
+        dataSetIterator.reset();
+        while (dataSetIterator.hasNext()) {
+
+          architecture.fit(net, dataSetIterator.next());
+        }
+
+        candidate.incrementEpochs();
+      }
+    }
+
+    candidate.setAccuracy(ChunkedEvaluation.evaluate(playgroundsResults, architecture.isConvolutionalFeatures(),
+        features -> architecture.output(net, features)).accuracy());
+
+    candidate.addTrainingNanos(System.nanoTime() - startNanos);
+  }
+}
@@ -0,0 +1,188 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.search;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralNetConstants.*;
+
+import java.io.IOException;
+
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.convolutional.ConvolutionalNetMain;
+import ch.evolutionsoft.example.dl4j.tictactoe.feedforward.FeedForwardCommon;
+import ch.evolutionsoft.example.dl4j.tictactoe.feedforward.FeedForwardHiddenLayerMain;
+import ch.evolutionsoft.example.dl4j.tictactoe.feedforward.FeedForwardTwoLayerMain;
+
+/**
+ * The searchable nets with default ranges around their hand tuned
+ * hyperparameters. Feed forward nets are trained on all playgrounds in one
+ * batch, convolutional nets in minibatches, like in their mains.
+ */
+public enum NetArchitecture {
+
+  HIDDEN_LAYER(false, new SearchSpace(
+      ParameterRange.logarithmic(0.1, 2.0),
+      ParameterRange.linear(5, 25),
+      ParameterRange.linear(20, 150),
+      ParameterRange.linear(10, 80))) {
+
+    @Override
+    public HyperparameterCandidate defaultCandidate() {
+
+      return new HyperparameterCandidate(DEFAULT_CANDIDATE_ID, FeedForwardHiddenLayerMain.LEARNING_RATE,
+          FeedForwardCommon.NET_ITERATIONS,
+          new int[] {FeedForwardHiddenLayerMain.INPUT_LAYER_SIZE, FeedForwardHiddenLayerMain.HIDDEN_LAYER_SIZE});
+    }
+
+    @Override
+    public Model createNet(HyperparameterCandidate candidate) {
+
+      return initialized(new MultiLayerNetwork(new FeedForwardHiddenLayerMain().createHiddenLayerConfiguration(
+          candidate.getLearningRate(), candidate.getIterations(), candidate.getLayerSize(0),
+          candidate.getLayerSize(1))));
+    }
+  },
+
+  TWO_LAYER(false, new SearchSpace(
+      ParameterRange.logarithmic(0.1, 2.0),
+      ParameterRange.linear(5, 25),
+      ParameterRange.linear(40, 300))) {
+
+    @Override
+    public HyperparameterCandidate defaultCandidate() {
+
+      return new HyperparameterCandidate(DEFAULT_CANDIDATE_ID, FeedForwardTwoLayerMain.LEARNING_RATE,
+          FeedForwardCommon.NET_ITERATIONS, new int[] {FeedForwardTwoLayerMain.LAYER_SIZE});
+    }
+
+    @Override
+    public Model createNet(HyperparameterCandidate candidate) {
+
+      return initialized(new MultiLayerNetwork(new FeedForwardTwoLayerMain().createTwoLayerConfiguration(
+          candidate.getLearningRate(), candidate.getIterations(), candidate.getLayerSize(0))));
+    }
+  },
+
+  CONVOLUTIONAL(true, new SearchSpace(
+      ParameterRange.logarithmic(0.001, 0.05),
+      ParameterRange.linear(1, 4),
+      ParameterRange.linear(1, 8),
+      ParameterRange.linear(40, 250))) {
+
+    @Override
+    public HyperparameterCandidate defaultCandidate() {
+
+      return new HyperparameterCandidate(DEFAULT_CANDIDATE_ID, ConvolutionalNetMain.CONVOLUTION_LEARNING_RATE,
+          ConvolutionalNetMain.NET_ITERATIONS,
+          new int[] {ConvolutionalNetMain.CNN_OUTPUT_CHANNELS, ConvolutionalNetMain.DENSE_LAYER_SIZE});
+    }
+
+    @Override
+    public Model createNet(HyperparameterCandidate candidate) {
+
+      ComputationGraph net = new ComputationGraph(new ConvolutionalNetMain().createConvolutionalGraphConfiguration(
+          candidate.getLearningRate(), candidate.getIterations(), candidate.getLayerSize(0),
+          candidate.getLayerSize(1)));
+      net.init();
+
+      return net;
+    }
+  };
+
+  /**
+   * Id of the candidates with the hand tuned hyperparameters.
+   */
+  public static final int DEFAULT_CANDIDATE_ID = -1;
+
+  private final boolean convolutionalFeatures;
+  private final SearchSpace defaultSearchSpace;
+
+  NetArchitecture(boolean convolutionalFeatures, SearchSpace defaultSearchSpace) {
+
+    this.convolutionalFeatures = convolutionalFeatures;
+    this.defaultSearchSpace = defaultSearchSpace;
+  }
+
+  /**
+   * @return the hand tuned hyperparameters of the net's main
+   */
+  public abstract HyperparameterCandidate defaultCandidate();
+
+  public abstract Model createNet(HyperparameterCandidate candidate);
+
+  public boolean isConvolutionalFeatures() {
+
+    return convolutionalFeatures;
+  }
+
+  public SearchSpace getDefaultSearchSpace() {
+
+    return defaultSearchSpace;
+  }
+
+  public int batchSize(int numberOfPlaygrounds) {
+
+    return convolutionalFeatures ? DEFAULT_BATCH_SIZE : numberOfPlaygrounds;
+  }
+
+  public void fit(Model net, DataSet dataSet) {
+
+    if (net instanceof ComputationGraph) {
+
+      ((ComputationGraph) net).fit(dataSet);
+
+    } else {
+
+      ((MultiLayerNetwork) net).fit(dataSet);
+    }
+  }
+
+  /**
+   * Trains with early stopping like the net's main, see
+   * {@link FeedForwardCommon#trainNetworkModel(String, MultiLayerNetwork, DataSetIterator, int)} and
+   * {@link ConvolutionalNetMain#trainNetwork(String, ComputationGraph, DataSetIterator, int)}.
+   *
+   * @return the best net
+   */
+  public Model train(String modelName, Model net, DataSetIterator dataSetIterator, int maxNumberOfEpochs)
+      throws IOException {
+
+    if (net instanceof ComputationGraph) {
+
+      return new ConvolutionalNetMain().trainNetwork(modelName, (ComputationGraph) net, dataSetIterator,
+          maxNumberOfEpochs);
+    }
+
+    return new FeedForwardCommon().trainNetworkModel(modelName, (MultiLayerNetwork) net, dataSetIterator,
+        maxNumberOfEpochs);
+  }
+
+  public INDArray output(Model net, INDArray features) {
+
+    if (net instanceof ComputationGraph) {
+
+      return ((ComputationGraph) net).outputSingle(features);
+    }
+
+    return ((MultiLayerNetwork) net).output(features);
+  }
+
+  public String configurationJson(Model net) {
+
+    if (net instanceof ComputationGraph) {
+
+      return ((ComputationGraph) net).getConfiguration().toJson();
+    }
+
+    return ((MultiLayerNetwork) net).getLayerWiseConfigurations().toJson();
+  }
+
+  protected static MultiLayerNetwork initialized(MultiLayerNetwork net) {
+
+    net.init();
+    return net;
+  }
+}
@@ -0,0 +1,67 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.search;
+
+import java.util.Random;
+
+/**
+ * Closed range of a hyperparameter, sampled uniformly or, for parameters like
+ * learning rates spanning orders of magnitude, uniformly on a logarithmic
+ * scale.
+ */
+public class ParameterRange {
+
+  private final double min;
+  private final double max;
+  private final boolean logarithmic;
+
+  protected ParameterRange(double min, double max, boolean logarithmic) {
+
+    if (min > max || (logarithmic && min <= 0)) {
+
+      throw new IllegalArgumentException("Invalid range [" + min + ", " + max + "]");
+    }
+
+    this.min = min;
+    this.max = max;
+    this.logarithmic = logarithmic;
+  }
+
+  public static ParameterRange linear(double min, double max) {
+
+    return new ParameterRange(min, max, false);
+  }
+
+  public static ParameterRange logarithmic(double min, double max) {
+
+    return new ParameterRange(min, max, true);
+  }
+
+  public double sample(Random random) {
+
+    if (logarithmic) {
+
+      return Math.exp(Math.log(min) + random.nextDouble() * (Math.log(max) - Math.log(min)));
+    }
+
+    return min + random.nextDouble() * (max - min);
+  }
+
+  public int sampleInt(Random random) {
+
+    return (int) Math.round(sample(random));
+  }
+
+  public double getMin() {
+
+    return min;
+  }
+
+  public double getMax() {
+
+    return max;
+  }
+
+  public boolean isLogarithmic() {
+
+    return logarithmic;
+  }
+}
@@ -0,0 +1,38 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.search;
+
+import java.util.Random;
+
+/**
+ * Ranges of the learning rate, the iterations per minibatch and the sizes of
+ * the hidden layers of one {@link NetArchitecture}.
+ */
+public class SearchSpace {
+
+  private final ParameterRange learningRate;
+  private final ParameterRange iterations;
+  private final ParameterRange[] layerSizes;
+
+  public SearchSpace(ParameterRange learningRate, ParameterRange iterations, ParameterRange... layerSizes) {
+
+    this.learningRate = learningRate;
+    this.iterations = iterations;
+    this.layerSizes = layerSizes.clone();
+  }
+
+  public HyperparameterCandidate sample(int id, Random random) {
+
+    int[] sampledLayerSizes = new int[layerSizes.length];
+    for (int layer = 0; layer < layerSizes.length; layer++) {
+
+      sampledLayerSizes[layer] = Math.max(1, layerSizes[layer].sampleInt(random));
+    }
+
+    return new HyperparameterCandidate(id, learningRate.sample(random), Math.max(1, iterations.sampleInt(random)),
+        sampledLayerSizes);
+  }
+
+  public int getNumberOfLayerSizes() {
+
+    return layerSizes.length;
+  }
+}
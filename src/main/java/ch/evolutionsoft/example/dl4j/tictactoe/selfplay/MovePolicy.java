@@ -0,0 +1,16 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.selfplay;
+
+import java.util.List;
+
+/**
+ * Move distributions for the positions of running self play games, asked for
+ * all games of a batch at once so nets need a single forward pass.
+ */
+public interface MovePolicy {
+
+  /**
+   * @param moveDistributions filled with one distribution per game over the
+   *          board fields, zero for occupied fields and summing up to one
+   */
+  void moveDistributions(List<SelfPlayGame> games, double[][] moveDistributions);
+}
@@ -0,0 +1,109 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.selfplay;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.KInARowBoard;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.TicTacToeNeuralDataConverter;
+
+/**
+ * Move distributions of a policy net's softmax output, restricted to the
+ * empty fields. Immediate wins, and otherwise blocks of immediate opponent
+ * wins, get all the probability, so self play improves on the raw net even
+ * without search.
+ *
+ * The net is shared by all self play workers, forward passes are
+ * synchronized.
+ */
+public class NetMovePolicy implements MovePolicy {
+
+  private final UnaryOperator<INDArray> netOutput;
+  private final boolean convolutionalFeatures;
+
+  /**
+   * @param netOutput the net's output of the given features, e.g.
+   *          MultiLayerNetwork::output
+   * @param convolutionalFeatures whether the net expects 3x3 images instead of
+   *          flat playgrounds
+   */
+  public NetMovePolicy(UnaryOperator<INDArray> netOutput, boolean convolutionalFeatures) {
+
+    this.netOutput = netOutput;
+    this.convolutionalFeatures = convolutionalFeatures;
+  }
+
+  @Override
+  public void moveDistributions(List<SelfPlayGame> games, double[][] moveDistributions) {
+
+    int numberOfGames = games.size();
+    int numberOfFields = games.get(0).getBoard().getNumberOfFields();
+
+    double[] playgrounds = new double[numberOfGames * numberOfFields];
+    for (int game = 0; game < numberOfGames; game++) {
+
+      games.get(game).writePlayground(playgrounds, game * numberOfFields);
+    }
+
+    INDArray output;
+    synchronized (this) {
+
+      output = netOutput.apply(TicTacToeNeuralDataConverter.createNetInput(
+          playgrounds, numberOfGames, numberOfFields, convolutionalFeatures));
+    }
+
+    for (int game = 0; game < numberOfGames; game++) {
+
+      SelfPlayGame selfPlayGame = games.get(game);
+      double[] moveDistribution = moveDistributions[game];
+
+      long forcedFields = selfPlayGame.winningFields(true);
+      if (forcedFields == KInARowBoard.NO_FIELDS) {
+
+        forcedFields = selfPlayGame.winningFields(false);
+      }
+
+      for (int field = 0; field < numberOfFields; field++) {
+
+        boolean allowed = forcedFields == KInARowBoard.NO_FIELDS ?
+            !selfPlayGame.getBoard().isOccupied(selfPlayGame.getOccupiedFields(), field) :
+            selfPlayGame.getBoard().isOccupied(forcedFields, field);
+
+        moveDistribution[field] = allowed ? Math.max(0, output.getDouble(game, field)) : 0;
+      }
+
+      normalize(selfPlayGame, moveDistribution);
+    }
+  }
+
+  /**
+   * Scales the distribution to sum up to one, uniform over the empty fields if
+   * the net gives them no probability at all.
+   */
+  protected static void normalize(SelfPlayGame game, double[] moveDistribution) {
+
+    KInARowBoard board = game.getBoard();
+    double sum = 0;
+    for (int field = 0; field < board.getNumberOfFields(); field++) {
+
+      sum += moveDistribution[field];
+    }
+
+    if (sum <= 0) {
+
+      int emptyFields = board.getNumberOfFields() - Long.bitCount(game.getOccupiedFields());
+      for (int field = 0; field < board.getNumberOfFields(); field++) {
+
+        moveDistribution[field] = board.isOccupied(game.getOccupiedFields(), field) ? 0 : 1.0 / emptyFields;
+      }
+
+      return;
+    }
+
+    for (int field = 0; field < board.getNumberOfFields(); field++) {
+
+      moveDistribution[field] /= sum;
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.selfplay;
+
+import java.util.Arrays;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.PlaygroundsResultsSource;
+
+/**
+ * Ring buffer of the latest self play positions, each a playground, the move
+ * distribution chosen for it and the game outcome from the view of the player
+ * to move. Once full, the oldest positions are overwritten.
+ *
+ * The results read by training are the move distributions weighted by the
+ * outcome, see {@link #readResult(int, double[], int)}. Positions may be added
+ * concurrently, training reads a {@link #snapshot()} that does not change
+ * while self play continues.
+ */
+public class ReplayBuffer implements PlaygroundsResultsSource {
+
+  public static final double WIN_OUTCOME = 1.0;
+  public static final double DRAW_OUTCOME = 0.0;
+  public static final double LOSS_OUTCOME = -1.0;
+
+  private final int capacity;
+  private final int columns;
+
+  private final double[] playgrounds;
+  private final double[] moveDistributions;
+  private final double[] outcomes;
+
+  private long addedPositions = 0;
+
+  public ReplayBuffer(int capacity, int columns) {
+
+    if (capacity < 1 || columns < 1) {
+
+      throw new IllegalArgumentException("Capacity and columns must be positive");
+    }
+
+    this.capacity = capacity;
+    this.columns = columns;
+    this.playgrounds = new double[capacity * columns];
+    this.moveDistributions = new double[capacity * columns];
+    this.outcomes = new double[capacity];
+  }
+
+  protected ReplayBuffer(ReplayBuffer replayBuffer) {
+
+    this.capacity = replayBuffer.capacity;
+    this.columns = replayBuffer.columns;
+    this.playgrounds = replayBuffer.playgrounds.clone();
+    this.moveDistributions = replayBuffer.moveDistributions.clone();
+    this.outcomes = replayBuffer.outcomes.clone();
+    this.addedPositions = replayBuffer.addedPositions;
+  }
+
+  public synchronized void add(double[] playground, double[] moveDistribution, double outcome) {
+
+    int slot = (int) (addedPositions % capacity);
+
+    System.arraycopy(playground, 0, playgrounds, slot * columns, columns);
+    System.arraycopy(moveDistribution, 0, moveDistributions, slot * columns, columns);
+    outcomes[slot] = outcome;
+
+    addedPositions++;
+  }
+
+  /**
+   * @return a copy of the current positions
+   */
+  public synchronized ReplayBuffer snapshot() {
+
+    return new ReplayBuffer(this);
+  }
+
+  public synchronized long getAddedPositions() {
+
+    return addedPositions;
+  }
+
+  public int getCapacity() {
+
+    return capacity;
+  }
+
+  @Override
+  public synchronized int getRows() {
+
+    return (int) Math.min(addedPositions, capacity);
+  }
+
+  @Override
+  public int getColumns() {
+
+    return columns;
+  }
+
+  @Override
+  public synchronized void readPlayground(int row, double[] target, int offset) {
+
+    System.arraycopy(playgrounds, slot(row) * columns, target, offset, columns);
+  }
+
+  /**
+   * Reads the policy target of the position, its move distribution scaled by
+   * the {@link #outcomeWeight(double)}. Cross entropy is linear in the labels,
+   * so the moves of won games are learned fully and those of lost games not
+   * at all.
+   */
+  @Override
+  public synchronized void readResult(int row, double[] target, int offset) {
+
+    int slot = slot(row);
+    double weight = outcomeWeight(outcomes[slot]);
+
+    for (int column = 0; column < columns; column++) {
+
+      target[offset + column] = weight * moveDistributions[slot * columns + column];
+    }
+  }
+
+  public synchronized double readOutcome(int row) {
+
+    return outcomes[slot(row)];
+  }
+
+  /**
+   * @return 1 for won, 0.5 for drawn and 0 for lost games
+   */
+  public static double outcomeWeight(double outcome) {
+
+    return (outcome - LOSS_OUTCOME) / (WIN_OUTCOME - LOSS_OUTCOME);
+  }
+
+  @Override
+  public boolean resultsAreLabels() {
+
+    return true;
+  }
+
+  public synchronized void clear() {
+
+    Arrays.fill(outcomes, 0);
+    addedPositions = 0;
+  }
+
+  /**
+   * Rows are counted from the oldest position still stored.
+   */
+  protected int slot(int row) {
+
+    if (row < 0 || row >= getRows()) {
+
+      throw new IndexOutOfBoundsException("Row " + row + " of " + getRows());
+    }
+
+    long oldestPosition = Math.max(0, addedPositions - capacity);
+
+    return (int) ((oldestPosition + row) % capacity);
+  }
+}
@@ -0,0 +1,236 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.selfplay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.KInARowBoard;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StageTimer;
+
+/**
+ * Plays a policy against itself and adds the positions of every finished game
+ * to a {@link ReplayBuffer}.
+ *
+ * Each worker thread plays a batch of games in lockstep, the policy is asked
+ * once per move for all running games of the batch. The first exploration
+ * moves of a game are sampled from the move distribution, later moves are
+ * the most probable ones.
+ */
+public class SelfPlayEngine {
+
+  public static final String SELF_PLAY_STAGE = "selfPlay";
+
+  public static final int DEFAULT_PARALLEL_GAMES = 64;
+
+  public static final int DEFAULT_EXPLORATION_MOVES = 4;
+
+  private final KInARowBoard board;
+  private final MovePolicy movePolicy;
+  private final ReplayBuffer replayBuffer;
+  private final int parallelGames;
+  private final int explorationMoves;
+  private final int workers;
+
+  private final Random seedGenerator;
+
+  private final LongAdder playedGames = new LongAdder();
+  private final LongAdder playedPositions = new LongAdder();
+  private final LongAdder selfPlayNanos = new LongAdder();
+
+  public SelfPlayEngine(KInARowBoard board, MovePolicy movePolicy, ReplayBuffer replayBuffer, long seed) {
+
+    this(board, movePolicy, replayBuffer, DEFAULT_PARALLEL_GAMES, DEFAULT_EXPLORATION_MOVES,
+        Runtime.getRuntime().availableProcessors(), seed);
+  }
+
+  public SelfPlayEngine(KInARowBoard board, MovePolicy movePolicy, ReplayBuffer replayBuffer, int parallelGames,
+      int explorationMoves, int workers, long seed) {
+
+    if (parallelGames < 1 || explorationMoves < 0 || workers < 1) {
+
+      throw new IllegalArgumentException("Invalid self play settings");
+    }
+
+    if (replayBuffer.getColumns() != board.getNumberOfFields()) {
+
+      throw new IllegalArgumentException("Replay buffer columns differ from the board fields");
+    }
+
+    this.board = board;
+    this.movePolicy = movePolicy;
+    this.replayBuffer = replayBuffer;
+    this.parallelGames = parallelGames;
+    this.explorationMoves = explorationMoves;
+    this.workers = workers;
+    this.seedGenerator = new Random(seed);
+  }
+
+  /**
+   * Plays the games distributed over the workers and returns when all of them
+   * are finished and stored.
+   */
+  public void playGames(int numberOfGames) throws InterruptedException {
+
+    long startNanos = System.nanoTime();
+
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+
+    try {
+
+      List<Future<?>> workerGames = new ArrayList<>(workers);
+      for (int worker = 0; worker < workers; worker++) {
+
+        int gamesOfWorker = numberOfGames / workers + (worker < numberOfGames % workers ? 1 : 0);
+        Random random = new Random(seedGenerator.nextLong());
+
+        workerGames.add(executor.submit(() -> playWorkerGames(gamesOfWorker, random)));
+      }
+
+      for (Future<?> games : workerGames) {
+
+        await(games);
+      }
+
+    } finally {
+
+      executor.shutdownNow();
+
+      long elapsedNanos = System.nanoTime() - startNanos;
+      selfPlayNanos.add(elapsedNanos);
+      StageTimer.record(SELF_PLAY_STAGE, elapsedNanos);
+    }
+  }
+
+  public long getPlayedGames() {
+
+    return playedGames.sum();
+  }
+
+  public long getPlayedPositions() {
+
+    return playedPositions.sum();
+  }
+
+  /**
+   * @return finished games per second of self play wall clock time
+   */
+  public double getGamesPerSecond() {
+
+    return playedGames.sum() * 1e9 / Math.max(1, selfPlayNanos.sum());
+  }
+
+  public double getPositionsPerSecond() {
+
+    return playedPositions.sum() * 1e9 / Math.max(1, selfPlayNanos.sum());
+  }
+
+  protected void playWorkerGames(int numberOfGames, Random random) {
+
+    for (int firstGame = 0; firstGame < numberOfGames; firstGame += parallelGames) {
+
+      playBatch(Math.min(parallelGames, numberOfGames - firstGame), random);
+    }
+  }
+
+  protected void playBatch(int numberOfGames, Random random) {
+
+    List<SelfPlayGame> runningGames = new ArrayList<>(numberOfGames);
+    for (int game = 0; game < numberOfGames; game++) {
+
+      runningGames.add(new SelfPlayGame(board));
+    }
+
+    double[][] moveDistributions = new double[numberOfGames][board.getNumberOfFields()];
+
+    while (!runningGames.isEmpty()) {
+
+      movePolicy.moveDistributions(runningGames, moveDistributions);
+
+      List<SelfPlayGame> continuedGames = new ArrayList<>(runningGames.size());
+      for (int game = 0; game < runningGames.size(); game++) {
+
+        SelfPlayGame selfPlayGame = runningGames.get(game);
+        double[] moveDistribution = moveDistributions[game];
+
+        selfPlayGame.play(chooseMove(selfPlayGame, moveDistribution, random), moveDistribution);
+        playedPositions.increment();
+
+        if (selfPlayGame.isFinished()) {
+
+          selfPlayGame.writeTo(replayBuffer);
+          playedGames.increment();
+
+        } else {
+
+          continuedGames.add(selfPlayGame);
+        }
+      }
+
+      runningGames = continuedGames;
+    }
+  }
+
+  protected int chooseMove(SelfPlayGame game, double[] moveDistribution, Random random) {
+
+    int lastEmptyField = -1;
+
+    if (game.getPly() < explorationMoves) {
+
+      double sample = random.nextDouble();
+      for (int field = 0; field < board.getNumberOfFields(); field++) {
+
+        if (!board.isOccupied(game.getOccupiedFields(), field)) {
+
+          lastEmptyField = field;
+          sample -= moveDistribution[field];
+
+          if (sample < 0) {
+
+            return field;
+          }
+        }
+      }
+
+      return lastEmptyField;
+    }
+
+    int bestField = -1;
+    int ties = 0;
+    for (int field = 0; field < board.getNumberOfFields(); field++) {
+
+      if (board.isOccupied(game.getOccupiedFields(), field)) {
+
+        continue;
+      }
+
+      if (bestField < 0 || moveDistribution[field] > moveDistribution[bestField]) {
+
+        bestField = field;
+        ties = 1;
+
+      } else if (moveDistribution[field] == moveDistribution[bestField] && random.nextInt(++ties) == 0) {
+
+        bestField = field;
+      }
+    }
+
+    return bestField;
+  }
+
+  protected static void await(Future<?> games) throws InterruptedException {
+
+    try {
+
+      games.get();
+
+    } catch (ExecutionException e) {
+
+      throw new IllegalStateException("Self play failed", e.getCause());
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.selfplay;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.KInARowBoard;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.TicTacToeNeuralDataConverter;
+
+/**
+ * One game of self play on a {@link KInARowBoard}, recording every position
+ * with the move distribution it was played from.
+ */
+public class SelfPlayGame {
+
+  private final KInARowBoard board;
+
+  private long maxPlayerFields = KInARowBoard.NO_FIELDS;
+  private long minPlayerFields = KInARowBoard.NO_FIELDS;
+  private boolean maxPlayerMove = true;
+
+  private boolean finished = false;
+  private double maxPlayerOutcome = ReplayBuffer.DRAW_OUTCOME;
+
+  private final List<double[]> playgrounds = new ArrayList<>();
+  private final List<double[]> moveDistributions = new ArrayList<>();
+
+  public SelfPlayGame(KInARowBoard board) {
+
+    this.board = board;
+  }
+
+  public KInARowBoard getBoard() {
+
+    return board;
+  }
+
+  public long getMaxPlayerFields() {
+
+    return maxPlayerFields;
+  }
+
+  public long getMinPlayerFields() {
+
+    return minPlayerFields;
+  }
+
+  public long getOccupiedFields() {
+
+    return maxPlayerFields | minPlayerFields;
+  }
+
+  public boolean isMaxPlayerMove() {
+
+    return maxPlayerMove;
+  }
+
+  public int getPly() {
+
+    return playgrounds.size();
+  }
+
+  public boolean isFinished() {
+
+    return finished;
+  }
+
+  /**
+   * @return {@link ReplayBuffer#WIN_OUTCOME} if the max player won, the loss
+   *         outcome if the min player won, the draw outcome otherwise
+   */
+  public double getMaxPlayerOutcome() {
+
+    return maxPlayerOutcome;
+  }
+
+  /**
+   * Writes the playground with MAX_PLAYER, MIN_PLAYER and empty field values
+   * like the MiniMax data.
+   */
+  public void writePlayground(double[] target, int offset) {
+
+    writePlayground(board, maxPlayerFields, minPlayerFields, target, offset);
+  }
+
+  public static void writePlayground(KInARowBoard board, long maxPlayerFields, long minPlayerFields,
+      double[] target, int offset) {
+
+    for (int field = 0; field < board.getNumberOfFields(); field++) {
+
+      double fieldValue = TicTacToeNeuralDataConverter.EMPTY_FIELD_VALUE;
+
+      if (board.isOccupied(maxPlayerFields, field)) {
+
+        fieldValue = MAX_PLAYER;
+
+      } else if (board.isOccupied(minPlayerFields, field)) {
+
+        fieldValue = MIN_PLAYER;
+      }
+
+      target[offset + field] = fieldValue;
+    }
+  }
+
+  /**
+   * @return the empty fields completing a win line of the player to move, or
+   *         of the opponent if ownMove is false
+   */
+  public long winningFields(boolean ownMove) {
+
+    long playerFields = ownMove == maxPlayerMove ? maxPlayerFields : minPlayerFields;
+    long occupiedFields = getOccupiedFields();
+    long winningFields = KInARowBoard.NO_FIELDS;
+
+    for (int field = 0; field < board.getNumberOfFields(); field++) {
+
+      if (!board.isOccupied(occupiedFields, field) &&
+          board.hasWonWith(playerFields | board.fieldMask(field), field)) {
+
+        winningFields |= board.fieldMask(field);
+      }
+    }
+
+    return winningFields;
+  }
+
+  /**
+   * Records the current position with the move distribution and plays the
+   * move.
+   */
+  public void play(int field, double[] moveDistribution) {
+
+    if (finished || board.isOccupied(getOccupiedFields(), field)) {
+
+      throw new IllegalStateException("Field " + field + " cannot be played");
+    }
+
+    double[] playground = new double[board.getNumberOfFields()];
+    writePlayground(playground, 0);
+    playgrounds.add(playground);
+    moveDistributions.add(Arrays.copyOf(moveDistribution, board.getNumberOfFields()));
+
+    if (maxPlayerMove) {
+
+      maxPlayerFields |= board.fieldMask(field);
+      finished = board.hasWonWith(maxPlayerFields, field);
+      maxPlayerOutcome = finished ? ReplayBuffer.WIN_OUTCOME : ReplayBuffer.DRAW_OUTCOME;
+
+    } else {
+
+      minPlayerFields |= board.fieldMask(field);
+      finished = board.hasWonWith(minPlayerFields, field);
+      maxPlayerOutcome = finished ? ReplayBuffer.LOSS_OUTCOME : ReplayBuffer.DRAW_OUTCOME;
+    }
+
+    finished |= !board.hasEmptyFieldsLeft(getOccupiedFields());
+    maxPlayerMove = !maxPlayerMove;
+  }
+
+  /**
+   * Adds all positions of the finished game with the outcome from the view of
+   * the player who moved in them.
+   */
+  public void writeTo(ReplayBuffer replayBuffer) {
+
+    for (int ply = 0; ply < playgrounds.size(); ply++) {
+
+      boolean maxPlayerMoved = ply % 2 == 0;
+      replayBuffer.add(playgrounds.get(ply), moveDistributions.get(ply),
+          maxPlayerMoved ? maxPlayerOutcome : -maxPlayerOutcome);
+    }
+  }
+}
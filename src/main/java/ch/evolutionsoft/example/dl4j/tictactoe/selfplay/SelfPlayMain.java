@@ -0,0 +1,149 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.selfplay;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+import static ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralNetConstants.*;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import org.deeplearning4j.nn.api.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.KInARowBoard;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.BinaryNeuralDataFile;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.ChunkedEvaluation;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.ModelStore;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralDataHelper;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.StreamingDataSetIterator;
+import ch.evolutionsoft.example.dl4j.tictactoe.mcts.MctsMovePolicy;
+import ch.evolutionsoft.example.dl4j.tictactoe.mcts.NetLeafEvaluator;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
+import ch.evolutionsoft.example.dl4j.tictactoe.search.NetArchitecture;
+
+/**
+ * Trains a net from self play only. Every generation the current net plays
+ * games against itself, the positions go into the replay buffer and the net
+ * is trained further on a snapshot of it, with early stopping like in the
+ * net's main. The move distributions are weighted by the game outcomes, see
+ * {@link ReplayBuffer#readResult(int, double[], int)}. The agreement of the
+ * net's moves with the MiniMax moves is logged per generation, MiniMax data is
+ * not used for training.
+ *
+ * The first argument is the {@link NetArchitecture} name, HIDDEN_LAYER by
+ * default. A second argument with a number of playouts per move plays the
+ * moves of a {@link MctsMovePolicy} guided by the net, whose visit
+ * distributions are learned instead of the net's own move distributions. The
+ * final net is kept in the {@link ModelStore} as selfPlay-architecture.
+ */
+public class SelfPlayMain {
+
+  public static final int GENERATIONS = 20;
+
+  public static final int GAMES_PER_GENERATION = 2000;
+
+  public static final int EPOCHS_PER_GENERATION = 3;
+
+  public static final int REPLAY_BUFFER_CAPACITY = 50000;
+
+  public static final int SELF_PLAY_BATCH_SIZE = 128;
+
+  public static final String MODEL_NAME_PREFIX = "selfPlay-";
+
+  private static final Logger logger = LoggerFactory.getLogger(SelfPlayMain.class);
+
+  private final NetArchitecture architecture;
+  private final String modelName;
+  private final int playoutsPerMove;
+
+  private Model net;
+
+  public SelfPlayMain(NetArchitecture architecture) {
+
+    this(architecture, 0);
+  }
+
+  /**
+   * @param playoutsPerMove playouts of the search for every move, 0 to play
+   *          from the net's move distributions
+   */
+  public SelfPlayMain(NetArchitecture architecture, int playoutsPerMove) {
+
+    if (playoutsPerMove < 0) {
+
+      throw new IllegalArgumentException("Playouts per move must not be negative");
+    }
+
+    this.architecture = architecture;
+    this.modelName = MODEL_NAME_PREFIX + architecture.name().toLowerCase(Locale.ROOT);
+    this.playoutsPerMove = playoutsPerMove;
+    this.net = architecture.createNet(architecture.defaultCandidate());
+  }
+
+  public static void main(String[] arguments) throws IOException, InterruptedException {
+
+    StartupTimer.logStartup(SelfPlayMain.class);
+    StartupTimer.initializeNd4j();
+
+    NetArchitecture architecture = arguments.length > 0 ?
+        NetArchitecture.valueOf(arguments[0]) : NetArchitecture.HIDDEN_LAYER;
+    int playoutsPerMove = arguments.length > 1 ? Integer.parseInt(arguments[1]) : 0;
+
+    SelfPlayMain selfPlayMain = new SelfPlayMain(architecture, playoutsPerMove);
+    ReplayBuffer replayBuffer = selfPlayMain.selfPlay(GENERATIONS, GAMES_PER_GENERATION);
+
+    new ModelStore().save(selfPlayMain.modelName, selfPlayMain.net,
+        ModelStore.configurationHash(architecture.configurationJson(selfPlayMain.net)),
+        ModelStore.dataHash(replayBuffer));
+
+    logger.info("Stored self play net {}", selfPlayMain.modelName);
+  }
+
+  /**
+   * @return a snapshot of the replay buffer of the last generation
+   */
+  public ReplayBuffer selfPlay(int generations, int gamesPerGeneration) throws IOException, InterruptedException {
+
+    KInARowBoard board = new KInARowBoard(IMAGE_SIZE, IMAGE_SIZE);
+    ReplayBuffer replayBuffer = new ReplayBuffer(REPLAY_BUFFER_CAPACITY, board.getNumberOfFields());
+
+    MovePolicy movePolicy = playoutsPerMove > 0 ?
+        new MctsMovePolicy(new NetLeafEvaluator(features -> architecture.output(net, features),
+            architecture.isConvolutionalFeatures()), playoutsPerMove) :
+        new NetMovePolicy(features -> architecture.output(net, features), architecture.isConvolutionalFeatures());
+    SelfPlayEngine selfPlayEngine = new SelfPlayEngine(board, movePolicy, replayBuffer, DEFAULT_SEED);
+
+    BinaryNeuralDataFile miniMaxData = NeuralDataHelper.openLabeledData();
+    ReplayBuffer snapshot = replayBuffer.snapshot();
+
+    for (int generation = 1; generation <= generations; generation++) {
+
+      selfPlayEngine.playGames(gamesPerGeneration);
+
+      snapshot = replayBuffer.snapshot();
+      train(snapshot);
+
+      double miniMaxAgreement = ChunkedEvaluation.evaluate(miniMaxData, architecture.isConvolutionalFeatures(),
+          features -> architecture.output(net, features)).accuracy();
+
+      logger.info("Generation {}: {} games/sec, {} positions/sec, {} positions stored, MiniMax agreement {}",
+          generation, String.format(Locale.ROOT, "%.1f", selfPlayEngine.getGamesPerSecond()),
+          String.format(Locale.ROOT, "%.1f", selfPlayEngine.getPositionsPerSecond()), snapshot.getRows(),
+          String.format(Locale.ROOT, "%.4f", miniMaxAgreement));
+    }
+
+    return snapshot;
+  }
+
+  /**
+   * Continues self play with the best net of the training.
+   */
+  protected void train(ReplayBuffer snapshot) throws IOException {
+
+    try (StreamingDataSetIterator dataSetIterator = new StreamingDataSetIterator(snapshot, SELF_PLAY_BATCH_SIZE,
+        architecture.isConvolutionalFeatures())) {
+
+      net = architecture.train(modelName, net, dataSetIterator, EPOCHS_PER_GENERATION);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.serving;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
+import org.nd4j.linalg.api.memory.enums.AllocationPolicy;
+import org.nd4j.linalg.api.memory.enums.LearningPolicy;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeBitboard;
+
+/**
+ * Writes the playground into a preallocated input array and runs the net
+ * inside a workspace, so the activations of repeated predictions reuse the
+ * same off-heap memory. The workspace learns its size in the first prediction.
+ *
+ * Nets are not thread safe, predictions are serialized.
+ */
+public abstract class AbstractMovePredictor implements MovePredictor {
+
+  public static final String WORKSPACE_ID = "MovePredictorWorkspace";
+
+  protected static final WorkspaceConfiguration WORKSPACE_CONFIGURATION = WorkspaceConfiguration.builder()
+      .policyAllocation(AllocationPolicy.OVERALLOCATE)
+      .policyLearning(LearningPolicy.FIRST_LOOP)
+      .build();
+
+  /**
+   * Preallocated input of single predictions.
+   */
+  private INDArray input;
+
+  @Override
+  public int predictMove(int[] playground) {
+
+    return predictMove(encode(playground));
+  }
+
+  @Override
+  public int predictMove(int encodedPlayground) {
+
+    if (encodedPlayground < 0 || encodedPlayground >= TicTacToeBitboard.NUMBER_OF_ENCODINGS) {
+
+      throw new IllegalArgumentException("Invalid playground encoding " + encodedPlayground);
+    }
+
+    return predictMove(
+        TicTacToeBitboard.decodeMaxPlayerFields(encodedPlayground),
+        TicTacToeBitboard.decodeMinPlayerFields(encodedPlayground));
+  }
+
+  public synchronized int predictMove(int maxPlayerFields, int minPlayerFields) {
+
+    int occupiedFields = maxPlayerFields | minPlayerFields;
+
+    if (!TicTacToeBitboard.hasEmptyFieldsLeft(occupiedFields)) {
+
+      return NO_MOVE;
+    }
+
+    if (input == null) {
+
+      input = createInput(1);
+    }
+
+    fillInput(input, 0, maxPlayerFields, minPlayerFields);
+
+    try (MemoryWorkspace workspace =
+        Nd4j.getWorkspaceManager().getAndActivateWorkspace(WORKSPACE_CONFIGURATION, WORKSPACE_ID)) {
+
+      return bestLegalMove(output(input), 0, occupiedFields);
+    }
+  }
+
+  /**
+   * @param playground the nine field values, 1 for MAX_PLAYER, -1 for
+   *          MIN_PLAYER and 0 for empty fields
+   * @return the base 3 encoded playground
+   */
+  public static int encode(int[] playground) {
+
+    if (playground.length != COLUMN_NUMBER) {
+
+      throw new IllegalArgumentException("Playground must have " + COLUMN_NUMBER + " fields");
+    }
+
+    int maxPlayerFields = TicTacToeBitboard.NO_FIELDS;
+    int minPlayerFields = TicTacToeBitboard.NO_FIELDS;
+
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      if (playground[field] == MAX_PLAYER) {
+
+        maxPlayerFields |= TicTacToeBitboard.fieldMask(field);
+
+      } else if (playground[field] == MIN_PLAYER) {
+
+        minPlayerFields |= TicTacToeBitboard.fieldMask(field);
+
+      } else if (playground[field] != 0) {
+
+        throw new IllegalArgumentException("Invalid value " + playground[field] + " of field " + field);
+      }
+    }
+
+    return TicTacToeBitboard.encode(maxPlayerFields, minPlayerFields);
+  }
+
+  /**
+   * @return the empty field with the highest net output in the given row
+   */
+  protected int bestLegalMove(INDArray output, int row, int occupiedFields) {
+
+    int bestMove = NO_MOVE;
+    double bestOutput = Double.NEGATIVE_INFINITY;
+
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      if (!TicTacToeBitboard.isOccupied(occupiedFields, field) && output.getDouble(row, field) > bestOutput) {
+
+        bestOutput = output.getDouble(row, field);
+        bestMove = field;
+      }
+    }
+
+    return bestMove;
+  }
+
+  /**
+   * @return a net input for the given number of playgrounds
+   */
+  protected abstract INDArray createInput(int numberOfPlaygrounds);
+
+  /**
+   * Writes the playground into the given row of the net input.
+   */
+  protected abstract void fillInput(INDArray input, int row, int maxPlayerFields, int minPlayerFields);
+
+  /**
+   * @return the [rows, COLUMN_NUMBER] net output
+   */
+  protected abstract INDArray output(INDArray input);
+}
@@ -0,0 +1,374 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.serving;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeBitboard;
+
+/**
+ * Coalesces concurrent single playground predictions into batches for one
+ * forward pass of the net of an {@link AbstractMovePredictor}.
+ *
+ * Requests are queued and collected by a scheduler thread until either the
+ * maximum batch size is reached or the first request of the batch waited the
+ * maximum wait time. The batch inputs are preallocated per batch size and
+ * reused. The workspace of the scheduler thread learns its size in a warm-up
+ * forward pass of the maximum batch size, so no later batch outgrows it.
+ */
+public class BatchingMovePredictor implements MovePredictor, AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(BatchingMovePredictor.class);
+
+  public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+  public static final long DEFAULT_MAX_WAIT_MICROS = 500;
+
+  private final AbstractMovePredictor movePredictor;
+  private final int maxBatchSize;
+  private final long maxWaitNanos;
+
+  private final BlockingQueue<PredictionRequest> requests = new LinkedBlockingQueue<>();
+
+  private final Thread scheduler;
+
+  private volatile boolean closed = false;
+
+  /**
+   * Net inputs indexed by batch size, only used by the scheduler thread.
+   */
+  private final INDArray[] batchInputs;
+
+  private final long startNanos = System.nanoTime();
+  private final LongAdder completedRequests = new LongAdder();
+  private final LongAdder forwardPasses = new LongAdder();
+  private final LongAdder totalLatencyNanos = new LongAdder();
+  private final LongAccumulator maxLatencyNanos = new LongAccumulator(Long::max, 0);
+
+  public BatchingMovePredictor(AbstractMovePredictor movePredictor) {
+
+    this(movePredictor, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_WAIT_MICROS, TimeUnit.MICROSECONDS);
+  }
+
+  public BatchingMovePredictor(AbstractMovePredictor movePredictor, int maxBatchSize, long maxWait,
+      TimeUnit maxWaitUnit) {
+
+    if (maxBatchSize < 1 || maxWait < 0) {
+
+      throw new IllegalArgumentException("Batch size must be positive and wait time must not be negative");
+    }
+
+    this.movePredictor = movePredictor;
+    this.maxBatchSize = maxBatchSize;
+    this.maxWaitNanos = maxWaitUnit.toNanos(maxWait);
+    this.batchInputs = new INDArray[maxBatchSize + 1];
+
+    this.scheduler = new Thread(this::scheduleBatches, "move-prediction-scheduler");
+    this.scheduler.setDaemon(true);
+    this.scheduler.start();
+  }
+
+  @Override
+  public int predictMove(int[] playground) {
+
+    return predictMove(AbstractMovePredictor.encode(playground));
+  }
+
+  @Override
+  public int predictMove(int encodedPlayground) {
+
+    try {
+
+      return submit(encodedPlayground).join();
+
+    } catch (CompletionException e) {
+
+      throw new IllegalStateException("Move prediction failed", e.getCause());
+    }
+  }
+
+  /**
+   * @param encodedPlayground base 3 encoded playground, see
+   *          {@link TicTacToeBitboard#encode(int, int)}
+   * @return the chosen field or {@link #NO_MOVE} if the playground is full,
+   *         completed after the forward pass of the request's batch
+   */
+  public CompletableFuture<Integer> submit(int encodedPlayground) {
+
+    if (encodedPlayground < 0 || encodedPlayground >= TicTacToeBitboard.NUMBER_OF_ENCODINGS) {
+
+      throw new IllegalArgumentException("Invalid playground encoding " + encodedPlayground);
+    }
+
+    PredictionRequest request = new PredictionRequest(
+        TicTacToeBitboard.decodeMaxPlayerFields(encodedPlayground),
+        TicTacToeBitboard.decodeMinPlayerFields(encodedPlayground));
+
+    if (!TicTacToeBitboard.hasEmptyFieldsLeft(request.occupiedFields())) {
+
+      request.future.complete(NO_MOVE);
+      return request.future;
+    }
+
+    if (closed) {
+
+      request.future.completeExceptionally(new IllegalStateException("Move predictor closed"));
+      return request.future;
+    }
+
+    requests.add(request);
+
+    if (closed) {
+
+      failQueuedRequests();
+    }
+
+    return request.future;
+  }
+
+  /**
+   * Stops the scheduler, queued requests complete exceptionally.
+   */
+  @Override
+  public void close() {
+
+    closed = true;
+    scheduler.interrupt();
+
+    try {
+
+      scheduler.join();
+
+    } catch (InterruptedException e) {
+
+      Thread.currentThread().interrupt();
+    }
+
+    failQueuedRequests();
+  }
+
+  public long getCompletedRequests() {
+
+    return completedRequests.sum();
+  }
+
+  public long getForwardPasses() {
+
+    return forwardPasses.sum();
+  }
+
+  public double getAverageBatchSize() {
+
+    long passes = forwardPasses.sum();
+
+    return passes == 0 ? 0 : (double) completedRequests.sum() / passes;
+  }
+
+  /**
+   * @return completed requests per second since creation
+   */
+  public double getThroughput() {
+
+    return completedRequests.sum() * 1e9 / Math.max(1, System.nanoTime() - startNanos);
+  }
+
+  public double getAverageLatencyMicros() {
+
+    long requestCount = completedRequests.sum();
+
+    return requestCount == 0 ? 0 : totalLatencyNanos.sum() / 1e3 / requestCount;
+  }
+
+  public double getMaxLatencyMicros() {
+
+    return maxLatencyNanos.get() / 1e3;
+  }
+
+  protected void scheduleBatches() {
+
+    List<PredictionRequest> batch = new ArrayList<>(maxBatchSize);
+
+    warmUpWorkspace();
+
+    while (!closed) {
+
+      try {
+
+        collectBatch(batch);
+
+      } catch (InterruptedException e) {
+
+        Thread.currentThread().interrupt();
+        failRequests(batch, new IllegalStateException("Move predictor closed"));
+        return;
+      }
+
+      predictBatch(batch);
+      batch.clear();
+    }
+  }
+
+  /**
+   * Runs one forward pass of the maximum batch size before the first request,
+   * the first loop of the workspace sizes it for all later batches.
+   */
+  protected void warmUpWorkspace() {
+
+    try {
+
+      synchronized (movePredictor) {
+
+        INDArray input = batchInput(maxBatchSize);
+        for (int row = 0; row < maxBatchSize; row++) {
+
+          movePredictor.fillInput(input, row, TicTacToeBitboard.NO_FIELDS, TicTacToeBitboard.NO_FIELDS);
+        }
+
+        try (MemoryWorkspace workspace = Nd4j.getWorkspaceManager().getAndActivateWorkspace(
+            AbstractMovePredictor.WORKSPACE_CONFIGURATION, AbstractMovePredictor.WORKSPACE_ID)) {
+
+          movePredictor.output(input);
+        }
+      }
+
+    } catch (Throwable e) {
+
+      logger.warn("Workspace warm-up with {} playgrounds failed", maxBatchSize, e);
+    }
+  }
+
+  /**
+   * Blocks until the first request arrives, then waits at most the maximum wait
+   * time for further requests.
+   */
+  protected void collectBatch(List<PredictionRequest> batch) throws InterruptedException {
+
+    batch.add(requests.take());
+
+    long deadline = System.nanoTime() + maxWaitNanos;
+    requests.drainTo(batch, maxBatchSize - batch.size());
+
+    while (batch.size() < maxBatchSize) {
+
+      long remainingNanos = deadline - System.nanoTime();
+      PredictionRequest request = remainingNanos > 0 ? requests.poll(remainingNanos, TimeUnit.NANOSECONDS) : null;
+
+      if (request == null) {
+
+        return;
+      }
+
+      batch.add(request);
+      requests.drainTo(batch, maxBatchSize - batch.size());
+    }
+  }
+
+  protected void predictBatch(List<PredictionRequest> batch) {
+
+    int batchSize = batch.size();
+    int[] moves = new int[batchSize];
+
+    try {
+
+      // Shares the net with the single predictions of the wrapped predictor
+      synchronized (movePredictor) {
+
+        INDArray input = batchInput(batchSize);
+        for (int row = 0; row < batchSize; row++) {
+
+          PredictionRequest request = batch.get(row);
+          movePredictor.fillInput(input, row, request.maxPlayerFields, request.minPlayerFields);
+        }
+
+        try (MemoryWorkspace workspace = Nd4j.getWorkspaceManager().getAndActivateWorkspace(
+            AbstractMovePredictor.WORKSPACE_CONFIGURATION, AbstractMovePredictor.WORKSPACE_ID)) {
+
+          INDArray output = movePredictor.output(input);
+          for (int row = 0; row < batchSize; row++) {
+
+            moves[row] = movePredictor.bestLegalMove(output, row, batch.get(row).occupiedFields());
+          }
+        }
+      }
+
+    } catch (Throwable e) {
+
+      // Keeps the scheduler thread alive, e.g. after an OutOfMemoryError
+      logger.warn("Forward pass of {} playgrounds failed", batchSize, e);
+      failRequests(batch, e);
+      return;
+    }
+
+    forwardPasses.increment();
+
+    long completionNanos = System.nanoTime();
+    for (int row = 0; row < batchSize; row++) {
+
+      PredictionRequest request = batch.get(row);
+      long latencyNanos = completionNanos - request.submitNanos;
+
+      totalLatencyNanos.add(latencyNanos);
+      maxLatencyNanos.accumulate(latencyNanos);
+      completedRequests.increment();
+
+      request.future.complete(moves[row]);
+    }
+  }
+
+  protected INDArray batchInput(int batchSize) {
+
+    if (batchInputs[batchSize] == null) {
+
+      batchInputs[batchSize] = movePredictor.createInput(batchSize);
+    }
+
+    return batchInputs[batchSize];
+  }
+
+  protected void failQueuedRequests() {
+
+    List<PredictionRequest> queuedRequests = new ArrayList<>();
+    requests.drainTo(queuedRequests);
+
+    failRequests(queuedRequests, new IllegalStateException("Move predictor closed"));
+  }
+
+  protected static void failRequests(List<PredictionRequest> failedRequests, Throwable cause) {
+
+    for (PredictionRequest request : failedRequests) {
+
+      request.future.completeExceptionally(cause);
+    }
+  }
+
+  protected static class PredictionRequest {
+
+    private final int maxPlayerFields;
+    private final int minPlayerFields;
+    private final long submitNanos = System.nanoTime();
+    private final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+    PredictionRequest(int maxPlayerFields, int minPlayerFields) {
+
+      this.maxPlayerFields = maxPlayerFields;
+      this.minPlayerFields = minPlayerFields;
+    }
+
+    int occupiedFields() {
+
+      return maxPlayerFields | minPlayerFields;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.serving;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.util.ModelSerializer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeBitboard;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.TicTacToeNeuralDataConverter;
+
+/**
+ * Move predictor of the convolutional net with the three channel playground
+ * image as input, see {@link TicTacToeNeuralDataConverter#convertTo3x3Image(INDArray)}.
+ */
+public class ConvolutionalMovePredictor extends AbstractMovePredictor {
+
+  private final ComputationGraph net;
+
+  private final int[] inputIndices = new int[4];
+
+  public ConvolutionalMovePredictor(ComputationGraph net) {
+
+    this.net = net;
+  }
+
+  /**
+   * @param modelFile a net saved by ModelSerializer
+   */
+  public static ConvolutionalMovePredictor load(File modelFile) throws IOException {
+
+    return new ConvolutionalMovePredictor(ModelSerializer.restoreComputationGraph(modelFile, false));
+  }
+
+  @Override
+  protected INDArray createInput(int numberOfPlaygrounds) {
+
+    return Nd4j.create(numberOfPlaygrounds, IMAGE_CHANNELS, IMAGE_SIZE, IMAGE_SIZE);
+  }
+
+  /**
+   * Only called by one thread at a time, the index array is reused.
+   */
+  @Override
+  protected void fillInput(INDArray input, int row, int maxPlayerFields, int minPlayerFields) {
+
+    inputIndices[0] = row;
+
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      inputIndices[2] = field / IMAGE_SIZE;
+      inputIndices[3] = field % IMAGE_SIZE;
+
+      int occupiedChannel = TicTacToeNeuralDataConverter.EMPTY_CHANNEL;
+      if (TicTacToeBitboard.isOccupied(maxPlayerFields, field)) {
+
+        occupiedChannel = TicTacToeNeuralDataConverter.MAX_PLAYER_CHANNEL;
+
+      } else if (TicTacToeBitboard.isOccupied(minPlayerFields, field)) {
+
+        occupiedChannel = TicTacToeNeuralDataConverter.MIN_PLAYER_CHANNEL;
+      }
+
+      for (int channel = 0; channel < IMAGE_CHANNELS; channel++) {
+
+        inputIndices[1] = channel;
+        input.putScalar(inputIndices, channel == occupiedChannel ? 1 : 0);
+      }
+    }
+  }
+
+  @Override
+  protected INDArray output(INDArray input) {
+
+    return net.outputSingle(false, input);
+  }
+}
@@ -0,0 +1,55 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.serving;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.util.ModelSerializer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeBitboard;
+
+/**
+ * Move predictor of the feed forward nets with the flat playground as input.
+ */
+public class FeedForwardMovePredictor extends AbstractMovePredictor {
+
+  private final MultiLayerNetwork net;
+
+  public FeedForwardMovePredictor(MultiLayerNetwork net) {
+
+    this.net = net;
+  }
+
+  /**
+   * @param modelFile a net saved by ModelSerializer
+   */
+  public static FeedForwardMovePredictor load(File modelFile) throws IOException {
+
+    return new FeedForwardMovePredictor(ModelSerializer.restoreMultiLayerNetwork(modelFile, false));
+  }
+
+  @Override
+  protected INDArray createInput(int numberOfPlaygrounds) {
+
+    return Nd4j.create(numberOfPlaygrounds, COLUMN_NUMBER);
+  }
+
+  @Override
+  protected void fillInput(INDArray input, int row, int maxPlayerFields, int minPlayerFields) {
+
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      input.putScalar(row, field, TicTacToeBitboard.fieldValue(maxPlayerFields, minPlayerFields, field));
+    }
+  }
+
+  @Override
+  protected INDArray output(INDArray input) {
+
+    return net.output(input, false);
+  }
+}
@@ -0,0 +1,24 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.serving;
+
+/**
+ * Chooses the next move of the player to move with a trained net. Occupied
+ * fields are never chosen.
+ */
+public interface MovePredictor {
+
+  int NO_MOVE = -1;
+
+  /**
+   * @param playground the nine field values, 1 for MAX_PLAYER, -1 for
+   *          MIN_PLAYER and 0 for empty fields
+   * @return the chosen field or {@link #NO_MOVE} if the playground is full
+   */
+  int predictMove(int[] playground);
+
+  /**
+   * @param encodedPlayground base 3 encoded playground, see
+   *          {@link ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeBitboard#encode(int, int)}
+   * @return the chosen field or {@link #NO_MOVE} if the playground is full
+   */
+  int predictMove(int encodedPlayground);
+}
@@ -0,0 +1,269 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.serving;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeBitboard;
+import ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeBitboardMiniMaxGenerator;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.PlaygroundsResultsSource;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.TicTacToeNeuralDataConverter;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
+
+/**
+ * Best move of every playground in one byte, indexed by the base 3 playground
+ * encoding of {@link TicTacToeBitboard#encode(int, int)}. Playgrounds without
+ * entry hold {@link #NO_ENTRY}.
+ *
+ * Tables are filled from MiniMax results or by asking a {@link MovePredictor}
+ * once for every reachable playground, and are stored as a header of three
+ * ints (magic number, version, number of entries) followed by the entries.
+ * Stored tables are read through a memory mapped FileChannel.
+ */
+public class MoveTable {
+
+  public static final int MAGIC_NUMBER = 0x5454544d;
+  public static final int VERSION = 1;
+  public static final int HEADER_BYTES = 3 * Integer.BYTES;
+
+  public static final byte NO_ENTRY = Byte.MIN_VALUE;
+
+  public static final String DEFAULT_FILE_NAME = "moveTable.bin";
+
+  private static final Logger logger = LoggerFactory.getLogger(MoveTable.class);
+
+  private final ByteBuffer entries;
+
+  protected MoveTable(ByteBuffer entries) {
+
+    this.entries = entries;
+  }
+
+  /**
+   * Writes the table of the MiniMax generated playgrounds to the file given as
+   * argument or {@value #DEFAULT_FILE_NAME}.
+   */
+  public static void main(String[] arguments) throws IOException {
+
+    StartupTimer.logStartup(MoveTable.class);
+
+    Path tableFile = Paths.get(arguments.length > 0 ? arguments[0] : DEFAULT_FILE_NAME);
+
+    TicTacToeBitboardMiniMaxGenerator generator = new TicTacToeBitboardMiniMaxGenerator(true);
+    generator.searchInitial();
+
+    MoveTable moveTable = fromPlaygroundsResults(generator);
+    moveTable.write(tableFile);
+
+    logger.info("Wrote {} moves to {}", moveTable.size(), tableFile.toAbsolutePath());
+  }
+
+  public static MoveTable empty() {
+
+    byte[] entries = new byte[TicTacToeBitboard.NUMBER_OF_ENCODINGS];
+    Arrays.fill(entries, NO_ENTRY);
+
+    return new MoveTable(ByteBuffer.wrap(entries));
+  }
+
+  /**
+   * Stores the move of the converted MiniMax label of every playground, see
+   * {@link TicTacToeNeuralDataConverter#convertMiniMaxLabels(org.nd4j.linalg.api.ndarray.INDArray, org.nd4j.linalg.api.ndarray.INDArray)}.
+   */
+  public static MoveTable fromPlaygroundsResults(PlaygroundsResultsSource playgroundsResults) {
+
+    if (playgroundsResults.getColumns() != COLUMN_NUMBER) {
+
+      throw new IllegalArgumentException("Move tables need " + COLUMN_NUMBER + " fields per playground");
+    }
+
+    MoveTable moveTable = empty();
+
+    double[] playground = new double[COLUMN_NUMBER];
+    double[] result = new double[COLUMN_NUMBER];
+    double[] label = new double[COLUMN_NUMBER];
+
+    for (int row = 0; row < playgroundsResults.getRows(); row++) {
+
+      playgroundsResults.readPlayground(row, playground, 0);
+      playgroundsResults.readResult(row, result, 0);
+      Arrays.fill(label, 0);
+
+      TicTacToeNeuralDataConverter.convertMiniMaxResultToBinaryNetLabel(playground, result, 0, COLUMN_NUMBER, label);
+
+      int maxPlayerFields = TicTacToeBitboard.NO_FIELDS;
+      int minPlayerFields = TicTacToeBitboard.NO_FIELDS;
+      int move = MovePredictor.NO_MOVE;
+
+      for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+        if (playground[field] == MAX_PLAYER) {
+
+          maxPlayerFields |= TicTacToeBitboard.fieldMask(field);
+
+        } else if (playground[field] == MIN_PLAYER) {
+
+          minPlayerFields |= TicTacToeBitboard.fieldMask(field);
+        }
+
+        if (label[field] > 0) {
+
+          move = field;
+        }
+      }
+
+      moveTable.putMove(TicTacToeBitboard.encode(maxPlayerFields, minPlayerFields), move);
+    }
+
+    return moveTable;
+  }
+
+  /**
+   * Asks the move predictor once for every playground reachable from the empty
+   * playground that is not decided yet.
+   */
+  public static MoveTable fromMovePredictor(MovePredictor movePredictor) {
+
+    MoveTable moveTable = empty();
+    moveTable.addReachablePlaygrounds(movePredictor, TicTacToeBitboard.NO_FIELDS, TicTacToeBitboard.NO_FIELDS,
+        true, new BitSet(TicTacToeBitboard.NUMBER_OF_ENCODINGS));
+
+    return moveTable;
+  }
+
+  public static MoveTable open(Path tableFile) throws IOException {
+
+    try (FileChannel fileChannel = FileChannel.open(tableFile, StandardOpenOption.READ)) {
+
+      if (fileChannel.size() != HEADER_BYTES + TicTacToeBitboard.NUMBER_OF_ENCODINGS) {
+
+        throw new IllegalArgumentException("Move table length " + fileChannel.size() + " differs from " +
+            (HEADER_BYTES + TicTacToeBitboard.NUMBER_OF_ENCODINGS) + " bytes");
+      }
+
+      ByteBuffer mappedBuffer = fileChannel.map(MapMode.READ_ONLY, 0, fileChannel.size());
+
+      if (mappedBuffer.getInt(0) != MAGIC_NUMBER || mappedBuffer.getInt(Integer.BYTES) != VERSION ||
+          mappedBuffer.getInt(2 * Integer.BYTES) != TicTacToeBitboard.NUMBER_OF_ENCODINGS) {
+
+        throw new IllegalArgumentException("No move table of version " + VERSION);
+      }
+
+      mappedBuffer.position(HEADER_BYTES);
+
+      return new MoveTable(mappedBuffer.slice());
+    }
+  }
+
+  /**
+   * Writes to a temporary file first and moves it into place, tables mapped by
+   * {@link #open(Path)} are never truncated under their readers.
+   */
+  public void write(Path tableFile) throws IOException {
+
+    Path directory = tableFile.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + TicTacToeBitboard.NUMBER_OF_ENCODINGS);
+    buffer.putInt(MAGIC_NUMBER)
+        .putInt(VERSION)
+        .putInt(TicTacToeBitboard.NUMBER_OF_ENCODINGS);
+
+    for (int encoding = 0; encoding < TicTacToeBitboard.NUMBER_OF_ENCODINGS; encoding++) {
+
+      buffer.put(entries.get(encoding));
+    }
+
+    buffer.flip();
+    Path temporaryFile = Files.createTempFile(directory, tableFile.getFileName().toString(), null);
+    try (FileChannel fileChannel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+
+      while (buffer.hasRemaining()) {
+
+        fileChannel.write(buffer);
+      }
+    }
+
+    Files.move(temporaryFile, tableFile, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * @return the stored move, {@link MovePredictor#NO_MOVE} or {@link #NO_ENTRY}
+   */
+  public int getMove(int encodedPlayground) {
+
+    return entries.get(encodedPlayground);
+  }
+
+  public boolean contains(int encodedPlayground) {
+
+    return entries.get(encodedPlayground) != NO_ENTRY;
+  }
+
+  public void putMove(int encodedPlayground, int move) {
+
+    entries.put(encodedPlayground, (byte) move);
+  }
+
+  public int size() {
+
+    int size = 0;
+    for (int encoding = 0; encoding < TicTacToeBitboard.NUMBER_OF_ENCODINGS; encoding++) {
+
+      if (contains(encoding)) {
+
+        size++;
+      }
+    }
+
+    return size;
+  }
+
+  protected void addReachablePlaygrounds(MovePredictor movePredictor, int maxPlayerFields, int minPlayerFields,
+      boolean maxPlayerMove, BitSet visitedPlaygrounds) {
+
+    int encodedPlayground = TicTacToeBitboard.encode(maxPlayerFields, minPlayerFields);
+    int occupiedFields = maxPlayerFields | minPlayerFields;
+
+    if (visitedPlaygrounds.get(encodedPlayground) || TicTacToeBitboard.hasWon(maxPlayerFields) ||
+        TicTacToeBitboard.hasWon(minPlayerFields) || !TicTacToeBitboard.hasEmptyFieldsLeft(occupiedFields)) {
+
+      return;
+    }
+
+    visitedPlaygrounds.set(encodedPlayground);
+    putMove(encodedPlayground, movePredictor.predictMove(encodedPlayground));
+
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      if (!TicTacToeBitboard.isOccupied(occupiedFields, field)) {
+
+        int fieldMask = TicTacToeBitboard.fieldMask(field);
+
+        if (maxPlayerMove) {
+
+          addReachablePlaygrounds(movePredictor, maxPlayerFields | fieldMask, minPlayerFields, false,
+              visitedPlaygrounds);
+
+        } else {
+
+          addReachablePlaygrounds(movePredictor, maxPlayerFields, minPlayerFields | fieldMask, true,
+              visitedPlaygrounds);
+        }
+      }
+    }
+  }
+}
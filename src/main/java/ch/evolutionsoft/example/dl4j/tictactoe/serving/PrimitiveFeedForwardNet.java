@@ -0,0 +1,464 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.serving;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.conf.layers.BaseLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.nd4j.linalg.activations.IActivation;
+import org.nd4j.linalg.activations.impl.ActivationSigmoid;
+import org.nd4j.linalg.activations.impl.ActivationSoftSign;
+import org.nd4j.linalg.activations.impl.ActivationSoftmax;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+/**
+ * Forward pass of a trained net of dense layers in plain Java, e.g. the nets
+ * of FeedForwardHiddenLayerMain and FeedForwardTwoLayerMain. The weights are
+ * copied into primitive arrays once, predictions need no ND4J call.
+ *
+ * With {@link Precision#INT8} the weights of every neuron are quantized
+ * symmetrically with their own scale. Layer inputs are quantized with the
+ * fixed scale {@value #ACTIVATION_STEPS}, playground values and softsign or
+ * sigmoid activations lie within [-1, 1], and the products are summed up as
+ * ints.
+ *
+ * Nets are immutable and can be shared, the activations are kept per thread.
+ * Stored nets start with magic number, version, precision ordinal and number
+ * of layers, followed by activation ordinal, inputs, outputs, weights, weight
+ * scales for int8 and biases of every layer.
+ */
+public class PrimitiveFeedForwardNet {
+
+  public static final int MAGIC_NUMBER = 0x5454504e;
+  public static final int VERSION = 1;
+
+  public static final int ACTIVATION_STEPS = Byte.MAX_VALUE;
+
+  public enum Precision {
+
+    FLOAT32,
+
+    INT8
+  }
+
+  public enum ActivationFunction {
+
+    SOFTSIGN,
+
+    SIGMOID,
+
+    SOFTMAX
+  }
+
+  private final Precision precision;
+
+  private final int[] layerInputs;
+  private final int[] layerOutputs;
+  private final ActivationFunction[] activations;
+
+  /**
+   * Input major [inputs][outputs] weights per layer like the DL4J weights,
+   * floats or int8 with one dequantization factor per output. Every input
+   * updates all outputs with independent sums instead of one long reduction
+   * per output, which the JIT vectorizes, and empty fields are skipped.
+   */
+  private final float[][] weights;
+  private final byte[][] quantizedWeights;
+  private final float[][] dequantizationFactors;
+
+  private final float[][] biases;
+
+  private final ThreadLocal<float[][]> layerActivations;
+  private final ThreadLocal<int[]> quantizedSums;
+
+  protected PrimitiveFeedForwardNet(Precision precision, int[] layerInputs, int[] layerOutputs,
+      ActivationFunction[] activations, float[][] weights, byte[][] quantizedWeights,
+      float[][] dequantizationFactors, float[][] biases) {
+
+    this.precision = precision;
+    this.layerInputs = layerInputs;
+    this.layerOutputs = layerOutputs;
+    this.activations = activations;
+    this.weights = weights;
+    this.quantizedWeights = quantizedWeights;
+    this.dequantizationFactors = dequantizationFactors;
+    this.biases = biases;
+
+    this.layerActivations = ThreadLocal.withInitial(() -> {
+
+      float[][] buffers = new float[layerOutputs.length][];
+      for (int layer = 0; layer < layerOutputs.length; layer++) {
+
+        buffers[layer] = new float[layerOutputs[layer]];
+      }
+      return buffers;
+    });
+
+    int maxOutputs = 0;
+    for (int outputs : layerOutputs) {
+
+      maxOutputs = Math.max(maxOutputs, outputs);
+    }
+    int quantizedSumsLength = maxOutputs;
+    this.quantizedSums = ThreadLocal.withInitial(() -> new int[quantizedSumsLength]);
+  }
+
+  /**
+   * Copies the weights and biases of every layer of the net.
+   *
+   * @throws IllegalArgumentException if a layer has no dense weights or an
+   *           activation other than softsign, sigmoid or softmax
+   */
+  public static PrimitiveFeedForwardNet fromNetwork(MultiLayerNetwork net, Precision precision) {
+
+    int numberOfLayers = net.getnLayers();
+
+    int[] layerInputs = new int[numberOfLayers];
+    int[] layerOutputs = new int[numberOfLayers];
+    ActivationFunction[] activations = new ActivationFunction[numberOfLayers];
+    float[][] weights = new float[numberOfLayers][];
+    float[][] biases = new float[numberOfLayers][];
+
+    for (int layerIndex = 0; layerIndex < numberOfLayers; layerIndex++) {
+
+      Layer layer = net.getLayer(layerIndex);
+      INDArray layerWeights = layer.getParam(DefaultParamInitializer.WEIGHT_KEY);
+      INDArray layerBiases = layer.getParam(DefaultParamInitializer.BIAS_KEY);
+
+      if (layerWeights == null || layerBiases == null) {
+
+        throw new IllegalArgumentException("Layer " + layerIndex + " is no dense layer");
+      }
+
+      int inputs = layerWeights.rows();
+      int outputs = layerWeights.columns();
+
+      layerInputs[layerIndex] = inputs;
+      layerOutputs[layerIndex] = outputs;
+      activations[layerIndex] = activationFunction(net, layerIndex);
+      weights[layerIndex] = new float[inputs * outputs];
+      biases[layerIndex] = new float[outputs];
+
+      for (int output = 0; output < outputs; output++) {
+
+        for (int input = 0; input < inputs; input++) {
+
+          weights[layerIndex][input * outputs + output] = (float) layerWeights.getDouble(input, output);
+        }
+        biases[layerIndex][output] = (float) layerBiases.getDouble(output);
+      }
+    }
+
+    return create(precision, layerInputs, layerOutputs, activations, weights, biases);
+  }
+
+  public static PrimitiveFeedForwardNet open(Path netFile) throws IOException {
+
+    try (DataInputStream dataInput =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(netFile)))) {
+
+      if (dataInput.readInt() != MAGIC_NUMBER || dataInput.readInt() != VERSION) {
+
+        throw new IllegalArgumentException("No primitive net of version " + VERSION);
+      }
+
+      Precision precision = Precision.values()[dataInput.readInt()];
+      int numberOfLayers = dataInput.readInt();
+
+      int[] layerInputs = new int[numberOfLayers];
+      int[] layerOutputs = new int[numberOfLayers];
+      ActivationFunction[] activations = new ActivationFunction[numberOfLayers];
+      float[][] weights = new float[numberOfLayers][];
+      byte[][] quantizedWeights = new byte[numberOfLayers][];
+      float[][] dequantizationFactors = new float[numberOfLayers][];
+      float[][] biases = new float[numberOfLayers][];
+
+      for (int layer = 0; layer < numberOfLayers; layer++) {
+
+        activations[layer] = ActivationFunction.values()[dataInput.readInt()];
+        layerInputs[layer] = dataInput.readInt();
+        layerOutputs[layer] = dataInput.readInt();
+
+        int numberOfWeights = layerInputs[layer] * layerOutputs[layer];
+        if (precision == Precision.INT8) {
+
+          quantizedWeights[layer] = new byte[numberOfWeights];
+          dataInput.readFully(quantizedWeights[layer]);
+          dequantizationFactors[layer] = readFloats(dataInput, layerOutputs[layer]);
+
+        } else {
+
+          weights[layer] = readFloats(dataInput, numberOfWeights);
+        }
+
+        biases[layer] = readFloats(dataInput, layerOutputs[layer]);
+      }
+
+      return new PrimitiveFeedForwardNet(precision, layerInputs, layerOutputs, activations, weights,
+          quantizedWeights, dequantizationFactors, biases);
+    }
+  }
+
+  public void write(Path netFile) throws IOException {
+
+    try (DataOutputStream dataOutput =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(netFile)))) {
+
+      dataOutput.writeInt(MAGIC_NUMBER);
+      dataOutput.writeInt(VERSION);
+      dataOutput.writeInt(precision.ordinal());
+      dataOutput.writeInt(layerInputs.length);
+
+      for (int layer = 0; layer < layerInputs.length; layer++) {
+
+        dataOutput.writeInt(activations[layer].ordinal());
+        dataOutput.writeInt(layerInputs[layer]);
+        dataOutput.writeInt(layerOutputs[layer]);
+
+        if (precision == Precision.INT8) {
+
+          dataOutput.write(quantizedWeights[layer]);
+          writeFloats(dataOutput, dequantizationFactors[layer]);
+
+        } else {
+
+          writeFloats(dataOutput, weights[layer]);
+        }
+
+        writeFloats(dataOutput, biases[layer]);
+      }
+    }
+  }
+
+  public Precision getPrecision() {
+
+    return precision;
+  }
+
+  public int getNumberOfInputs() {
+
+    return layerInputs[0];
+  }
+
+  public int getNumberOfOutputs() {
+
+    return layerOutputs[layerOutputs.length - 1];
+  }
+
+  /**
+   * @param output filled with the activations of the last layer
+   */
+  public void output(float[] input, float[] output) {
+
+    float[][] activationBuffers = layerActivations.get();
+    float[] layerInput = input;
+
+    for (int layer = 0; layer < layerInputs.length; layer++) {
+
+      float[] layerOutput = activationBuffers[layer];
+
+      if (precision == Precision.INT8) {
+
+        quantizedDense(layer, layerInput, layerOutput);
+
+      } else {
+
+        dense(layer, layerInput, layerOutput);
+      }
+
+      activate(activations[layer], layerOutput);
+      layerInput = layerOutput;
+    }
+
+    System.arraycopy(layerInput, 0, output, 0, getNumberOfOutputs());
+  }
+
+  protected void dense(int layer, float[] input, float[] output) {
+
+    int outputs = layerOutputs[layer];
+    float[] layerWeights = weights[layer];
+
+    System.arraycopy(biases[layer], 0, output, 0, outputs);
+
+    for (int index = 0; index < layerInputs[layer]; index++) {
+
+      float inputValue = input[index];
+      if (inputValue == 0) {
+
+        continue;
+      }
+
+      int rowStart = index * outputs;
+      for (int neuron = 0; neuron < outputs; neuron++) {
+
+        output[neuron] += layerWeights[rowStart + neuron] * inputValue;
+      }
+    }
+  }
+
+  protected void quantizedDense(int layer, float[] input, float[] output) {
+
+    int outputs = layerOutputs[layer];
+    byte[] layerWeights = quantizedWeights[layer];
+    int[] sums = quantizedSums.get();
+
+    Arrays.fill(sums, 0, outputs, 0);
+
+    for (int index = 0; index < layerInputs[layer]; index++) {
+
+      float clamped = Math.max(-1f, Math.min(1f, input[index]));
+      int quantizedInput = Math.round(clamped * ACTIVATION_STEPS);
+      if (quantizedInput == 0) {
+
+        continue;
+      }
+
+      int rowStart = index * outputs;
+      for (int neuron = 0; neuron < outputs; neuron++) {
+
+        sums[neuron] += layerWeights[rowStart + neuron] * quantizedInput;
+      }
+    }
+
+    float[] layerFactors = dequantizationFactors[layer];
+    float[] layerBiases = biases[layer];
+
+    for (int neuron = 0; neuron < outputs; neuron++) {
+
+      output[neuron] = sums[neuron] * layerFactors[neuron] + layerBiases[neuron];
+    }
+  }
+
+  protected static void activate(ActivationFunction activation, float[] values) {
+
+    switch (activation) {
+
+      case SOFTSIGN:
+        for (int index = 0; index < values.length; index++) {
+
+          values[index] = values[index] / (1 + Math.abs(values[index]));
+        }
+        break;
+
+      case SIGMOID:
+        for (int index = 0; index < values.length; index++) {
+
+          values[index] = (float) (1 / (1 + Math.exp(-values[index])));
+        }
+        break;
+
+      default:
+        float max = Float.NEGATIVE_INFINITY;
+        for (float value : values) {
+
+          max = Math.max(max, value);
+        }
+
+        float sum = 0;
+        for (int index = 0; index < values.length; index++) {
+
+          values[index] = (float) Math.exp(values[index] - max);
+          sum += values[index];
+        }
+
+        for (int index = 0; index < values.length; index++) {
+
+          values[index] /= sum;
+        }
+    }
+  }
+
+  /**
+   * Quantizes the float weights if needed.
+   */
+  protected static PrimitiveFeedForwardNet create(Precision precision, int[] layerInputs, int[] layerOutputs,
+      ActivationFunction[] activations, float[][] weights, float[][] biases) {
+
+    if (precision == Precision.FLOAT32) {
+
+      return new PrimitiveFeedForwardNet(precision, layerInputs, layerOutputs, activations, weights, null, null,
+          biases);
+    }
+
+    byte[][] quantizedWeights = new byte[weights.length][];
+    float[][] dequantizationFactors = new float[weights.length][];
+
+    for (int layer = 0; layer < weights.length; layer++) {
+
+      int outputs = layerOutputs[layer];
+      quantizedWeights[layer] = new byte[weights[layer].length];
+      dequantizationFactors[layer] = new float[outputs];
+
+      for (int neuron = 0; neuron < outputs; neuron++) {
+
+        float maxAbsoluteWeight = 0;
+        for (int index = 0; index < layerInputs[layer]; index++) {
+
+          maxAbsoluteWeight = Math.max(maxAbsoluteWeight, Math.abs(weights[layer][index * outputs + neuron]));
+        }
+
+        float weightScale = maxAbsoluteWeight > 0 ? maxAbsoluteWeight / Byte.MAX_VALUE : 1;
+        for (int index = 0; index < layerInputs[layer]; index++) {
+
+          int weightIndex = index * outputs + neuron;
+          quantizedWeights[layer][weightIndex] = (byte) Math.round(weights[layer][weightIndex] / weightScale);
+        }
+
+        dequantizationFactors[layer][neuron] = weightScale / ACTIVATION_STEPS;
+      }
+    }
+
+    return new PrimitiveFeedForwardNet(precision, layerInputs, layerOutputs, activations, null, quantizedWeights,
+        dequantizationFactors, biases);
+  }
+
+  protected static ActivationFunction activationFunction(MultiLayerNetwork net, int layerIndex) {
+
+    org.deeplearning4j.nn.conf.layers.Layer layerConfiguration =
+        net.getLayerWiseConfigurations().getConf(layerIndex).getLayer();
+    IActivation activation = layerConfiguration instanceof BaseLayer ?
+        ((BaseLayer) layerConfiguration).getActivationFn() : null;
+
+    if (activation instanceof ActivationSoftSign) {
+
+      return ActivationFunction.SOFTSIGN;
+
+    } else if (activation instanceof ActivationSigmoid) {
+
+      return ActivationFunction.SIGMOID;
+
+    } else if (activation instanceof ActivationSoftmax) {
+
+      return ActivationFunction.SOFTMAX;
+    }
+
+    throw new IllegalArgumentException("Unsupported activation " + activation + " of layer " + layerIndex);
+  }
+
+  private static float[] readFloats(DataInputStream dataInput, int length) throws IOException {
+
+    float[] values = new float[length];
+    for (int index = 0; index < length; index++) {
+
+      values[index] = dataInput.readFloat();
+    }
+
+    return values;
+  }
+
+  private static void writeFloats(DataOutputStream dataOutput, float[] values) throws IOException {
+
+    for (float value : values) {
+
+      dataOutput.writeFloat(value);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.serving;
+
+import static ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeConstants.*;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeBitboard;
+
+/**
+ * Move predictor of a {@link PrimitiveFeedForwardNet}. Predictions run on the
+ * calling thread without locks and without ND4J calls.
+ */
+public class PrimitiveMovePredictor implements MovePredictor {
+
+  private final PrimitiveFeedForwardNet net;
+
+  private final ThreadLocal<float[]> inputs = ThreadLocal.withInitial(() -> new float[COLUMN_NUMBER]);
+  private final ThreadLocal<float[]> outputs = ThreadLocal.withInitial(() -> new float[COLUMN_NUMBER]);
+
+  public PrimitiveMovePredictor(PrimitiveFeedForwardNet net) {
+
+    if (net.getNumberOfInputs() != COLUMN_NUMBER || net.getNumberOfOutputs() != COLUMN_NUMBER) {
+
+      throw new IllegalArgumentException("Net must have " + COLUMN_NUMBER + " inputs and outputs");
+    }
+
+    this.net = net;
+  }
+
+  @Override
+  public int predictMove(int[] playground) {
+
+    return predictMove(AbstractMovePredictor.encode(playground));
+  }
+
+  @Override
+  public int predictMove(int encodedPlayground) {
+
+    if (encodedPlayground < 0 || encodedPlayground >= TicTacToeBitboard.NUMBER_OF_ENCODINGS) {
+
+      throw new IllegalArgumentException("Invalid playground encoding " + encodedPlayground);
+    }
+
+    return predictMove(
+        TicTacToeBitboard.decodeMaxPlayerFields(encodedPlayground),
+        TicTacToeBitboard.decodeMinPlayerFields(encodedPlayground));
+  }
+
+  public int predictMove(int maxPlayerFields, int minPlayerFields) {
+
+    int occupiedFields = maxPlayerFields | minPlayerFields;
+
+    if (!TicTacToeBitboard.hasEmptyFieldsLeft(occupiedFields)) {
+
+      return NO_MOVE;
+    }
+
+    float[] input = inputs.get();
+    float[] output = outputs.get();
+
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      input[field] = (float) TicTacToeBitboard.fieldValue(maxPlayerFields, minPlayerFields, field);
+    }
+
+    net.output(input, output);
+
+    int bestMove = NO_MOVE;
+    float bestOutput = Float.NEGATIVE_INFINITY;
+
+    for (int field = 0; field < COLUMN_NUMBER; field++) {
+
+      if (!TicTacToeBitboard.isOccupied(occupiedFields, field) && output[field] > bestOutput) {
+
+        bestOutput = output[field];
+        bestMove = field;
+      }
+    }
+
+    return bestMove;
+  }
+
+  public PrimitiveFeedForwardNet getNet() {
+
+    return net;
+  }
+}
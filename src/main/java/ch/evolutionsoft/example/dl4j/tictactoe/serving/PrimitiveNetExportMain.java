@@ -0,0 +1,219 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.serving;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.BinaryNeuralDataFile;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.ModelStore;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.NeuralDataHelper;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.PlaygroundsResultsSource;
+import ch.evolutionsoft.example.dl4j.tictactoe.commonnet.TicTacToeNeuralDataConverter;
+import ch.evolutionsoft.example.dl4j.tictactoe.feedforward.FeedForwardHiddenLayerMain;
+import ch.evolutionsoft.example.dl4j.tictactoe.metrics.StartupTimer;
+
+/**
+ * Exports a stored feed forward net as {@link PrimitiveFeedForwardNet} next to
+ * it in the {@link ModelStore} directory, e.g.
+ * models/feedForwardHiddenLayer-int8.bin.
+ *
+ * Before writing, both precisions are checked against
+ * MultiLayerNetwork.output on every playground of the binary data file: the
+ * agreement of the chosen moves, the largest output difference and the share
+ * of optimal moves, followed by the nanoseconds per single playground
+ * prediction. Arguments are the model name, {@value #DEFAULT_MODEL_NAME} by
+ * default, and the exported precision, INT8 by default.
+ */
+public class PrimitiveNetExportMain {
+
+  public static final String DEFAULT_MODEL_NAME = FeedForwardHiddenLayerMain.MODEL_NAME;
+
+  public static final String EXPORT_FILE_SUFFIX = ".bin";
+
+  public static final int BENCHMARK_ROUNDS = 200;
+
+  private static final Logger logger = LoggerFactory.getLogger(PrimitiveNetExportMain.class);
+
+  public static void main(String[] arguments) throws IOException {
+
+    StartupTimer.logStartup(PrimitiveNetExportMain.class);
+    StartupTimer.initializeNd4j();
+
+    String modelName = arguments.length > 0 ? arguments[0] : DEFAULT_MODEL_NAME;
+    PrimitiveFeedForwardNet.Precision exportedPrecision = arguments.length > 1 ?
+        PrimitiveFeedForwardNet.Precision.valueOf(arguments[1].toUpperCase(Locale.ROOT)) :
+        PrimitiveFeedForwardNet.Precision.INT8;
+
+    ModelStore modelStore = new ModelStore();
+    MultiLayerNetwork net = modelStore.restoreMultiLayerNetwork(modelName);
+
+    PrimitiveFeedForwardNet exportedNet = null;
+
+    BinaryNeuralDataFile playgroundsResults = NeuralDataHelper.openLabeledData();
+    INDArray netOutput = netOutput(net, playgroundsResults);
+
+    for (PrimitiveFeedForwardNet.Precision precision : PrimitiveFeedForwardNet.Precision.values()) {
+
+      PrimitiveFeedForwardNet primitiveNet = PrimitiveFeedForwardNet.fromNetwork(net, precision);
+      checkAccuracy(primitiveNet, netOutput, playgroundsResults);
+      logBenchmark(new PrimitiveMovePredictor(primitiveNet), playgroundsResults);
+
+      if (precision == exportedPrecision) {
+
+        exportedNet = primitiveNet;
+      }
+    }
+
+    Path exportFile = getExportFile(modelStore, modelName, exportedPrecision);
+    exportedNet.write(exportFile);
+
+    logger.info("Exported {} net to {}", exportedPrecision, exportFile.toAbsolutePath());
+  }
+
+  public static Path getExportFile(ModelStore modelStore, String modelName,
+      PrimitiveFeedForwardNet.Precision precision) {
+
+    return modelStore.getModelFile(modelName).resolveSibling(
+        modelName + "-" + precision.name().toLowerCase(Locale.ROOT) + EXPORT_FILE_SUFFIX);
+  }
+
+  /**
+   * @return the [rows, columns] output of the net for all playgrounds
+   */
+  protected static INDArray netOutput(MultiLayerNetwork net, PlaygroundsResultsSource playgroundsResults) {
+
+    int rows = playgroundsResults.getRows();
+    int columns = playgroundsResults.getColumns();
+
+    double[] playgrounds = new double[rows * columns];
+    for (int row = 0; row < rows; row++) {
+
+      playgroundsResults.readPlayground(row, playgrounds, row * columns);
+    }
+
+    return net.output(Nd4j.create(playgrounds, new int[] {rows, columns}), false);
+  }
+
+  /**
+   * Compares the outputs and chosen moves of the primitive net with the
+   * original net output and counts the moves with a positive MiniMax label.
+   */
+  protected static void checkAccuracy(PrimitiveFeedForwardNet primitiveNet, INDArray netOutput,
+      PlaygroundsResultsSource playgroundsResults) {
+
+    int columns = playgroundsResults.getColumns();
+    double[] playground = new double[columns];
+    double[] result = new double[columns];
+    double[] label = new double[columns];
+    float[] input = new float[columns];
+    float[] output = new float[columns];
+
+    int sameMoves = 0;
+    int optimalNetMoves = 0;
+    int optimalPrimitiveMoves = 0;
+    double maxOutputDifference = 0;
+
+    for (int row = 0; row < playgroundsResults.getRows(); row++) {
+
+      playgroundsResults.readPlayground(row, playground, 0);
+
+      if (playgroundsResults.resultsAreLabels()) {
+
+        playgroundsResults.readResult(row, label, 0);
+
+      } else {
+
+        playgroundsResults.readResult(row, result, 0);
+        Arrays.fill(label, 0);
+        TicTacToeNeuralDataConverter.convertMiniMaxResultToBinaryNetLabel(playground, result, 0, columns, label);
+      }
+
+      for (int field = 0; field < columns; field++) {
+
+        input[field] = (float) playground[field];
+      }
+      primitiveNet.output(input, output);
+
+      int netMove = MovePredictor.NO_MOVE;
+      int primitiveMove = MovePredictor.NO_MOVE;
+
+      for (int field = 0; field < columns; field++) {
+
+        double netFieldOutput = netOutput.getDouble(row, field);
+        maxOutputDifference = Math.max(maxOutputDifference, Math.abs(netFieldOutput - output[field]));
+
+        if (playground[field] == TicTacToeNeuralDataConverter.EMPTY_FIELD_VALUE) {
+
+          if (netMove == MovePredictor.NO_MOVE || netFieldOutput > netOutput.getDouble(row, netMove)) {
+
+            netMove = field;
+          }
+
+          if (primitiveMove == MovePredictor.NO_MOVE || output[field] > output[primitiveMove]) {
+
+            primitiveMove = field;
+          }
+        }
+      }
+
+      sameMoves += netMove == primitiveMove ? 1 : 0;
+      optimalNetMoves += label[netMove] > 0 ? 1 : 0;
+      optimalPrimitiveMoves += label[primitiveMove] > 0 ? 1 : 0;
+    }
+
+    int rows = playgroundsResults.getRows();
+    logger.info("{} net chooses the same move for {} of {} playgrounds, max output difference {}",
+        primitiveNet.getPrecision(), sameMoves, rows, String.format(Locale.ROOT, "%.6f", maxOutputDifference));
+    logger.info("Optimal moves {} of the original and {} of the {} net", optimalNetMoves, optimalPrimitiveMoves,
+        primitiveNet.getPrecision());
+  }
+
+  protected static void logBenchmark(PrimitiveMovePredictor movePredictor,
+      PlaygroundsResultsSource playgroundsResults) {
+
+    int rows = playgroundsResults.getRows();
+    int columns = playgroundsResults.getColumns();
+    int[] encodedPlaygrounds = new int[rows];
+    double[] playground = new double[columns];
+    int[] fieldValues = new int[columns];
+
+    for (int row = 0; row < rows; row++) {
+
+      playgroundsResults.readPlayground(row, playground, 0);
+      for (int field = 0; field < columns; field++) {
+
+        fieldValues[field] = (int) playground[field];
+      }
+      encodedPlaygrounds[row] = AbstractMovePredictor.encode(fieldValues);
+    }
+
+    // Warm up the JIT with the first half of the rounds
+    long moveChecksum = 0;
+    long startNanos = 0;
+    for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+
+      if (round == BENCHMARK_ROUNDS / 2) {
+
+        startNanos = System.nanoTime();
+      }
+
+      for (int encodedPlayground : encodedPlaygrounds) {
+
+        moveChecksum += movePredictor.predictMove(encodedPlayground);
+      }
+    }
+
+    double nanosPerPrediction =
+        (double) (System.nanoTime() - startNanos) / ((BENCHMARK_ROUNDS - BENCHMARK_ROUNDS / 2) * rows);
+
+    logger.info("{} net predicts a move in {} ns (checksum {})", movePredictor.getNet().getPrecision(),
+        String.format(Locale.ROOT, "%.1f", nanosPerPrediction), moveChecksum);
+  }
+}
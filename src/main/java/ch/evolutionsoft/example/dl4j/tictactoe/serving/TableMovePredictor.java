@@ -0,0 +1,68 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.serving;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import ch.evolutionsoft.example.dl4j.tictactoe.TicTacToeBitboard;
+
+/**
+ * Answers from a precomputed {@link MoveTable} with a single array read and
+ * asks the fallback predictor, e.g. a trained net, only for playgrounds
+ * without table entry. Without fallback predictor, playgrounds without table
+ * entry, e.g. full or decided playgrounds, get {@link #NO_MOVE}.
+ */
+public class TableMovePredictor implements MovePredictor {
+
+  private final MoveTable moveTable;
+
+  private final MovePredictor fallbackPredictor;
+
+  public TableMovePredictor(MoveTable moveTable) {
+
+    this(moveTable, null);
+  }
+
+  /**
+   * @param fallbackPredictor asked for playgrounds without table entry, may be
+   *          null to answer them with {@link #NO_MOVE}
+   */
+  public TableMovePredictor(MoveTable moveTable, MovePredictor fallbackPredictor) {
+
+    this.moveTable = moveTable;
+    this.fallbackPredictor = fallbackPredictor;
+  }
+
+  public static TableMovePredictor open(Path tableFile, MovePredictor fallbackPredictor) throws IOException {
+
+    return new TableMovePredictor(MoveTable.open(tableFile), fallbackPredictor);
+  }
+
+  @Override
+  public int predictMove(int[] playground) {
+
+    return predictMove(AbstractMovePredictor.encode(playground));
+  }
+
+  @Override
+  public int predictMove(int encodedPlayground) {
+
+    if (encodedPlayground < 0 || encodedPlayground >= TicTacToeBitboard.NUMBER_OF_ENCODINGS) {
+
+      throw new IllegalArgumentException("Invalid playground encoding " + encodedPlayground);
+    }
+
+    int move = moveTable.getMove(encodedPlayground);
+
+    if (move != MoveTable.NO_ENTRY) {
+
+      return move;
+    }
+
+    if (fallbackPredictor == null) {
+
+      return NO_MOVE;
+    }
+
+    return fallbackPredictor.predictMove(encodedPlayground);
+  }
+}
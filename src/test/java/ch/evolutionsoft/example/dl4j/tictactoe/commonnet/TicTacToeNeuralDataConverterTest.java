@@ -0,0 +1,75 @@
+package ch.evolutionsoft.example.dl4j.tictactoe.commonnet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.primitives.Pair;
+
+public class TicTacToeNeuralDataConverterTest {
+
+  /**
+   * The batch conversion over primitive arrays must produce exactly the labels
+   * of the per row conversion for all shipped playgrounds.
+   */
+  @Test
+  public void batchLabelsEqualRowLabels() {
+
+    INDArray stackedPlaygrounds = NeuralDataHelper.readInputs();
+    INDArray stackedResults = NeuralDataHelper.readLabels();
+
+    INDArray batchLabels = TicTacToeNeuralDataConverter.convertMiniMaxLabels(stackedPlaygrounds, stackedResults);
+
+    List<Pair<INDArray, INDArray>> rowPlaygroundsLabels = TicTacToeNeuralDataConverter.convertMiniMaxLabels(
+        NeuralDataHelper.splitRows(new Pair<>(stackedPlaygrounds.dup(), stackedResults.dup())));
+
+    assertEquals(stackedPlaygrounds.rows(), rowPlaygroundsLabels.size());
+    assertArrayEquals(stackedPlaygrounds.shape(), batchLabels.shape());
+
+    int row = 0;
+    for (Pair<INDArray, INDArray> playgroundLabel : rowPlaygroundsLabels) {
+
+      INDArray rowLabel = playgroundLabel.getSecond();
+
+      for (int column = 0; column < batchLabels.columns(); column++) {
+
+        assertEquals("Label of row " + row + " column " + column,
+            Double.doubleToLongBits(rowLabel.getDouble(column)),
+            Double.doubleToLongBits(batchLabels.getDouble(row, column)));
+      }
+      row++;
+    }
+  }
+
+  /**
+   * On a 4x4 board wins are worth up to 17, every move of this position loses
+   * by more than MIN_WIN.
+   */
+  @Test
+  public void policyValueTargetOfBiggerBoardLoss() {
+
+    int numberOfFields = 16;
+    double[] playgrounds = new double[numberOfFields];
+    double[] childValues = new double[numberOfFields];
+    for (int field = 0; field < numberOfFields; field++) {
+
+      childValues[field] = -15;
+    }
+    childValues[3] = -14;
+    childValues[7] = -14;
+    double[] policyTargets = new double[numberOfFields];
+
+    double value = TicTacToeNeuralDataConverter.convertChildValuesToPolicyValueTarget(
+        playgrounds, childValues, 0, numberOfFields, policyTargets);
+
+    assertEquals(TicTacToeNeuralDataConverter.POSITION_LOSS_VALUE, value, 0);
+    for (int field = 0; field < numberOfFields; field++) {
+
+      assertEquals("Policy target of field " + field,
+          field == 3 || field == 7 ? 0.5 : 0, policyTargets[field], 0);
+    }
+  }
+}